@@ -0,0 +1,119 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.benchmarks;
+
+import fr.jmmc.jmcs.util.concurrent.JobBatch;
+import fr.jmmc.jmcs.util.concurrent.ParallelJobExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ParallelJobExecutor benchmarks: forkAndJoin (futures) vs JobBatch (preallocated) for small job batches
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelJobExecutorBenchmark {
+
+    /** number of jobs per batch */
+    @Param({"2", "8"})
+    public int jobs;
+    /** work per job (loop iterations) */
+    @Param({"100", "10000"})
+    public int work;
+    /** executor */
+    private ParallelJobExecutor executor;
+    /** job batch */
+    private JobBatch batch;
+    /** runnable jobs */
+    private Runnable[] runnables;
+    /** per job results */
+    private double[] results;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = ParallelJobExecutor.getInstance();
+        batch = executor.newJobBatch("benchmark", jobs);
+        results = new double[jobs];
+        runnables = new Runnable[jobs];
+        for (int i = 0; i < jobs; i++) {
+            final int index = i;
+            runnables[i] = new Runnable() {
+                @Override
+                public void run() {
+                    double acc = index;
+                    for (int j = 0; j < work; j++) {
+                        acc += Math.sqrt(acc + j);
+                    }
+                    results[index] = acc;
+                }
+            };
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ParallelJobExecutor.shutdown();
+    }
+
+    @Benchmark
+    public void forkAndJoin(final Blackhole bh) {
+        executor.forkAndJoin("benchmark", runnables);
+        bh.consume(results);
+    }
+
+    @Benchmark
+    public void jobBatch(final Blackhole bh) {
+        batch.forkAndJoin(runnables);
+        bh.consume(results);
+    }
+
+    @Benchmark
+    public void sequential(final Blackhole bh) {
+        executor.forkAndJoin("benchmark", runnables, false);
+        bh.consume(results);
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.benchmarks;
+
+import fr.jmmc.jmcs.util.concurrent.FastSemaphore;
+import fr.jmmc.jmcs.util.concurrent.StripedSemaphore;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Semaphore benchmarks: acquire / release (uncontended and contended) for FastSemaphore, StripedSemaphore
+ * and java.util.concurrent.Semaphore
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemaphoreBenchmark {
+
+    /** number of permits */
+    private static final int PERMITS = 64;
+    /** jdk semaphore */
+    private final Semaphore semaphore = new Semaphore(PERMITS);
+    /** fast semaphore */
+    private final FastSemaphore fastSemaphore = new FastSemaphore(PERMITS);
+    /** striped semaphore */
+    private final StripedSemaphore stripedSemaphore = new StripedSemaphore(PERMITS);
+
+    @Benchmark
+    public void semaphore() throws InterruptedException {
+        semaphore.acquire();
+        semaphore.release();
+    }
+
+    @Benchmark
+    public void fastSemaphore() throws InterruptedException {
+        fastSemaphore.acquire();
+        fastSemaphore.release();
+    }
+
+    @Benchmark
+    public void stripedSemaphore() throws InterruptedException {
+        stripedSemaphore.acquire();
+        stripedSemaphore.release();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void semaphoreContended() throws InterruptedException {
+        semaphore.acquire(2);
+        semaphore.release(2);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fastSemaphoreContended() throws InterruptedException {
+        fastSemaphore.acquire(2);
+        fastSemaphore.release(2);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void stripedSemaphoreContended() throws InterruptedException {
+        stripedSemaphore.acquire(2);
+        stripedSemaphore.release(2);
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.benchmarks;
+
+import fr.jmmc.jmcs.gui.component.BasicTableSorter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.swing.table.DefaultTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BasicTableSorter benchmarks: sort rows on a numeric or text column (headless, no table header)
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TableSorterBenchmark {
+
+    /** number of rows */
+    @Param({"1000", "100000"})
+    public int rows;
+    /** sorter */
+    private BasicTableSorter sorter;
+    /** sort direction toggle */
+    private boolean ascending = false;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(1L);
+        final DefaultTableModel model = new DefaultTableModel(new Object[]{"MAG", "NAME"}, 0) {
+            /** default serial UID for Serializable interface */
+            private static final long serialVersionUID = 1;
+
+            @Override
+            public Class<?> getColumnClass(final int column) {
+                return (column == 0) ? Double.class : String.class;
+            }
+        };
+        for (int i = 0; i < rows; i++) {
+            final double mag = 20d * random.nextDouble();
+            model.addRow(new Object[]{Double.valueOf(mag), "HD " + random.nextInt(1000000)});
+        }
+        sorter = new BasicTableSorter(model, null);
+    }
+
+    /**
+     * Toggle the sort direction on the given column and sort rows
+     * @param column column index
+     * @return first row index (model)
+     */
+    private int sort(final int column) {
+        ascending = !ascending;
+        sorter.setSortingStatus(column, ascending ? BasicTableSorter.ASCENDING : BasicTableSorter.DESCENDING);
+        return sorter.modelIndex(0);
+    }
+
+    @Benchmark
+    public int sortNumeric() {
+        return sort(0);
+    }
+
+    @Benchmark
+    public int sortText() {
+        return sort(1);
+    }
+}
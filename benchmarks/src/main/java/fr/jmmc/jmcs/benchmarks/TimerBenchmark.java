@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.benchmarks;
+
+import fr.jmmc.jmcs.util.timer.AbstractTimer;
+import fr.jmmc.jmcs.util.timer.StatLong;
+import fr.jmmc.jmcs.util.timer.TimerFactory;
+import fr.jmmc.jmcs.util.timer.TimerScope;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Timer benchmarks: StatLong.add, TimerFactory.getTimer (single thread and contended) and timing scopes
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerBenchmark {
+
+    /** timer category */
+    private static final String CATEGORY = "benchmark";
+    /** statistics */
+    private final StatLong stat = new StatLong();
+    /** timer sampled 1 in 100 */
+    private AbstractTimer sampledTimer;
+    /** value sequence */
+    private double value = 0d;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TimerFactory.getTimer(CATEGORY);
+        sampledTimer = TimerFactory.getSimpleTimer(CATEGORY + "-sampled", TimerFactory.UNIT.ns);
+        sampledTimer.setSampling(100);
+    }
+
+    @Benchmark
+    public StatLong statLongAdd() {
+        value += 1.25d;
+        if (value > 1e6d) {
+            value = 0d;
+        }
+        stat.add(value);
+        return stat;
+    }
+
+    @Benchmark
+    public AbstractTimer getTimer() {
+        return TimerFactory.getTimer(CATEGORY);
+    }
+
+    @Benchmark
+    public void getTimerAdd() {
+        final long start = System.nanoTime();
+        TimerFactory.getTimer(CATEGORY).addNanoSeconds(start, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void getTimerAddContended() {
+        final long start = System.nanoTime();
+        TimerFactory.getTimer(CATEGORY).addNanoSeconds(start, System.nanoTime());
+    }
+
+    @Benchmark
+    @SuppressWarnings("try")
+    public void scope() {
+        try (TimerScope scope = TimerFactory.start(CATEGORY, TimerFactory.UNIT.ns)) {
+            value += 1d;
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("try")
+    public void scopeSampled() {
+        try (TimerScope scope = sampledTimer.start()) {
+            value += 1d;
+        }
+    }
+}
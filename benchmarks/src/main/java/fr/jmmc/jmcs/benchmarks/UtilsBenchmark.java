@@ -0,0 +1,128 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.benchmarks;
+
+import fr.jmmc.jmcs.util.FileUtils;
+import fr.jmmc.jmcs.util.StringUtils;
+import fr.jmmc.jmcs.util.codecs.BASE64Decoder;
+import fr.jmmc.jmcs.util.codecs.BASE64Encoder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Utility benchmarks: FileUtils.readStream, BASE64 codecs and StringUtils replacements
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    /** data size (bytes) */
+    @Param({"1024", "1048576"})
+    public int size;
+    /** random bytes */
+    private byte[] bytes;
+    /** text (ASCII) */
+    private byte[] text;
+    /** BASE64 encoded bytes */
+    private String encoded;
+    /** string sample (accents, spaces, tags) */
+    private String sample;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(1L);
+        bytes = new byte[size];
+        random.nextBytes(bytes);
+
+        final StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            sb.append("<b>Étoile</b>  HD 1234\t magnitude = 5.6 ;  résolution   élevée\n");
+        }
+        sb.setLength(size);
+        sample = sb.toString();
+        text = sample.getBytes(Charset.forName("UTF-8"));
+
+        encoded = new BASE64Encoder().encode(bytes);
+    }
+
+    @Benchmark
+    public String readStream() throws IOException {
+        return FileUtils.readStream(new ByteArrayInputStream(text));
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return new BASE64Encoder().encode(bytes);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() throws IOException {
+        return new BASE64Decoder().decodeBuffer(encoded);
+    }
+
+    @Benchmark
+    public String removeAccents() {
+        return StringUtils.removeAccents(sample);
+    }
+
+    @Benchmark
+    public String cleanWhiteSpaces() {
+        return StringUtils.cleanWhiteSpaces(sample);
+    }
+
+    @Benchmark
+    public String replaceNonAlphaNumericChars() {
+        return StringUtils.replaceNonAlphaNumericCharsByUnderscore(sample);
+    }
+
+    @Benchmark
+    public String removeTags() {
+        return StringUtils.removeTags(sample);
+    }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.network.http;
+
+import fr.jmmc.jmcs.util.FileUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Stream processor consuming the HTTP response as a ReadableByteChannel
+ * (a FileChannel when the response comes from the HttpCache)
+ * @author agent
+ */
+public abstract class ChannelProcessor implements StreamProcessor {
+
+    /**
+     * Process the given input stream as a channel and CLOSE it anyway (try/finally)
+     * @param in input stream to process
+     * @param length content length in bytes or UNKNOWN_LENGTH
+     * @throws IOException if any IO error occurs
+     */
+    @Override
+    public final void process(final InputStream in, final long length) throws IOException {
+        try {
+            process(Channels.newChannel(in), length);
+        } finally {
+            FileUtils.closeStream(in);
+        }
+    }
+
+    /**
+     * Process the given channel (closed by the caller)
+     * @param channel channel to process
+     * @param length content length in bytes or UNKNOWN_LENGTH
+     * @throws IOException if any IO error occurs
+     */
+    public abstract void process(final ReadableByteChannel channel, final long length) throws IOException;
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.network.http;
+
+import fr.jmmc.jmcs.util.FileUtils;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream processor saving the HTTP response into a file using FileChannel.transferFrom()
+ * (file to file transfer without copy in the java heap when the response comes from the HttpCache).
+ * The file is deleted if the transfer fails (partial download).
+ * @author agent
+ */
+public final class FileStreamProcessor extends ChannelProcessor {
+
+    /** logger */
+    private final static Logger _logger = LoggerFactory.getLogger(FileStreamProcessor.class.getName());
+    /** maximum number of bytes per transfer */
+    private static final long TRANSFER_SIZE = 1024L * 1024L;
+    /** output file */
+    private final File _file;
+
+    /**
+     * Create a file stream processor
+     * @param file output file
+     */
+    public FileStreamProcessor(final File file) {
+        _file = file;
+    }
+
+    /**
+     * @return output file
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Save the given channel into the output file
+     * @param channel channel to process
+     * @param length content length in bytes or UNKNOWN_LENGTH
+     * @throws IOException if any IO error occurs
+     */
+    @Override
+    public void process(final ReadableByteChannel channel, final long length) throws IOException {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(_file);
+            final FileChannel fileChannel = out.getChannel();
+
+            long pos = 0L;
+            long n;
+            // transferFrom() returns 0 at the end of stream (blocking source channel):
+            while ((n = fileChannel.transferFrom(channel, pos, TRANSFER_SIZE)) > 0L) {
+                pos += n;
+            }
+            out.close();
+            out = null;
+
+            if (length != UNKNOWN_LENGTH && pos != length) {
+                throw new IOException("Incomplete transfer: " + pos + " / " + length + " bytes");
+            }
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("File '{}' saved ({} bytes).", _file, pos);
+            }
+        } catch (IOException ioe) {
+            FileUtils.closeStream(out);
+            out = null;
+            if (_file.exists()) {
+                _logger.debug("File '{}' deleted (partial download).", _file);
+                _file.delete();
+            }
+            throw ioe;
+        } finally {
+            FileUtils.closeStream(out);
+        }
+    }
+}
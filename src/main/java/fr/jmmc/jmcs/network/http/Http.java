@@ -40,6 +40,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import java.util.zip.GZIPInputStream;
 import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
@@ -77,6 +78,10 @@ public final class Http {
     private final static Logger _logger = LoggerFactory.getLogger(Http.class.getName());
     /** HTTP GET value for the read timeout in milliseconds (30 seconds) */
     public static final int GET_SOCKET_READ_TIMEOUT = 30 * 1000;
+    /** validator key for the ETag (downloadIfModified) */
+    public static final String VALIDATOR_ETAG = "etag";
+    /** validator key for the Last-Modified date (downloadIfModified) */
+    public static final String VALIDATOR_LAST_MODIFIED = "lastModified";
 
     /** shared HTTP Client (thread safe) */
     private static volatile HttpClient _sharedHttpClient = null;
@@ -220,28 +225,42 @@ public final class Http {
         // Create an HTTP client for the given URI to detect proxies for this host or use common one depending of given flag
         final HttpClient client = (useDedicatedClient) ? Http.createNewHttpClient(uri) : Http.getHttpClient();
 
-        return download(uri, client, new StreamProcessor() {
-            /**
-             * Process the given input stream and CLOSE it anyway (try/finally)
-             * @param in input stream to process
-             * @throws IOException if any IO error occurs
-             */
-            @Override
-            public void process(final InputStream in) throws IOException {
-                try {
-                    FileUtils.saveStream(in, outputFile);
-                    if (_logger.isDebugEnabled()) {
-                        _logger.debug("File '{}' saved ({} bytes).", outputFile, outputFile.length());
-                    }
-                } catch (IOException ioe) {
-                    if (outputFile.exists()) {
-                        _logger.debug("File '{}' deleted (partial download).", outputFile);
-                        outputFile.delete();
-                    }
-                    throw ioe;
-                }
-            }
-        });
+        return download(uri, client, new FileStreamProcessor(outputFile));
+    }
+
+    /**
+     * Save the (large) document located at the given URI in the given file using concurrent byte ranges
+     * fetched by the common multi-threaded HTTP client (single GET request if the server does not support byte ranges).
+     * An interrupted download ('.part' and '.ranges' files) is resumed if the document is unchanged.
+     *
+     * @param uri URI to download
+     * @param outputFile file to save into
+     * @param checksum expected MD5 checksum or null to use the Content-MD5 header (if any)
+     * @return true if successful
+     * @throws IOException if any I/O operation fails (HTTP or file) or if the checksum does not match
+     */
+    public static boolean downloadRanges(final URI uri, final File outputFile, final byte[] checksum) throws IOException {
+        return new RangedDownload(uri, Http.getHttpClient(), outputFile,
+                RangedDownload.DEFAULT_SEGMENT_SIZE, NetworkSettings.DEFAULT_MAX_HOST_CONNECTIONS).download(checksum);
+    }
+
+    /**
+     * Process the document located at the given URI using the given stream processor (streaming).
+     * Requests with dedicatedClient will instance one new client with proxies compatible with given URI.
+     * Other requests will use the common multi-threaded HTTP client.
+     *
+     * @param uri URI to download
+     * @param useDedicatedClient use one dedicated HttpClient if true (proxy resolver) or the shared multi-threaded one else
+     * @param resultProcessor stream processor to use to consume HTTP response
+     * @return true if successful
+     * @throws IOException if any I/O operation fails (HTTP or file)
+     */
+    public static boolean download(final URI uri, final boolean useDedicatedClient,
+                                   final StreamProcessor resultProcessor) throws IOException {
+        // Create an HTTP client for the given URI to detect proxies for this host or use common one depending of given flag
+        final HttpClient client = (useDedicatedClient) ? Http.createNewHttpClient(uri) : Http.getHttpClient();
+
+        return download(uri, client, resultProcessor);
     }
 
     /**
@@ -321,6 +340,26 @@ public final class Http {
         return null;
     }
 
+    /**
+     * Post a request to the given URI and use the given stream processor to consume the response (streaming).
+     *
+     * @param uri URI to load
+     * @param useDedicatedClient use one dedicated HttpClient if true (proxy resolver) or the shared multi-threaded one else
+     * @param queryProcessor post query processor to define query parameters
+     * @param resultProcessor stream processor to use to consume HTTP response
+     * @return true if successful
+     *
+     * @throws IOException if an I/O exception occurred
+     */
+    public static boolean post(final URI uri, final boolean useDedicatedClient,
+                               final PostQueryProcessor queryProcessor, final StreamProcessor resultProcessor) throws IOException {
+
+        // Create an HTTP client for the given URI to detect proxies for this host or use common one depending of given flag
+        final HttpClient client = (useDedicatedClient) ? Http.createNewHttpClient(uri) : Http.getHttpClient();
+
+        return post(uri, client, queryProcessor, resultProcessor);
+    }
+
     /**
      * Execute a request to the given URI and get a string as result.
      *
@@ -405,9 +444,24 @@ public final class Http {
      * @return true if successful
      * @throws IOException if any I/O operation fails (HTTP or file) 
      */
-    private static boolean download(final URI uri, final HttpClient client,
-                                    final StreamProcessor resultProcessor) throws IOException {
-        return download(uri, client, resultProcessor, 0);
+    public static boolean download(final URI uri, final HttpClient client,
+                                   final StreamProcessor resultProcessor) throws IOException {
+        return download(uri, client, resultProcessor, null, 0) == HttpStatus.SC_OK;
+    }
+
+    /**
+     * Save the document located at the given URI in the given file if it was modified since the given validators
+     * (conditional GET request using If-None-Match / If-Modified-Since). The HttpCache is not used as the caller
+     * keeps its own copy: the given validators are updated with the response validators when the document is saved.
+     * 
+     * @param uri URI to download
+     * @param outputFile file to save into
+     * @param validators validators of the local copy (VALIDATOR_ETAG and VALIDATOR_LAST_MODIFIED keys) or empty properties
+     * @return HTTP status code: 200 (saved), 304 (not modified) or the failure code
+     * @throws IOException if any I/O operation fails (HTTP or file) 
+     */
+    public static int downloadIfModified(final URI uri, final File outputFile, final Properties validators) throws IOException {
+        return download(uri, Http.getHttpClient(), new FileStreamProcessor(outputFile), validators, 0);
     }
 
     /**
@@ -415,19 +469,35 @@ public final class Http {
      * Requests with dedicatedClient will instance one new client with proxies compatible with given URI.
      * Other requests will use the common multi-threaded HTTP client.
      * 
+     * Responses are stored in the HttpCache (if enabled): fresh cached responses are used directly
+     * and stale ones are revalidated using a conditional request (304 Not Modified).
+     * If validators are given, the HttpCache is not used and the request is conditional.
+     * 
      * @param uri URI to download
      * @param resultProcessor stream processor to use to consume HTTP response
      * @param client http client to use
+     * @param validators validators of the caller copy or null to use the HttpCache
      * @param level recursion level (authentication attempt)
-     * @return true if successful
+     * @return HTTP status code: 200 if processed, 304 if not modified (validators only) or the failure code
      * @throws IOException if any I/O operation fails (HTTP or file) 
      * @throws AuthenticationException if authentication failed
      */
-    private static boolean download(final URI uri, final HttpClient client,
-                                    final StreamProcessor resultProcessor,
-                                    final int level) throws IOException {
+    private static int download(final URI uri, final HttpClient client,
+                                final StreamProcessor resultProcessor,
+                                final Properties validators,
+                                final int level) throws IOException {
 
         final String url = uri.toString();
+
+        final HttpCache cache = (validators == null) ? HttpCache.getInstance() : null;
+        final HttpCache.Entry entry = (cache != null) ? cache.get(url) : null;
+
+        if (entry != null && entry.isFresh()) {
+            _logger.debug("HTTP cache hit (fresh): {}", url);
+            cache.process(entry, resultProcessor);
+            return HttpStatus.SC_OK;
+        }
+
         final GetMethod method = new GetMethod(url);
 
         final HttpMethodParams httpMethodParams = method.getParams();
@@ -439,6 +509,19 @@ public final class Http {
         if (_logger.isDebugEnabled()) {
             _logger.debug("HTTP client and GET method have been created. doAuthentication = {}", method.getDoAuthentication());
         }
+        if (entry != null) {
+            // revalidate the cached response:
+            HttpCache.addConditionalHeaders(method, entry);
+        } else if (validators != null) {
+            final String etag = validators.getProperty(VALIDATOR_ETAG);
+            if (etag != null) {
+                method.setRequestHeader("If-None-Match", etag);
+            }
+            final String lastModified = validators.getProperty(VALIDATOR_LAST_MODIFIED);
+            if (lastModified != null) {
+                method.setRequestHeader("If-Modified-Since", lastModified);
+            }
+        }
 
         int resultCode = -1;
         try {
@@ -451,11 +534,31 @@ public final class Http {
                 _logger.debug("The query has been sent. Status code: {}", resultCode);
             }
 
+            if (resultCode == HttpStatus.SC_NOT_MODIFIED && entry != null) {
+                _logger.debug("HTTP cache hit (not modified): {}", url);
+                cache.revalidated(entry, method);
+                cache.process(entry, resultProcessor);
+                return HttpStatus.SC_OK;
+            }
+            if (resultCode == HttpStatus.SC_NOT_MODIFIED && validators != null) {
+                _logger.debug("Not modified: {}", url);
+                return resultCode;
+            }
+
             // If everything went fine
             if (resultCode == HttpStatus.SC_OK) {
+                if (cache != null && cache.isCacheable(method)) {
+                    // store then process the cached response:
+                    cache.store(url, method, getResponseStream(method, false), getContentLength(method), resultProcessor);
+                    return resultCode;
+                }
                 // Get response
                 consumeResponse(method, resultProcessor);
-                return true;
+                if (validators != null) {
+                    setValidator(validators, VALIDATOR_ETAG, method.getResponseHeader("ETag"));
+                    setValidator(validators, VALIDATOR_LAST_MODIFIED, method.getResponseHeader("Last-Modified"));
+                }
+                return resultCode;
             }
 
         } finally {
@@ -521,7 +624,7 @@ public final class Http {
                     state.setCredentials(authScope, credentials);
 
                     if (!shouldSkip(credentials)) {
-                        return download(nextURI, client, resultProcessor, level + 1);
+                        return download(nextURI, client, resultProcessor, validators, level + 1);
                     }
                 }
             }
@@ -530,7 +633,15 @@ public final class Http {
 
         _logger.info("download failed [{}]: result code: {}, status: {}", uri, resultCode, method.getStatusText());
 
-        return false;
+        return resultCode;
+    }
+
+    private static void setValidator(final Properties validators, final String key, final Header header) {
+        if (header != null) {
+            validators.setProperty(key, header.getValue());
+        } else {
+            validators.remove(key);
+        }
     }
 
     private static boolean shouldSkip(final Credentials credentials) {
@@ -553,8 +664,8 @@ public final class Http {
      * @return true if successful
      * @throws IOException if any I/O operation fails (HTTP or file) 
      */
-    private static boolean post(final URI uri, final HttpClient client,
-                                final PostQueryProcessor queryProcessor, final StreamProcessor resultProcessor) throws IOException {
+    public static boolean post(final URI uri, final HttpClient client,
+                               final PostQueryProcessor queryProcessor, final StreamProcessor resultProcessor) throws IOException {
 
         final PostMethod method = new PostMethod(uri.toString());
         _logger.debug("HTTP client and POST method have been created");
@@ -595,8 +706,8 @@ public final class Http {
      * @return true if successful
      * @throws IOException if any I/O operation fails (HTTP or file) 
      */
-    private static boolean execute(final HttpClient client,
-                                   final HttpMethodBase method, final StreamProcessor resultProcessor) throws IOException {
+    public static boolean execute(final HttpClient client,
+                                  final HttpMethodBase method, final StreamProcessor resultProcessor) throws IOException {
         try {
             // memorize HTTPMethodBase associated to the current thread:
             HttpMethodThreadMap.setCurrentThread(method);
@@ -622,17 +733,43 @@ public final class Http {
     }
     
     private static void consumeResponse(final HttpMethodBase method, final StreamProcessor resultProcessor) throws IOException {
-        // Check content encoding:
-        final Header encoding = method.getResponseHeader("Content-Encoding");
+        // channel processors use their own buffers:
+        resultProcessor.process(getResponseStream(method, !(resultProcessor instanceof ChannelProcessor)), getContentLength(method));
+    }
 
-        InputStream in = method.getResponseBodyAsStream();
-        
-        if ((encoding != null) && "gzip".equals(encoding.getValue())) {
-            in = new GZIPInputStream(in);
-        } else {
-            in = new BufferedInputStream(in);
+    /**
+     * Return the (decoded) response body stream of the given method
+     * @param method executed http method
+     * @param buffered true to use a buffered stream
+     * @return response body stream
+     * @throws IOException if an I/O exception occurred
+     */
+    private static InputStream getResponseStream(final HttpMethodBase method, final boolean buffered) throws IOException {
+        final InputStream in = method.getResponseBodyAsStream();
+
+        if (isGzipEncoded(method)) {
+            return new GZIPInputStream(in);
         }
-        resultProcessor.process(in);
+        return (buffered) ? new BufferedInputStream(in) : in;
+    }
+
+    /**
+     * Return the length of the (decoded) response body given by the Content-Length header
+     * @param method executed http method
+     * @return content length in bytes or StreamProcessor.UNKNOWN_LENGTH (missing header or gzip encoding)
+     */
+    static long getContentLength(final HttpMethodBase method) {
+        if (isGzipEncoded(method)) {
+            return StreamProcessor.UNKNOWN_LENGTH;
+        }
+        final long length = method.getResponseContentLength();
+        return (length >= 0L) ? length : StreamProcessor.UNKNOWN_LENGTH;
+    }
+
+    private static boolean isGzipEncoded(final HttpMethodBase method) {
+        // Check content encoding:
+        final Header encoding = method.getResponseHeader("Content-Encoding");
+        return (encoding != null) && "gzip".equals(encoding.getValue());
     }
 
     /**
@@ -640,18 +777,21 @@ public final class Http {
      */
     private static final class StringStreamProcessor implements StreamProcessor {
 
+        /** maximum initial buffer capacity (chars) */
+        private static final long MAX_BUFFER_CAPACITY = 64L * 1024L * 1024L;
         /** result as String */
         private String result = null;
 
         /**
          * Process the given input stream and CLOSE it anyway (try/finally)
          * @param in input stream to process
+         * @param length content length in bytes or UNKNOWN_LENGTH
          * @throws IOException if any IO error occurs
          */
         @Override
-        public void process(final InputStream in) throws IOException {
-            // TODO check if we can get response size from HTTP headers
-            result = FileUtils.readStream(in);
+        public void process(final InputStream in, final long length) throws IOException {
+            // pre-size the buffer (UTF-8: chars &lt;= bytes):
+            result = FileUtils.readStream(in, (length > 0L && length < MAX_BUFFER_CAPACITY) ? (int) length : FileUtils.DEFAULT_BUFFER_CAPACITY);
             if (_logger.isDebugEnabled()) {
                 _logger.debug("String stored in memory ({} chars).", result.length());
             }
@@ -0,0 +1,571 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.network.http;
+
+import fr.jmmc.jmcs.util.FileUtils;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.util.DateParseException;
+import org.apache.commons.httpclient.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent HTTP response cache (GET) stored in the platform caches directory:
+ * each entry is a data file (decoded response body) and a metadata file (URL, ETag, Last-Modified, expiry).
+ *
+ * Stale entries are revalidated using conditional requests (If-None-Match / If-Modified-Since) so an unchanged
+ * resource only costs a round-trip (304 Not Modified); fresh entries (Cache-Control max-age or Expires) are used directly.
+ * The total size is bounded: least recently used entries are evicted first.
+ *
+ * @author agent
+ */
+public final class HttpCache {
+
+    /** logger */
+    private final static Logger _logger = LoggerFactory.getLogger(HttpCache.class.getName());
+    /** system property to enable or disable the HTTP cache (true by default) */
+    public static final String PROPERTY_ENABLED = "jmcs.http.cache";
+    /** system property to define the HTTP cache maximum size in bytes */
+    public static final String PROPERTY_MAX_SIZE = "jmcs.http.cache.maxSize";
+    /** system property to define the HTTP cache directory (platform caches directory by default) */
+    public static final String PROPERTY_DIR = "jmcs.http.cache.dir";
+    /** default maximum size (64 MB) */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024L * 1024L;
+    /** cache directory name (in the platform caches directory) */
+    private static final String CACHE_DIR_NAME = "fr.jmmc.jmcs.http";
+    /** data file extension */
+    private static final String EXT_DATA = ".data";
+    /** metadata file extension */
+    private static final String EXT_META = ".properties";
+    /** temporary file extension */
+    private static final String EXT_TMP = ".tmp";
+    /** minimum age of temporary files deleted when loading = 1 day (ms); younger ones may be written by another process */
+    private static final long TMP_MAX_AGE = 24L * 3600L * 1000L;
+    /* metadata keys */
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_EXPIRES = "expires";
+    private static final String KEY_SIZE = "size";
+    /** singleton (lazy) */
+    private static HttpCache _instance = null;
+    /** true if the singleton was initialized */
+    private static boolean _initialized = false;
+
+    /**
+     * Return the shared HTTP cache (lazy)
+     * @return shared HTTP cache or null if disabled
+     */
+    public static synchronized HttpCache getInstance() {
+        if (!_initialized) {
+            _initialized = true;
+            if (isEnabled()) {
+                final String path = System.getProperty(PROPERTY_DIR);
+                final File dir = (path != null) ? new File(path) : new File(FileUtils.getPlatformCachesPath(), CACHE_DIR_NAME);
+                _instance = new HttpCache(dir, Long.getLong(PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE));
+            }
+        }
+        return _instance;
+    }
+
+    /**
+     * @return true if the HTTP cache is enabled (system property)
+     */
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(PROPERTY_ENABLED, "true"));
+    }
+
+    /* members */
+    /** cache directory */
+    private final File _dir;
+    /** maximum total size in bytes */
+    private final long _maxSize;
+    /** entries in access order (LRU first) */
+    private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    /** total size of data files */
+    private long _size = 0L;
+
+    /**
+     * Create the HTTP cache using the given directory (existing entries are loaded)
+     * @param dir cache directory
+     * @param maxSize maximum total size in bytes
+     */
+    HttpCache(final File dir, final long maxSize) {
+        _dir = dir;
+        _maxSize = maxSize;
+        load();
+    }
+
+    /**
+     * @return cache directory
+     */
+    public File getDirectory() {
+        return _dir;
+    }
+
+    /**
+     * @return maximum total size in bytes
+     */
+    public long getMaxSize() {
+        return _maxSize;
+    }
+
+    /**
+     * @return total size of cached entries in bytes
+     */
+    public synchronized long getSize() {
+        return _size;
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    public synchronized int getEntryCount() {
+        return _entries.size();
+    }
+
+    /**
+     * Return the cached entry of the given URL
+     * @param url URL
+     * @return cached entry or null if missing
+     */
+    synchronized Entry get(final String url) {
+        final Entry entry = _entries.get(key(url));
+        if (entry != null && !entry._dataFile.isFile()) {
+            remove(entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Add conditional headers (If-None-Match / If-Modified-Since) to the given request
+     * @param method GET method
+     * @param entry cached entry
+     */
+    static void addConditionalHeaders(final HttpMethodBase method, final Entry entry) {
+        if (entry._etag != null) {
+            method.setRequestHeader("If-None-Match", entry._etag);
+        }
+        if (entry._lastModified != null) {
+            method.setRequestHeader("If-Modified-Since", entry._lastModified);
+        }
+    }
+
+    /**
+     * @return maximum size of one entry in bytes (maxSize / 4)
+     */
+    long getMaxEntrySize() {
+        return _maxSize / 4L;
+    }
+
+    /**
+     * Return true if the response of the given method can be stored
+     * (no 'Cache-Control: no-store', validator or max-age present, known decoded size below maxSize / 4);
+     * unknown sizes (chunked or gzip encoded responses) are checked by store()
+     * @param method executed GET method
+     * @return true if the response can be stored
+     */
+    boolean isCacheable(final HttpMethodBase method) {
+        final String cacheControl = getHeader(method, "Cache-Control");
+        if (cacheControl != null && cacheControl.toLowerCase().contains("no-store")) {
+            return false;
+        }
+        if (Http.getContentLength(method) > getMaxEntrySize()) {
+            return false;
+        }
+        return getHeader(method, "ETag") != null || getHeader(method, "Last-Modified") != null
+                || expires(method, System.currentTimeMillis()) != 0L;
+    }
+
+    /**
+     * Store the given (decoded) response body and its metadata then process it with the given stream processor.
+     * The size limit (maxSize / 4) is enforced while copying: larger bodies are not stored but streamed
+     * directly to the processor.
+     * @param url URL
+     * @param method executed GET method (response headers)
+     * @param in response body stream (closed)
+     * @param length content length in bytes or StreamProcessor.UNKNOWN_LENGTH
+     * @param processor stream processor
+     * @throws IOException if any I/O error occurs
+     */
+    void store(final String url, final HttpMethodBase method, final InputStream in, final long length,
+               final StreamProcessor processor) throws IOException {
+        final String key = key(url);
+        if (!_dir.isDirectory() && !_dir.mkdirs()) {
+            FileUtils.closeStream(in);
+            throw new IOException("Unable to create the directory '" + _dir + "'");
+        }
+        // write into a temporary file (concurrent downloads) then rename it:
+        final File tmpFile = File.createTempFile(key, EXT_TMP, _dir);
+        final InputStream dataIn;
+        try {
+            final long size = copy(in, tmpFile, getMaxEntrySize());
+            if (size < 0L) {
+                _logger.debug("not stored {} (larger than {} bytes)", url, getMaxEntrySize());
+                // stream the partial copy then the remaining response body:
+                final InputStream seqIn = new SequenceInputStream(new FileInputStream(tmpFile), in);
+                try {
+                    processor.process(seqIn, length);
+                } finally {
+                    FileUtils.closeStream(seqIn);
+                }
+                return;
+            }
+            if (length != StreamProcessor.UNKNOWN_LENGTH && size != length) {
+                throw new IOException("Incomplete transfer: " + size + " / " + length + " bytes");
+            }
+            final Entry entry = new Entry(key, url, getHeader(method, "ETag"), getHeader(method, "Last-Modified"),
+                    expires(method, System.currentTimeMillis()), size);
+
+            synchronized (this) {
+                final Entry previous = _entries.get(key);
+                if (previous != null) {
+                    remove(previous);
+                }
+                FileUtils.renameFile(tmpFile.getAbsolutePath(), entry._dataFile.getAbsolutePath(), true);
+                writeMetadata(entry);
+                _entries.put(key, entry);
+                _size += entry._size;
+                evict(entry);
+                // open before releasing the lock (concurrent eviction):
+                dataIn = new FileInputStream(entry._dataFile);
+            }
+            _logger.debug("stored {} ({} bytes)", url, entry._size);
+        } finally {
+            FileUtils.closeStream(in);
+            // partial or streamed copy:
+            tmpFile.delete();
+        }
+        process(dataIn, processor, length);
+    }
+
+    /**
+     * Copy the given stream into the given file up to the given limit
+     * @param in input stream (left open)
+     * @param file output file
+     * @param limit maximum number of bytes
+     * @return number of bytes copied or -1 if the limit was exceeded (the file then contains the bytes read so far)
+     * @throws IOException if any I/O error occurs
+     */
+    private static long copy(final InputStream in, final File file, final long limit) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            final byte[] buffer = new byte[64 * 1024];
+            long size = 0L;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                size += n;
+                if (size > limit) {
+                    return -1L;
+                }
+            }
+            return size;
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Update the given entry after a successful revalidation (304 Not Modified)
+     * @param entry cached entry
+     * @param method executed GET method (response headers)
+     */
+    synchronized void revalidated(final Entry entry, final HttpMethodBase method) {
+        final String etag = getHeader(method, "ETag");
+        if (etag != null) {
+            entry._etag = etag;
+        }
+        final String lastModified = getHeader(method, "Last-Modified");
+        if (lastModified != null) {
+            entry._lastModified = lastModified;
+        }
+        entry._expires = expires(method, System.currentTimeMillis());
+        try {
+            writeMetadata(entry);
+        } catch (IOException ioe) {
+            _logger.info("unable to update the HTTP cache entry [{}]", entry._metaFile, ioe);
+        }
+        _logger.debug("revalidated {}", entry._url);
+    }
+
+    /**
+     * Process the cached response body with the given stream processor
+     * @param entry cached entry
+     * @param processor stream processor
+     * @throws IOException if any I/O error occurs
+     */
+    void process(final Entry entry, final StreamProcessor processor) throws IOException {
+        final InputStream in;
+        synchronized (this) {
+            // mark as recently used (persistent LRU order):
+            _entries.get(entry._key);
+            entry._metaFile.setLastModified(System.currentTimeMillis());
+            // open before releasing the lock (concurrent eviction):
+            in = new FileInputStream(entry._dataFile);
+        }
+        process(in, processor, entry._size);
+    }
+
+    private static void process(final InputStream in, final StreamProcessor processor, final long length) throws IOException {
+        // channel processors get the FileChannel directly (no copy in the java heap):
+        processor.process((processor instanceof ChannelProcessor) ? in : new BufferedInputStream(in, 64 * 1024), length);
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        for (Entry entry : new ArrayList<Entry>(_entries.values())) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * Evict least recently used entries while the total size exceeds the maximum size
+     * @param keep entry to keep (just stored) or null
+     */
+    private void evict(final Entry keep) {
+        for (Iterator<Entry> it = _entries.values().iterator(); _size > _maxSize && it.hasNext();) {
+            final Entry entry = it.next();
+            if (entry == keep) {
+                continue;
+            }
+            it.remove();
+            delete(entry);
+            _logger.debug("evicted {}", entry._url);
+        }
+    }
+
+    private void remove(final Entry entry) {
+        _entries.remove(entry._key);
+        delete(entry);
+    }
+
+    private void delete(final Entry entry) {
+        _size -= entry._size;
+        entry._dataFile.delete();
+        entry._metaFile.delete();
+    }
+
+    /**
+     * Load the existing entries (LRU order given by the metadata file dates)
+     */
+    private void load() {
+        final File[] files = _dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long tmpLimit = System.currentTimeMillis() - TMP_MAX_AGE;
+        final List<File> metaFiles = new ArrayList<File>(files.length);
+        for (File file : files) {
+            if (file.getName().endsWith(EXT_META)) {
+                metaFiles.add(file);
+            } else if (file.getName().endsWith(EXT_TMP) && file.lastModified() < tmpLimit) {
+                // stale partial download (not written by another process for a long time):
+                file.delete();
+            }
+        }
+        Collections.sort(metaFiles, new Comparator<File>() {
+            @Override
+            public int compare(final File f1, final File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File metaFile : metaFiles) {
+            final String name = metaFile.getName();
+            final String key = name.substring(0, name.length() - EXT_META.length());
+            final Entry entry = readMetadata(key, metaFile);
+            if (entry != null && entry._dataFile.length() == entry._size) {
+                _entries.put(key, entry);
+                _size += entry._size;
+            } else {
+                metaFile.delete();
+                new File(_dir, key + EXT_DATA).delete();
+            }
+        }
+        _logger.debug("HTTP cache [{}]: {} entries ({} bytes)", _dir, _entries.size(), _size);
+        evict(null);
+    }
+
+    private Entry readMetadata(final String key, final File metaFile) {
+        final Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(metaFile);
+            props.load(in);
+
+            final String url = props.getProperty(KEY_URL);
+            if (url == null || !key.equals(key(url))) {
+                return null;
+            }
+            return new Entry(key, url, props.getProperty(KEY_ETAG), props.getProperty(KEY_LAST_MODIFIED),
+                    Long.parseLong(props.getProperty(KEY_EXPIRES, "0")), Long.parseLong(props.getProperty(KEY_SIZE, "-1")));
+        } catch (IOException ioe) {
+            _logger.debug("unable to read the HTTP cache entry [{}]", metaFile, ioe);
+        } catch (NumberFormatException nfe) {
+            _logger.debug("invalid HTTP cache entry [{}]", metaFile, nfe);
+        } finally {
+            FileUtils.closeStream(in);
+        }
+        return null;
+    }
+
+    private void writeMetadata(final Entry entry) throws IOException {
+        final Properties props = new Properties();
+        props.setProperty(KEY_URL, entry._url);
+        if (entry._etag != null) {
+            props.setProperty(KEY_ETAG, entry._etag);
+        }
+        if (entry._lastModified != null) {
+            props.setProperty(KEY_LAST_MODIFIED, entry._lastModified);
+        }
+        props.setProperty(KEY_EXPIRES, Long.toString(entry._expires));
+        props.setProperty(KEY_SIZE, Long.toString(entry._size));
+
+        final File tmpFile = new File(_dir, entry._key + EXT_META + EXT_TMP);
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmpFile);
+            props.store(out, null);
+            out.close();
+            out = null;
+        } finally {
+            FileUtils.closeStream(out);
+        }
+        FileUtils.renameFile(tmpFile.getAbsolutePath(), entry._metaFile.getAbsolutePath(), true);
+    }
+
+    /**
+     * Return the expiry date given by the response headers (Cache-Control max-age or Expires)
+     * @param method executed GET method
+     * @param now current time in milliseconds
+     * @return expiry date in milliseconds or 0 if the response must be revalidated
+     */
+    static long expires(final HttpMethodBase method, final long now) {
+        final String cacheControl = getHeader(method, "Cache-Control");
+        if (cacheControl != null) {
+            long maxAge = -1L;
+            for (String directive : cacheControl.toLowerCase().split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-cache") || directive.equals("must-revalidate")) {
+                    return 0L;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        maxAge = Long.parseLong(directive.substring(8).trim());
+                    } catch (NumberFormatException nfe) {
+                        _logger.debug("invalid max-age: {}", directive);
+                    }
+                }
+            }
+            if (maxAge >= 0L) {
+                return (maxAge > 0L) ? now + 1000L * maxAge : 0L;
+            }
+        }
+        final String expires = getHeader(method, "Expires");
+        if (expires != null) {
+            try {
+                final long date = DateUtil.parseDate(expires).getTime();
+                return (date > now) ? date : 0L;
+            } catch (DateParseException dpe) {
+                _logger.debug("invalid Expires: {}", expires);
+            }
+        }
+        return 0L;
+    }
+
+    private static String getHeader(final HttpMethodBase method, final String name) {
+        final Header header = method.getResponseHeader(name);
+        return (header != null) ? header.getValue() : null;
+    }
+
+    private static String key(final String url) {
+        return DigestUtils.sha1Hex(url);
+    }
+
+    /**
+     * Cached response (metadata and data file)
+     */
+    final class Entry {
+
+        /** key (SHA-1 of the URL) */
+        final String _key;
+        /** URL */
+        final String _url;
+        /** ETag (validator) */
+        volatile String _etag;
+        /** Last-Modified date (validator) */
+        volatile String _lastModified;
+        /** expiry date in milliseconds or 0 if the entry must be revalidated */
+        volatile long _expires;
+        /** data size in bytes */
+        final long _size;
+        /** data file */
+        final File _dataFile;
+        /** metadata file */
+        final File _metaFile;
+
+        Entry(final String key, final String url, final String etag, final String lastModified,
+              final long expires, final long size) {
+            _key = key;
+            _url = url;
+            _etag = etag;
+            _lastModified = lastModified;
+            _expires = expires;
+            _size = size;
+            _dataFile = new File(_dir, key + EXT_DATA);
+            _metaFile = new File(_dir, key + EXT_META);
+        }
+
+        /**
+         * @return true if this entry can be used without revalidation
+         */
+        boolean isFresh() {
+            return _expires > System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,569 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.network.http;
+
+import fr.jmmc.jmcs.util.FileUtils;
+import fr.jmmc.jmcs.util.concurrent.ThreadExecutors;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Download of a large file using concurrent byte ranges (HTTP 206 Partial Content):
+ * the file is split in fixed-size segments fetched by several connections of the shared
+ * multi-threaded HTTP client and written at their position into a preallocated partial file ('.part').
+ * 
+ * The progress of each segment is saved in the '.ranges' properties file so an interrupted
+ * download is resumed if the resource is unchanged (same length and validator: ETag or Last-Modified).
+ * The MD5 checksum of the complete file is finally verified (given checksum or Content-MD5 header).
+ * 
+ * Servers not supporting byte ranges ('Accept-Ranges: bytes') use a single GET request.
+ * 
+ * @author agent
+ */
+final class RangedDownload {
+
+    /** logger */
+    private final static Logger _logger = LoggerFactory.getLogger(RangedDownload.class.getName());
+    /** default segment size (4 MB) */
+    static final long DEFAULT_SEGMENT_SIZE = 4L * 1024L * 1024L;
+    /** maximum number of attempts per segment */
+    private static final int MAX_ATTEMPTS = 3;
+    /** read buffer size */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** partial file extension */
+    static final String EXT_PART = ".part";
+    /** progress file extension */
+    static final String EXT_RANGES = ".ranges";
+    /* progress file keys */
+    private static final String KEY_URL = "url";
+    private static final String KEY_LENGTH = "length";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_SEGMENT_SIZE = "segmentSize";
+    private static final String KEY_PROGRESS = "progress";
+    /* members */
+    /** URI to download */
+    private final URI _uri;
+    /** multi-threaded http client */
+    private final HttpClient _client;
+    /** output file */
+    private final File _outputFile;
+    /** partial file */
+    private final File _partFile;
+    /** progress file */
+    private final File _rangesFile;
+    /** segment size in bytes */
+    private final long _segmentSize;
+    /** maximum number of concurrent connections */
+    private final int _maxConnections;
+    /** resource length in bytes */
+    private long _length = -1L;
+    /** ETag (validator) */
+    private String _etag = null;
+    /** Last-Modified date (validator) */
+    private String _lastModified = null;
+    /** Content-MD5 checksum */
+    private byte[] _contentMD5 = null;
+    /** number of bytes written per segment */
+    private AtomicLongArray _progress = null;
+    /** next segment to fetch */
+    private final AtomicInteger _nextSegment = new AtomicInteger();
+    /** first failure (stops all workers) */
+    private final AtomicReference<IOException> _failure = new AtomicReference<IOException>();
+    /** running methods (aborted on failure) */
+    private final Set<HttpMethodBase> _activeMethods = Collections.synchronizedSet(new HashSet<HttpMethodBase>());
+    /** partial file channel (positional writes are thread safe) */
+    private FileChannel _channel = null;
+
+    /**
+     * Create a ranged download
+     * @param uri URI to download
+     * @param client multi-threaded http client
+     * @param outputFile output file
+     * @param segmentSize segment size in bytes
+     * @param maxConnections maximum number of concurrent connections
+     */
+    RangedDownload(final URI uri, final HttpClient client, final File outputFile,
+                   final long segmentSize, final int maxConnections) {
+        _uri = uri;
+        _client = client;
+        _outputFile = outputFile;
+        _partFile = new File(outputFile.getPath() + EXT_PART);
+        _rangesFile = new File(outputFile.getPath() + EXT_RANGES);
+        _segmentSize = segmentSize;
+        _maxConnections = Math.max(1, maxConnections);
+    }
+
+    /**
+     * Download the resource into the output file
+     * @param checksum expected MD5 checksum or null to use the Content-MD5 header (if any)
+     * @return true if successful
+     * @throws IOException if any I/O operation fails (HTTP or file), if the checksum does not match
+     * or if the download is interrupted (resumable)
+     */
+    boolean download(final byte[] checksum) throws IOException {
+        if (!probe()) {
+            _logger.debug("byte ranges not supported: {}", _uri);
+            if (!Http.download(_uri, _client, new FileStreamProcessor(_partFile))) {
+                return false;
+            }
+        } else {
+            final int nSegments = (int) ((_length + _segmentSize - 1L) / _segmentSize);
+            _progress = new AtomicLongArray(nSegments);
+
+            if (!resume()) {
+                _partFile.delete();
+                _rangesFile.delete();
+            }
+
+            final RandomAccessFile raf = new RandomAccessFile(_partFile, "rw");
+            try {
+                // preallocate the partial file:
+                raf.setLength(_length);
+                _channel = raf.getChannel();
+
+                fetch(nSegments);
+            } catch (ResourceChangedException rce) {
+                // restart next time:
+                _rangesFile.delete();
+                throw rce;
+            } finally {
+                raf.close();
+                _channel = null;
+            }
+        }
+
+        final byte[] expected = (checksum != null) ? checksum : _contentMD5;
+        if (expected != null && !Arrays.equals(expected, FileUtils.checksum(new FileInputStream(_partFile)))) {
+            _partFile.delete();
+            _rangesFile.delete();
+            throw new IOException("Checksum mismatch for the downloaded file: " + _uri);
+        }
+        _rangesFile.delete();
+        FileUtils.renameFile(_partFile.getAbsolutePath(), _outputFile.getAbsolutePath(), true);
+
+        _logger.debug("File '{}' saved ({} bytes).", _outputFile, _outputFile.length());
+        return true;
+    }
+
+    /**
+     * Get the resource length and validators (HEAD request)
+     * @return true if the server supports byte ranges and the resource is larger than one segment
+     * @throws IOException if any I/O operation fails
+     */
+    private boolean probe() throws IOException {
+        final HeadMethod method = new HeadMethod(_uri.toString());
+        method.getParams().setSoTimeout(Http.GET_SOCKET_READ_TIMEOUT);
+        try {
+            if (_client.executeMethod(method) != HttpStatus.SC_OK) {
+                return false;
+            }
+            final String contentMD5 = getHeader(method, "Content-MD5");
+            if (contentMD5 != null) {
+                _contentMD5 = Base64.decodeBase64(contentMD5);
+            }
+            _etag = getHeader(method, "ETag");
+            _lastModified = getHeader(method, "Last-Modified");
+
+            final String length = getHeader(method, "Content-Length");
+            if (length != null) {
+                try {
+                    _length = Long.parseLong(length.trim());
+                } catch (NumberFormatException nfe) {
+                    _logger.debug("invalid Content-Length: {}", length);
+                }
+            }
+            return "bytes".equalsIgnoreCase(getHeader(method, "Accept-Ranges")) && _length > _segmentSize;
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * Fetch all incomplete segments using concurrent workers and save the progress file:
+     * the calling thread fetches segments too so the download completes even if the generic thread pool
+     * can not start the other workers (saturated bounded pool or caller running in that pool)
+     * @param nSegments number of segments
+     * @throws IOException if any segment failed or if the current thread is interrupted
+     */
+    private void fetch(final int nSegments) throws IOException {
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int segment;
+                    while (_failure.get() == null && !Thread.currentThread().isInterrupted()
+                            && (segment = _nextSegment.getAndIncrement()) < nSegments) {
+                        fetchSegment(segment);
+                    }
+                } catch (IOException ioe) {
+                    fail(ioe);
+                }
+            }
+        };
+
+        final Future<?>[] futures = new Future<?>[Math.min(_maxConnections, nSegments) - 1];
+        // start flags (1 = started or skipped) to never wait for a worker still queued:
+        final AtomicIntegerArray started = new AtomicIntegerArray(futures.length);
+        int nWorkers = 0;
+        try {
+            for (; nWorkers < futures.length; nWorkers++) {
+                final int index = nWorkers;
+                futures[nWorkers] = ThreadExecutors.getGenericExecutor().submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (started.compareAndSet(index, 0, 1)) {
+                            worker.run();
+                        }
+                    }
+                });
+            }
+        } catch (IllegalStateException ise) {
+            // rejected: the calling thread fetches remaining segments:
+            _logger.debug("generic thread pool saturated: {} workers", nWorkers, ise);
+        }
+        // one worker in the calling thread:
+        worker.run();
+
+        boolean interrupted = false;
+        if (Thread.interrupted()) {
+            interrupted = true;
+            fail(new InterruptedIOException("Download interrupted: " + _uri));
+        }
+        for (int i = 0; i < nWorkers; i++) {
+            final Future<?> future = futures[i];
+            if (started.compareAndSet(i, 0, 1)) {
+                // never started (no segment left): skipped
+                continue;
+            }
+            // wait for all workers before closing the partial file:
+            for (;;) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                    fail(new InterruptedIOException("Download interrupted: " + _uri));
+                } catch (ExecutionException ee) {
+                    fail(new IOException("Download failed: " + _uri, ee.getCause()));
+                    break;
+                }
+            }
+        }
+        saveProgress();
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final IOException failure = _failure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Fetch the remaining bytes of the given segment (retry from the last written byte)
+     * @param segment segment index
+     * @throws IOException if the segment failed MAX_ATTEMPTS times
+     */
+    private void fetchSegment(final int segment) throws IOException {
+        final long start = segment * _segmentSize;
+        final long end = Math.min(start + _segmentSize, _length) - 1L;
+
+        for (int attempt = 1;; attempt++) {
+            final long pos = start + _progress.get(segment);
+            if (pos > end) {
+                break;
+            }
+            try {
+                fetchRange(segment, pos, end);
+            } catch (IOException ioe) {
+                if (attempt == MAX_ATTEMPTS || _failure.get() != null || ioe instanceof ResourceChangedException) {
+                    throw ioe;
+                }
+                _logger.debug("range [{} - {}] failed (attempt {}): {}", pos, end, attempt, ioe.getMessage());
+            }
+        }
+        saveProgress();
+    }
+
+    /**
+     * Fetch the given byte range and write it into the partial file
+     * @param segment segment index
+     * @param pos first byte position
+     * @param end last byte position (inclusive)
+     * @throws IOException if any I/O operation fails
+     */
+    private void fetchRange(final int segment, final long pos, final long end) throws IOException {
+        final GetMethod method = new GetMethod(_uri.toString());
+        method.getParams().setSoTimeout(Http.GET_SOCKET_READ_TIMEOUT);
+        method.setRequestHeader("Range", "bytes=" + pos + '-' + end);
+
+        final String validator = getIfRange();
+        if (validator != null) {
+            // get the complete resource (200) if it changed:
+            method.setRequestHeader("If-Range", validator);
+        }
+
+        boolean done = false;
+        _activeMethods.add(method);
+        try {
+            final int resultCode;
+            try {
+                resultCode = _client.executeMethod(method);
+            } catch (IllegalStateException ise) {
+                // aborted before its execution:
+                throw new IOException("Range request aborted: " + _uri, ise);
+            }
+
+            if (resultCode == HttpStatus.SC_OK) {
+                throw new ResourceChangedException("Resource changed during download: " + _uri);
+            }
+            if (resultCode != HttpStatus.SC_PARTIAL_CONTENT) {
+                throw new IOException("Range request failed [" + _uri + "]: result code: " + resultCode
+                        + ", status: " + method.getStatusText());
+            }
+            if (validator == null && _etag != null && !sameEntity(_etag, getHeader(method, "ETag"))) {
+                // no If-Range (weak ETag only): compare entity tags
+                throw new ResourceChangedException("Resource changed during download: " + _uri);
+            }
+            final String contentRange = getHeader(method, "Content-Range");
+            if (contentRange == null || !contentRange.startsWith("bytes " + pos + '-')) {
+                throw new IOException("Unexpected Content-Range [" + contentRange + "] for range: " + pos + '-' + end);
+            }
+
+            final InputStream in = method.getResponseBodyAsStream();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            final ByteBuffer bb = ByteBuffer.wrap(buffer);
+
+            long offset = pos;
+            while (offset <= end) {
+                final int n = in.read(buffer, 0, (int) Math.min(BUFFER_SIZE, end + 1L - offset));
+                if (n < 0) {
+                    throw new IOException("Incomplete range: " + (offset - pos) + " / " + (end + 1L - pos) + " bytes");
+                }
+                bb.clear();
+                bb.limit(n);
+                while (bb.hasRemaining()) {
+                    offset += _channel.write(bb, offset);
+                }
+                _progress.addAndGet(segment, n);
+            }
+            done = true;
+        } finally {
+            _activeMethods.remove(method);
+            if (!done) {
+                // do not consume the remaining response body:
+                method.abort();
+            }
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * Record the first failure and abort running methods
+     * @param ioe failure
+     */
+    private void fail(final IOException ioe) {
+        if (_failure.compareAndSet(null, ioe)) {
+            final HttpMethodBase[] methods;
+            synchronized (_activeMethods) {
+                methods = _activeMethods.toArray(new HttpMethodBase[_activeMethods.size()]);
+            }
+            for (HttpMethodBase method : methods) {
+                method.abort();
+            }
+        }
+    }
+
+    /**
+     * Return the If-Range validator: the strong ETag or the Last-Modified date
+     * as weak ETags must not be used in If-Range (RFC 7233)
+     * @return If-Range validator or null if undefined
+     */
+    private String getIfRange() {
+        return (_etag != null && !_etag.startsWith("W/")) ? _etag : _lastModified;
+    }
+
+    /**
+     * Weak comparison of the given entity tags (RFC 7232)
+     * @param etag expected entity tag
+     * @param other response entity tag (may be null)
+     * @return true if both tags match ignoring the weak prefix
+     */
+    private static boolean sameEntity(final String etag, final String other) {
+        return (other != null) && stripWeak(etag).equals(stripWeak(other));
+    }
+
+    /**
+     * Remove the weak prefix (W/) of the given entity tag
+     * @param etag entity tag
+     * @return opaque tag
+     */
+    private static String stripWeak(final String etag) {
+        return (etag.startsWith("W/")) ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Load the progress file if it matches the resource (url, length, validator)
+     * @return true if the download is resumed
+     */
+    private boolean resume() {
+        if (!_rangesFile.exists() || _partFile.length() != _length) {
+            return false;
+        }
+        final Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(_rangesFile);
+            props.load(in);
+
+            if (!_uri.toString().equals(props.getProperty(KEY_URL))
+                    || _length != Long.parseLong(props.getProperty(KEY_LENGTH, "-1"))
+                    || _segmentSize != Long.parseLong(props.getProperty(KEY_SEGMENT_SIZE, "-1"))) {
+                return false;
+            }
+            // resume only if the resource is unchanged:
+            if ((_etag != null) ? !_etag.equals(props.getProperty(KEY_ETAG))
+                    : (_lastModified == null || !_lastModified.equals(props.getProperty(KEY_LAST_MODIFIED)))) {
+                return false;
+            }
+            final String[] progress = props.getProperty(KEY_PROGRESS, "").split(",");
+            if (progress.length != _progress.length()) {
+                return false;
+            }
+            long done = 0L;
+            for (int i = 0; i < progress.length; i++) {
+                final long n = Long.parseLong(progress[i]);
+                if (n < 0L || n > _segmentSize) {
+                    return false;
+                }
+                _progress.set(i, n);
+                done += n;
+            }
+            _logger.info("resuming download [{}]: {} / {} bytes", _uri, done, _length);
+            return true;
+        } catch (IOException ioe) {
+            _logger.debug("unable to read the progress file [{}]", _rangesFile, ioe);
+        } catch (NumberFormatException nfe) {
+            _logger.debug("invalid progress file [{}]", _rangesFile, nfe);
+        } finally {
+            FileUtils.closeStream(in);
+        }
+        return false;
+    }
+
+    /**
+     * Save the progress file (written data is forced to disk first)
+     */
+    private synchronized void saveProgress() {
+        final Properties props = new Properties();
+        props.setProperty(KEY_URL, _uri.toString());
+        props.setProperty(KEY_LENGTH, Long.toString(_length));
+        if (_etag != null) {
+            props.setProperty(KEY_ETAG, _etag);
+        }
+        if (_lastModified != null) {
+            props.setProperty(KEY_LAST_MODIFIED, _lastModified);
+        }
+        props.setProperty(KEY_SEGMENT_SIZE, Long.toString(_segmentSize));
+
+        final StringBuilder sb = new StringBuilder(8 * _progress.length());
+        for (int i = 0; i < _progress.length(); i++) {
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append(_progress.get(i));
+        }
+        props.setProperty(KEY_PROGRESS, sb.toString());
+
+        final File tmpFile = new File(_rangesFile.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            _channel.force(false);
+
+            out = new FileOutputStream(tmpFile);
+            props.store(out, null);
+            out.close();
+            out = null;
+
+            FileUtils.renameFile(tmpFile.getAbsolutePath(), _rangesFile.getAbsolutePath(), true);
+        } catch (IOException ioe) {
+            _logger.info("unable to save the progress file [{}]", _rangesFile, ioe);
+        } finally {
+            FileUtils.closeStream(out);
+        }
+    }
+
+    private static String getHeader(final HttpMethodBase method, final String name) {
+        final Header header = method.getResponseHeader(name);
+        return (header != null) ? header.getValue() : null;
+    }
+
+    /**
+     * Exception thrown when the resource changed since the download started (If-Range mismatch)
+     */
+    private static final class ResourceChangedException extends IOException {
+
+        /** serial UID for Serializable interface */
+        private static final long serialVersionUID = 1L;
+
+        ResourceChangedException(final String message) {
+            super(message);
+        }
+    }
+}
@@ -31,15 +31,20 @@ import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * Generic Stream processor
+ * Generic Stream processor used to consume HTTP responses (streaming: the response is never fully held in memory).
+ * Use ChannelProcessor to consume a ReadableByteChannel or FileStreamProcessor to save the response into a file.
  * @author Laurent BOURGES.
  */
-interface StreamProcessor {
+public interface StreamProcessor {
+
+    /** unknown content length */
+    public static final long UNKNOWN_LENGTH = -1L;
 
     /**
      * Process the given input stream and CLOSE it anyway (try/finally)
      * @param in input stream to process
+     * @param length content length in bytes (Content-Length header) to pre-size buffers or UNKNOWN_LENGTH
      * @throws IOException if any IO error occurs
      */
-    public void process(final InputStream in) throws IOException;
+    public void process(final InputStream in, final long length) throws IOException;
 }
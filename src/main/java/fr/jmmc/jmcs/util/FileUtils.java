@@ -30,6 +30,7 @@ package fr.jmmc.jmcs.util;
 import fr.jmmc.jmcs.data.MimeType;
 import fr.jmmc.jmcs.gui.component.StatusBar;
 import fr.jmmc.jmcs.network.http.Http;
+import fr.jmmc.jmcs.network.http.HttpCache;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
@@ -49,8 +50,10 @@ import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.channels.FileChannel;
+import java.util.Properties;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.lang.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -762,7 +765,13 @@ public final class FileUtils {
      * Warning: calling this method may block the current thread for long time (slow transfer or big file or timeout)
      * Please take care of using it properly using a cancellable SwingWorker (Cancellable background task)
      *
+     * The validators of the local copy (ETag / Last-Modified) are stored next to it ('.validators' file).
+     * If the local copy exists, has validators and the HTTP cache is enabled, it is revalidated (conditional request)
+     * and only replaced if the remote file changed; it is kept if the remote file can not be retrieved.
+     * Local copies without validators are used directly (no request).
+     *
      * @see fr.jmmc.jmcs.network.http.Http
+     * @see fr.jmmc.jmcs.network.http.HttpCache
      * @param remoteLocation remote location
      * @param parentDir destination directory
      * @param mimeType mime type to fix missing file extension
@@ -789,22 +798,83 @@ public final class FileUtils {
         final File name = mimeType.checkFileExtension(new File(fileName));
 
         final File localFile = new File(parentDir, name.getName());
+        final File validatorsFile = new File(parentDir, localFile.getName() + ".validators");
 
         if (!localFile.exists()) {
             StatusBar.show("downloading file: " + remoteLocation + " ...");
 
-            if (!Http.download(new URI(remoteLocation), localFile, false)) {
+            final Properties validators = new Properties();
+            if (Http.downloadIfModified(new URI(remoteLocation), localFile, validators) != HttpStatus.SC_OK) {
                 // http status != 200
                 return null;
             }
+            saveProperties(validatorsFile, validators);
+        } else if (HttpCache.isEnabled() && validatorsFile.isFile()) {
+            // revalidate the local copy (304 Not Modified costs only a round-trip):
+            final Properties validators = loadProperties(validatorsFile);
+            final File partFile = new File(parentDir, localFile.getName() + ".part");
+            try {
+                final int status = Http.downloadIfModified(new URI(remoteLocation), partFile, validators);
+                if (status == HttpStatus.SC_OK) {
+                    renameFile(partFile.getAbsolutePath(), localFile.getAbsolutePath(), true);
+                    saveProperties(validatorsFile, validators);
+                } else if (status == HttpStatus.SC_NOT_MODIFIED) {
+                    _logger.debug("Use local copy '{}', not modified '{}'", localFile, remoteLocation);
+                } else {
+                    _logger.info("Use local copy '{}', unable to revalidate '{}'", localFile, remoteLocation);
+                }
+            } catch (IOException ioe) {
+                _logger.info("Use local copy '{}', unable to revalidate '{}'", localFile, remoteLocation, ioe);
+                partFile.delete();
+            }
         } else {
-            // TODO: use HEAD HTTP method to check remote file date / checksum ...
             _logger.info("Use local copy '{}', skip downloading '{}'", localFile, remoteLocation);
         }
 
         return localFile;
     }
 
+    /**
+     * Load the given properties file
+     * @param file properties file
+     * @return properties (empty if the file can not be read)
+     */
+    private static Properties loadProperties(final File file) {
+        final Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            props.load(in);
+        } catch (IOException ioe) {
+            _logger.debug("unable to read '{}'", file, ioe);
+            props.clear();
+        } finally {
+            closeStream(in);
+        }
+        return props;
+    }
+
+    /**
+     * Save the given properties into the given file or delete it if the properties are empty
+     * @param file properties file
+     * @param props properties to save
+     */
+    private static void saveProperties(final File file, final Properties props) {
+        if (props.isEmpty()) {
+            file.delete();
+            return;
+        }
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            props.store(out, null);
+        } catch (IOException ioe) {
+            _logger.info("unable to write '{}'", file, ioe);
+        } finally {
+            closeStream(out);
+        }
+    }
+
     /**
      * Returns the path of folder containing preferences files, as this varies
      * across different execution platforms.
@@ -29,15 +29,26 @@ package fr.jmmc.jmcs.util;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import fr.jmmc.jmcs.util.concurrent.IntRangeBody;
+import fr.jmmc.jmcs.util.concurrent.ParallelJobExecutor;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +65,35 @@ public final class StatUtils {
     private final static int SUPER_SAMPLING = 1;
     /** number of samples */
     public final static int N_SAMPLES = Integer.getInteger("StatsUtils.samples", 1024 * SUPER_SAMPLING);
+    /** fixed random seed (StatsUtils.seed property) or null */
+    private final static Long FIXED_SEED = Long.getLong("StatsUtils.seed");
+    /** random seed (random by default) to get reproducible distributions */
+    private final static long SEED = (FIXED_SEED != null) ? FIXED_SEED.longValue() : new Random().nextLong();
+    /** true to use the distribution cache file (default); disabled if a seed is given
+    (cached distributions come from other seeds so results would not be reproducible) */
+    private final static boolean USE_CACHE_FILE = (FIXED_SEED == null)
+            && !"false".equalsIgnoreCase(System.getProperty("StatsUtils.cache", "true"));
+    /** system property to define the distribution cache directory (platform caches directory by default) */
+    final static String PROPERTY_CACHE_DIR = "StatsUtils.cacheDir";
+    /** distribution cache file prefix */
+    private final static String CACHE_FILE_PREFIX = "fr.jmmc.jmcs.statutils.";
+    /** distribution cache magic number ('JMSD') */
+    private final static int CACHE_MAGIC = 0x4A4D5344;
+    /** distribution cache format version (to increment if the distribution generation changes) */
+    private final static int CACHE_VERSION = 1;
+    /** distribution cache header size (magic, version, N_SAMPLES, NUM_ANGLES, count, thresholds, crc32) */
+    private final static int CACHE_HEADER_SIZE = 48;
+    /** job name to create distributions */
+    private final static String JOB_CREATE = "ComplexDistribution.create";
+    /** job names for parallel array statistics */
+    private final static String JOB_MIN = "StatUtils.min";
+    private final static String JOB_MAX = "StatUtils.max";
+    private final static String JOB_MEAN = "StatUtils.mean";
+    private final static String JOB_MOMENTS = "StatUtils.moments";
+    /** chunk size for array statistics (fixed so results do not depend on the number of threads) */
+    private final static int CHUNK_SIZE = 1 << 16;
+    /** minimum array length to compute array statistics in parallel */
+    private final static int PARALLEL_THRESHOLD = Integer.getInteger("StatsUtils.parallelThreshold", 1 << 20);
 
     /** max error on squared mean / variance */
     private final static double GOOD_THRESHOLD = 1e-2;
@@ -67,29 +107,60 @@ public final class StatUtils {
 
     /** initial cache size = number of baselines (15 for 6 telescopes) */
     private final static int INITIAL_CAPACITY = 15;
+    /** max number of cursors */
+    private final static int MAX_CURSORS = 64;
+    /** number of cursors (power of 2 &gt;= 2 x available processors) */
+    private final static int CURSORS;
+    /** padding between cursors (16 x 8 bytes = 128 bytes) to avoid false sharing */
+    private final static int CURSOR_PAD = 16;
     /** singleton */
-    private static StatUtils INSTANCE = null;
+    private static volatile StatUtils INSTANCE = null;
+
+    static {
+        final int max = Math.min(MAX_CURSORS, 2 * JVMUtils.availableProcessors());
+        int n = 1;
+        while (n < max) {
+            n <<= 1;
+        }
+        CURSORS = n;
+    }
 
     /**
      * Return singleton (lazy)
      * @return singleton
      */
-    public synchronized static StatUtils getInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = new StatUtils();
+    public static StatUtils getInstance() {
+        StatUtils instance = INSTANCE;
+        if (instance == null) {
+            synchronized (StatUtils.class) {
+                instance = INSTANCE;
+                if (instance == null) {
+                    instance = new StatUtils();
+                    INSTANCE = instance;
+                }
+            }
         }
-        return INSTANCE;
+        return instance;
     }
 
     /* members */
-    /** current index in the distribution cache */
-    private int current = 0;
-    /** cached distributions */
+    /** Parallel Job executor (thread pool) */
+    private final ParallelJobExecutor jobExecutor = ParallelJobExecutor.getInstance();
+    /** per-thread cursors (padded) in the distribution cache */
+    private final AtomicLongArray cursors = new AtomicLongArray(CURSORS * CURSOR_PAD);
+    /** cached distributions (modified by prepare) */
     private final ArrayList<ComplexDistribution> cache;
+    /** immutable snapshot of the cached distributions (lock-free reads) */
+    private volatile ComplexDistribution[] distributions = new ComplexDistribution[0];
 
     private StatUtils() {
         this.cache = new ArrayList<ComplexDistribution>(INITIAL_CAPACITY);
         prepare(INITIAL_CAPACITY);
+
+        // spread cursors over distributions so threads start with different ones:
+        for (int i = 0; i < CURSORS; i++) {
+            cursors.set(i * CURSOR_PAD, (long) i * INITIAL_CAPACITY / CURSORS);
+        }
     }
 
     public synchronized void prepare(final int count) {
@@ -98,19 +169,235 @@ public final class StatUtils {
             logger.info("prepare: {} needed distributions ({} samples)", needed, N_SAMPLES);
             final long start = System.nanoTime();
 
-            ComplexDistribution.create(needed, cache);
+            final ArrayList<ComplexDistribution> distributions = new ArrayList<ComplexDistribution>(needed);
+
+            final File cacheFile = (USE_CACHE_FILE) ? getCacheFile() : null;
+            if (cacheFile != null) {
+                // reuse qualified distributions stored by previous runs:
+                loadDistributions(cacheFile, cache.size(), needed, distributions);
+            }
+            final int loaded = distributions.size();
+
+            if (loaded < needed) {
+                final ArrayList<ComplexDistribution> created = new ArrayList<ComplexDistribution>(needed - loaded);
+                ComplexDistribution.create(needed - loaded, created);
+                distributions.addAll(created);
+            }
+            cache.addAll(distributions);
+            // publish the new snapshot:
+            this.distributions = cache.toArray(new ComplexDistribution[cache.size()]);
+
+            if (cacheFile != null && loaded < needed) {
+                storeDistributions(cacheFile, cache);
+            }
 
             logger.info("prepare done: {} ms.", 1e-6d * (System.nanoTime() - start));
         }
     }
 
-    public synchronized ComplexDistribution get() {
-        final int idx = current;
-        final ComplexDistribution distrib = cache.get(idx);
+    /**
+     * Return the distribution cache file (StatsUtils.cacheDir property or platform caches directory)
+     * @return distribution cache file
+     */
+    static File getCacheFile() {
+        final String dir = System.getProperty(PROPERTY_CACHE_DIR);
+        return new File((dir != null) ? dir : FileUtils.getPlatformCachesPath(), CACHE_FILE_PREFIX + N_SAMPLES + ".bin");
+    }
+
+    /**
+     * Load up to max distributions from the given cache file (read in a heap buffer, no mapping kept open) starting at the given position.
+     * The file is ignored if its header (version, N_SAMPLES, thresholds) does not match or if its checksum is wrong.
+     *
+     * @param file cache file
+     * @param from first distribution to load
+     * @param max maximum number of distributions to load
+     * @param distributions list to add loaded distributions to
+     * @return number of loaded distributions
+     */
+    static int loadDistributions(final File file, final int from, final int max, final List<ComplexDistribution> distributions) {
+        if (!file.isFile()) {
+            return 0;
+        }
+        final long recordSize = 8L * (3 + 2 * N_SAMPLES);
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            final FileChannel channel = in.getChannel();
+            final long size = channel.size();
+            if (size < CACHE_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                logger.info("invalid distribution cache [{}]: bad size", file);
+                return 0;
+            }
+            // values are copied anyway: read the file in the heap (no mapping blocking its later replacement):
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    logger.info("ignoring distribution cache [{}]: truncated file", file);
+                    return 0;
+                }
+            }
+            buffer.flip();
+
+            // header:
+            final int count = buffer.getInt(16);
+            if (buffer.getInt(0) != CACHE_MAGIC || buffer.getInt(4) != CACHE_VERSION
+                    || buffer.getInt(8) != N_SAMPLES || buffer.getInt(12) != ComplexDistribution.NUM_ANGLES
+                    || buffer.getDouble(24) != GOOD_THRESHOLD || buffer.getDouble(32) != QUALITY_THRESHOLD
+                    || count < 0 || size != CACHE_HEADER_SIZE + count * recordSize) {
+                logger.info("ignoring distribution cache [{}]: incompatible or truncated file", file);
+                return 0;
+            }
+            buffer.position(CACHE_HEADER_SIZE);
+            final CRC32 crc = new CRC32();
+            crc.update(buffer);
+            if (buffer.getLong(40) != crc.getValue()) {
+                logger.info("ignoring distribution cache [{}]: bad checksum", file);
+                return 0;
+            }
+
+            final int n = Math.min(max, count - from);
+            final ArrayList<ComplexDistribution> loaded = new ArrayList<ComplexDistribution>(Math.max(0, n));
+
+            for (int i = 0; i < n; i++) {
+                buffer.position((int) (CACHE_HEADER_SIZE + (from + i) * recordSize));
+                final DoubleBuffer values = buffer.asDoubleBuffer();
+
+                final ComplexDistribution d = new ComplexDistribution();
+                values.get(d.qualityMoments);
+                values.get(d.samples[0]);
+                values.get(d.samples[1]);
+
+                if (!(d.qualityMoments[2] < GOOD_THRESHOLD)) {
+                    logger.info("ignoring distribution cache [{}]: bad distribution quality", file);
+                    return 0;
+                }
+                loaded.add(d);
+            }
+            distributions.addAll(loaded);
+
+            logger.info("loaded {} distributions from [{}]", loaded.size(), file);
+            return loaded.size();
+
+        } catch (IOException ioe) {
+            logger.info("unable to read the distribution cache [{}]", file, ioe);
+        } finally {
+            FileUtils.closeStream(in);
+        }
+        return 0;
+    }
+
+    /**
+     * Store the given distributions in the cache file (best effort)
+     *
+     * @param file cache file
+     * @param distributions distributions to store
+     */
+    static void storeDistributions(final File file, final List<ComplexDistribution> distributions) {
+        final int count = distributions.size();
+        final ByteBuffer buffer = ByteBuffer.allocate(CACHE_HEADER_SIZE + count * 8 * (3 + 2 * N_SAMPLES));
+
+        buffer.position(CACHE_HEADER_SIZE);
+        final DoubleBuffer values = buffer.asDoubleBuffer();
+        for (ComplexDistribution d : distributions) {
+            values.put(d.qualityMoments);
+            values.put(d.samples[0]);
+            values.put(d.samples[1]);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer);
+
+        buffer.putInt(0, CACHE_MAGIC);
+        buffer.putInt(4, CACHE_VERSION);
+        buffer.putInt(8, N_SAMPLES);
+        buffer.putInt(12, ComplexDistribution.NUM_ANGLES);
+        buffer.putInt(16, count);
+        buffer.putDouble(24, GOOD_THRESHOLD);
+        buffer.putDouble(32, QUALITY_THRESHOLD);
+        buffer.putLong(40, crc.getValue());
+        buffer.rewind();
+
+        FileOutputStream out = null;
+        try {
+            final File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                logger.info("unable to create the directory [{}]", dir);
+                return;
+            }
+            // write a temporary file then rename it to never read a partial file:
+            final File tmpFile = new File(dir, file.getName() + ".tmp");
+            out = new FileOutputStream(tmpFile);
+            final FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            out.close();
+            out = null;
+
+            FileUtils.renameFile(tmpFile.getAbsolutePath(), file.getAbsolutePath(), true);
+
+            logger.info("stored {} distributions in [{}]", count, file);
+        } catch (IOException ioe) {
+            logger.info("unable to write the distribution cache [{}]", file, ioe);
+        } finally {
+            FileUtils.closeStream(out);
+        }
+    }
+
+    /**
+     * Return the next distribution (round-robin) without locking:
+     * each job worker thread (see ParallelJobExecutor.currentThreadIndex) uses its own cursor,
+     * other threads use cursors chosen by their thread id
+     * @return next distribution
+     */
+    public ComplexDistribution get() {
+        final ComplexDistribution[] distribs = this.distributions;
+        final long pos = cursors.getAndIncrement(cursorIndex());
+        return distribs[(int) (pos % distribs.length)];
+    }
+
+    /**
+     * Return the next n distributions (round-robin) without locking
+     * @param n number of distributions
+     * @return new array of n distributions
+     */
+    public ComplexDistribution[] get(final int n) {
+        final ComplexDistribution[] result = new ComplexDistribution[n];
+        get(result);
+        return result;
+    }
 
-        this.current = (idx + 1) % cache.size();
+    /**
+     * Fill the given array with the next distributions (round-robin) without locking
+     * @param result array to fill
+     */
+    public void get(final ComplexDistribution[] result) {
+        final ComplexDistribution[] distribs = this.distributions;
+        final int len = distribs.length;
+        final int n = result.length;
+
+        int idx = (int) (cursors.getAndAdd(cursorIndex(), n) % len);
+        for (int i = 0; i < n; i++) {
+            result[i] = distribs[idx];
+            if (++idx == len) {
+                idx = 0;
+            }
+        }
+    }
 
-        return distrib;
+    /**
+     * @return cursor index of the current thread
+     */
+    private int cursorIndex() {
+        if (jobExecutor.isWorkerThread()) {
+            return ParallelJobExecutor.currentThreadIndex(CURSORS) * CURSOR_PAD;
+        }
+        // mix thread id bits (murmur3 finalizer):
+        long h = Thread.currentThread().getId();
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (((int) h) & (CURSORS - 1)) * CURSOR_PAD;
     }
 
     public static final class ComplexDistribution {
@@ -120,7 +407,8 @@ public final class StatUtils {
 
         private final static double[][] ANGLES_COS_SIN;
 
-        private static int countIteration = 0;
+        /** number of create() calls */
+        private static long countCreate = 0L;
 
         static {
             logger.debug("N_SAMPLES: {}", N_SAMPLES);
@@ -175,32 +463,76 @@ public final class StatUtils {
             return "ComplexDistribution{" + "numIter=" + numIter + " quality=" + qualityMoments[2] + '}';
         }
 
-        private void generate(final Random random) {
-            this.numIter = countIteration++;
+        private void generate(final int index, final SplittableRandom random) {
+            this.numIter = index;
 
             final double[] distRe = this.samples[0];
             final double[] distIm = this.samples[1];
 
+            double x, y, r;
             // bivariate distribution (complex normal):
             for (int n = 0; n < N_SAMPLES; n++) {
-                // generate nth sample:
-                distRe[n] = random.nextGaussian();
-                distIm[n] = random.nextGaussian();
+                // generate nth sample (polar method gives 2 independent gaussian values):
+                do {
+                    x = 2.0 * random.nextDouble() - 1.0;
+                    y = 2.0 * random.nextDouble() - 1.0;
+                    r = x * x + y * y;
+                } while (r >= 1.0 || r == 0.0);
+
+                r = Math.sqrt(-2.0 * Math.log(r) / r);
+                distRe[n] = x * r;
+                distIm[n] = y * r;
             }
         }
 
+        /**
+         * Return the random generator of the given candidate (independent stream depending only on the seed and index)
+         * @param seed random seed
+         * @param index candidate index
+         * @return random generator
+         */
+        private static SplittableRandom random(final long seed, final long index) {
+            // mix seed and index bits (murmur3 finalizer):
+            long h = seed + index * 0x9e3779b97f4a7c15L;
+            h ^= (h >>> 33);
+            h *= 0xff51afd7ed558ccdL;
+            h ^= (h >>> 33);
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= (h >>> 33);
+            return new SplittableRandom(h);
+        }
+
         public static void create(final int nDistribs, final ArrayList<ComplexDistribution> distributions) {
-            int prevIter = countIteration;
+            create(nDistribs, distributions, nextSeed());
+        }
 
-            /* create a new random generator to have different seed (single thread) */
-            final Random random = new Random();
+        /**
+         * Return the seed of the next create() call (derived from SEED so the sequence is reproducible)
+         * @return random seed
+         */
+        private static synchronized long nextSeed() {
+            return SEED + 0x632be59bd9b4e019L * (countCreate++);
+        }
+
+        /**
+         * Create the given number of good distributions (best quality).
+         * Candidates are generated and tested in parallel (ParallelJobExecutor) using one random stream per
+         * candidate index so results only depend on the given seed (not on the number of threads).
+         *
+         * @param nDistribs number of distributions
+         * @param distributions list to fill (cleared first)
+         * @param seed random seed
+         */
+        public static void create(final int nDistribs, final ArrayList<ComplexDistribution> distributions, final long seed) {
+            final ParallelJobExecutor jobExecutor = ParallelJobExecutor.getInstance();
 
             final int MIN_ITER = 5;
             final int MAX_ITER = 25;
             final int N = nDistribs * 5;
 
             final ArrayList<ComplexDistribution> iterDistribs = new ArrayList<ComplexDistribution>(N);
-            ComplexDistribution d = new ComplexDistribution();
+            // pool of recycled candidates:
+            final ArrayDeque<ComplexDistribution> pool = new ArrayDeque<ComplexDistribution>(N);
 
             final Comparator<ComplexDistribution> cmpQual = new Comparator<ComplexDistribution>() {
                 @Override
@@ -211,6 +543,11 @@ public final class StatUtils {
 
             final long start = System.nanoTime();
 
+            // next candidate index:
+            long index = 0L;
+            // estimated acceptance ratio:
+            double acceptance = 0.5;
+
             int i = 1;
             double minq = Double.MAX_VALUE;
             double maxq = Double.MAX_VALUE;
@@ -219,12 +556,46 @@ public final class StatUtils {
             do {
                 // Iteration: prepare good distributions (first quality pass)
                 do {
-                    d.generate(random);
-
-                    if (d.test()) {
-                        iterDistribs.add(d);
-                        d = new ComplexDistribution(); // TODO: reuse instances
+                    final int needed = N - iterDistribs.size();
+                    final int batch = Math.max((int) Math.ceil(needed / acceptance), jobExecutor.getMaxParallelJob());
+
+                    final ComplexDistribution[] candidates = new ComplexDistribution[batch];
+                    final boolean[] goods = new boolean[batch];
+                    for (int k = 0; k < batch; k++) {
+                        final ComplexDistribution d = pool.poll();
+                        candidates[k] = (d != null) ? d : new ComplexDistribution();
+                    }
+                    final long first = index;
+
+                    // generate and test candidates in parallel:
+                    jobExecutor.parallelFor(JOB_CREATE, 0, batch, 1, new IntRangeBody() {
+                        @Override
+                        public void run(final int lo, final int hi) {
+                            for (int k = lo; k < hi; k++) {
+                                candidates[k].generate((int) (first + k), random(seed, first + k));
+                                goods[k] = candidates[k].test();
+                            }
+                        }
+                    });
+
+                    // accept good candidates in index order (deterministic):
+                    int k = 0;
+                    int accepted = 0;
+                    for (; k < batch && iterDistribs.size() < N; k++) {
+                        if (goods[k]) {
+                            iterDistribs.add(candidates[k]);
+                            accepted++;
+                        } else {
+                            pool.add(candidates[k]);
+                        }
+                    }
+                    // next candidate follows the last tested one (unused candidates are recycled):
+                    index += k;
+                    for (; k < batch; k++) {
+                        pool.add(candidates[k]);
                     }
+                    acceptance = Math.max(0.05, 0.5 * (acceptance + ((double) accepted) / batch));
+
                 } while (iterDistribs.size() < N);
 
                 // Final scoring:
@@ -259,7 +630,10 @@ public final class StatUtils {
                     }
                 }
 
-                // TODO: recycle
+                // recycle worst distribs:
+                for (int j = nDistribs, size = iterDistribs.size(); j < size; j++) {
+                    pool.add(iterDistribs.get(j));
+                }
                 iterDistribs.clear();
                 // keep best distribs:
                 iterDistribs.addAll(distributions);
@@ -271,19 +645,100 @@ public final class StatUtils {
             logger.info("distributions quality: ({} - {})", minq, maxq);
 
             // log test details:
-            for (i = 0; i < nDistribs; i++) {
-                d = distributions.get(i);
-                d.test(null, true);
+            for (int j = 0; j < nDistribs; j++) {
+                distributions.get(j).test(null, true);
             }
 
-            logger.info("done: {} ms ({} iterations).", 1e-6d * (System.nanoTime() - start), (countIteration - prevIter));
+            logger.info("done: {} ms ({} iterations, {} candidates).", 1e-6d * (System.nanoTime() - start), i, index);
         }
 
-        private boolean test() {
-            return test(null, false);
+        boolean test() {
+            return score();
         }
 
-        private boolean test(final double[] data, final boolean log) {
+        /**
+         * Fused quality test (same quality moments as test(null, false) up to rounding errors):
+         * amplitude samples are linear in the distribution samples (re, im) so a single pass computes
+         * the raw moments (sums of re, im, re^2, re.im, im^2) then all angles are evaluated in closed form.
+         * @return true if the distribution is good
+         */
+        boolean score() {
+            final double snr = 100.0;
+
+            final double ref_amp = 0.5; // middle of [0-1]
+            final double err_amp = ref_amp / snr;
+
+            final double err_dist = err_amp; // use circular symetric error
+
+            final double sq_amp = ref_amp * ref_amp;
+            final double var_amp = err_amp * err_amp;
+
+            final double[] distRe = this.samples[0];
+            final double[] distIm = this.samples[1];
+
+            // single pass, branch-free: raw moments
+            double s_re = 0.0, s_im = 0.0, s_re_re = 0.0, s_re_im = 0.0, s_im_im = 0.0;
+
+            for (int n = 0; n < N_SAMPLES; n++) {
+                final double re = distRe[n];
+                final double im = distIm[n];
+                s_re += re;
+                s_im += im;
+                s_re_re += re * re;
+                s_re_im += re * im;
+                s_im_im += im * im;
+            }
+
+            // numeric mean of the distribution samples:
+            final double mean_re = SAMPLING_FACTOR_MEAN * s_re;
+            final double mean_im = SAMPLING_FACTOR_MEAN * s_im;
+
+            double mean_sq_diff_acc = 0.0, var_diff_acc = 0.0;
+
+            for (int i = 0; i < NUM_ANGLES; i++) {
+                final double cos_phi = ANGLES_COS_SIN[i][0];
+                final double sin_phi = ANGLES_COS_SIN[i][1];
+
+                // true average on averaged complex distribution:
+                final double avg_re = ref_amp * cos_phi + err_dist * mean_re;
+                final double avg_im = ref_amp * sin_phi + err_dist * mean_im;
+
+                // mean(norm):
+                final double mean_sq = avg_re * avg_re + avg_im * avg_im;
+
+                // amplitude difference: sample - ref_amp = err_dist * (re * cos_phi + im * sin_phi)
+                final double sum_diff = err_dist * (cos_phi * s_re + sin_phi * s_im);
+                final double sum_diff_square = (err_dist * err_dist)
+                        * (cos_phi * cos_phi * s_re_re + 2.0 * cos_phi * sin_phi * s_re_im + sin_phi * sin_phi * s_im_im);
+
+                // variance on amplitude:
+                final double variance = SAMPLING_FACTOR_VARIANCE * (sum_diff_square - (SAMPLING_FACTOR_MEAN * (sum_diff * sum_diff)));
+
+                // sum of relative delta:
+                mean_sq_diff_acc += Math.abs(mean_sq / sq_amp - 1.0); // versus 1 (normal law)
+                var_diff_acc += Math.abs(variance / var_amp - 1.0); // versus 1 (normal law)
+            }
+
+            final double diff_mean_sq = mean_sq_diff_acc / NUM_ANGLES;
+            final double diff_var = var_diff_acc / NUM_ANGLES;
+
+            // set quality moments:
+            this.qualityMoments[0] = diff_mean_sq; // mean quality
+            this.qualityMoments[1] = diff_var; // var quality
+            // overall quality = sum(quality moments)
+            final double score = diff_mean_sq + diff_var;
+            this.qualityMoments[2] = score;
+
+            return (score < GOOD_THRESHOLD);
+        }
+
+        /**
+         * Reference quality test (2 passes per angle) also used to log or dump test details
+         * @param data optional array to dump amplitude samples (per angle) or null
+         * @param log true to log test details
+         * @return true if the distribution is good
+         */
+        boolean test(final double[] data, final boolean log) {
             final double snr = 100.0;
 
             final double ref_amp = 0.5; // middle of [0-1]
@@ -428,9 +883,42 @@ public final class StatUtils {
     }
 
     public static double min(final double[] array) {
+        final int length = array.length;
+        if (length <= CHUNK_SIZE) {
+            // single chunk: plain loop
+            return min(array, 0, length);
+        }
+        final int nChunks = chunks(length);
+        final double[] mins = new double[nChunks];
+
+        forEachChunk(JOB_MIN, length, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                for (int c = lo; c < hi; c++) {
+                    mins[c] = min(array, chunkStart(c), chunkEnd(c, length));
+                }
+            }
+        });
+        double min = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < nChunks; c++) {
+            if (mins[c] < min) {
+                min = mins[c];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Return the minimum of the given array range
+     * @param array values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return minimum value
+     */
+    private static double min(final double[] array, final int from, final int to) {
         double min = Double.POSITIVE_INFINITY;
 
-        for (int n = 0; n < array.length; n++) {
+        for (int n = from; n < to; n++) {
             if (array[n] < min) {
                 min = array[n];
             }
@@ -439,9 +927,42 @@ public final class StatUtils {
     }
 
     public static double max(final double[] array) {
+        final int length = array.length;
+        if (length <= CHUNK_SIZE) {
+            // single chunk: plain loop
+            return max(array, 0, length);
+        }
+        final int nChunks = chunks(length);
+        final double[] maxs = new double[nChunks];
+
+        forEachChunk(JOB_MAX, length, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                for (int c = lo; c < hi; c++) {
+                    maxs[c] = max(array, chunkStart(c), chunkEnd(c, length));
+                }
+            }
+        });
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < nChunks; c++) {
+            if (maxs[c] > max) {
+                max = maxs[c];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Return the maximum of the given array range
+     * @param array values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return maximum value
+     */
+    private static double max(final double[] array, final int from, final int to) {
         double max = Double.NEGATIVE_INFINITY;
 
-        for (int n = 0; n < array.length; n++) {
+        for (int n = from; n < to; n++) {
             if (array[n] > max) {
                 max = array[n];
             }
@@ -449,18 +970,96 @@ public final class StatUtils {
         return max;
     }
 
+    /**
+     * Return the mean of the given array (NaN values are ignored)
+     * @param array values
+     * @return mean value or 0.0 if no value
+     */
     public static double mean(final double[] array) {
-        double sample, sum = 0.0;
+        final int length = array.length;
+        if (length <= CHUNK_SIZE) {
+            // single chunk: plain loop without allocation
+            return meanChunk(array, 0, length, null, 0);
+        }
+        final int nChunks = chunks(length);
+        // per chunk: sum, compensation, count:
+        final double[] partials = new double[3 * nChunks];
+
+        forEachChunk(JOB_MEAN, length, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                for (int c = lo; c < hi; c++) {
+                    meanChunk(array, chunkStart(c), chunkEnd(c, length), partials, 3 * c);
+                }
+            }
+        });
+        final double[] acc = new double[2];
+        long ns = 0L;
+        for (int c = 0; c < nChunks; c++) {
+            sumCompensated(acc, partials[3 * c]);
+            sumCompensated(acc, partials[3 * c + 1]);
+            ns += (long) partials[3 * c + 2];
+        }
+        return (ns != 0L) ? ((acc[0] + acc[1]) / ns) : 0.0;
+    }
+
+    /**
+     * Compute the compensated sum of the given array range (NaN values are ignored)
+     * @param array values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param partials output [sum, compensation, count] at the given offset or null
+     * @param off offset in partials
+     * @return mean of this range (0.0 if no value) if partials is null
+     */
+    private static double meanChunk(final double[] array, final int from, final int to, final double[] partials, final int off) {
+        double sample, y, t;
+        // 2 interleaved kahan sums (even / odd indices) to hide latency:
+        double sum0 = 0.0, err0 = 0.0, sum1 = 0.0, err1 = 0.0;
         int ns = 0;
-        for (int n = 0; n < array.length; n++) {
+        int n = from;
+
+        for (; n < to - 1; n += 2) {
             sample = array[n];
-            // No Compensated-summation (double):
             if (!Double.isNaN(sample)) {
-                sum += sample;
+                y = sample - err0;
+                t = sum0 + y;
+                err0 = (t - sum0) - y;
+                sum0 = t;
+                ns++;
+            }
+            sample = array[n + 1];
+            if (!Double.isNaN(sample)) {
+                y = sample - err1;
+                t = sum1 + y;
+                err1 = (t - sum1) - y;
+                sum1 = t;
                 ns++;
             }
         }
-        return (ns != 0) ? (sum / ns) : 0.0;
+        if (n < to) {
+            sample = array[n];
+            if (!Double.isNaN(sample)) {
+                y = sample - err0;
+                t = sum0 + y;
+                err0 = (t - sum0) - y;
+                sum0 = t;
+                ns++;
+            }
+        }
+        // merge both chains (exact sum + rounding error):
+        final double sum = sum0 + sum1;
+        final double z = sum - sum0;
+        final double err = ((sum0 - (sum - z)) + (sum1 - z)) - (err0 + err1);
+
+        if (partials == null) {
+            // same result as merging a single chunk:
+            return (ns != 0) ? (sumCompensated(sum, err) / ns) : 0.0;
+        }
+        partials[off] = sum;
+        partials[off + 1] = err;
+        partials[off + 2] = ns;
+        return 0.0;
     }
 
     public static double[] moments(final double[] array) {
@@ -469,41 +1068,63 @@ public final class StatUtils {
         return moments;
     }
 
+    /**
+     * Compute the mean, variance, asymetry and kurtosis of the given array (2 passes: mean then central moments)
+     * @param array values
+     * @param moments output array [mean, variance, asymetry, kurtosis]
+     */
     public static void moments(final double[] array, final double[] moments) {
         final double mean = mean(array);
+        final int length = array.length;
 
-        double sample, diff;
-        double sum_diff = 0.0;
-        double sum_diff2 = 0.0;
+        final double sum_diff, sum_diff2, sum_diff3, sum_diff4;
 
-        for (int n = 0; n < array.length; n++) {
-            sample = array[n];
-            // Compensated-summation variant for better numeric precision:
-            diff = sample - mean;
-            sum_diff += diff;
-            sum_diff2 += diff * diff;
+        if (length <= CHUNK_SIZE) {
+            // single chunk: plain loop without allocation (sums stored in moments):
+            momentsChunk(array, 0, length, mean, null, 0, moments);
+            sum_diff = moments[0];
+            sum_diff2 = moments[1];
+            sum_diff3 = moments[2];
+            sum_diff4 = moments[3];
+        } else {
+            final int nChunks = chunks(length);
+            // per chunk: sums (and compensations) of diff, diff^2, diff^3, diff^4:
+            final double[] partials = new double[8 * nChunks];
+
+            forEachChunk(JOB_MOMENTS, length, new IntRangeBody() {
+                @Override
+                public void run(final int lo, final int hi) {
+                    for (int c = lo; c < hi; c++) {
+                        momentsChunk(array, chunkStart(c), chunkEnd(c, length), mean, partials, 8 * c, null);
+                    }
+                }
+            });
+            // merge chunks in order (bit-stable):
+            final double[] sums = new double[4];
+            final double[] acc = new double[2];
+            for (int k = 0; k < 4; k++) {
+                acc[0] = acc[1] = 0.0;
+                for (int c = 0; c < nChunks; c++) {
+                    sumCompensated(acc, partials[8 * c + 2 * k]);
+                    sumCompensated(acc, partials[8 * c + 2 * k + 1]);
+                }
+                sums[k] = acc[0] + acc[1];
+            }
+            sum_diff = sums[0];
+            sum_diff2 = sums[1];
+            sum_diff3 = sums[2];
+            sum_diff4 = sums[3];
         }
 
         // variance(norm):
         // note: this algorithm ensures correctness (stable) even if the mean used in diff is wrong !
-        final double variance = (sum_diff2 - (SAMPLING_FACTOR_MEAN * (sum_diff * sum_diff))) / (array.length - 1);
+        final double variance = (sum_diff2 - ((sum_diff * sum_diff) / length)) / (length - 1);
 
         final double stddev = Math.sqrt(variance);
 
         // Moments ordre 3 et 4:
-        double sum_diff3 = 0.0;
-        double sum_diff4 = 0.0;
-
-        for (int n = 0; n < array.length; n++) {
-            sample = array[n];
-            // Compensated-summation variant for better numeric precision:
-            diff = (sample - mean) / stddev;
-            sum_diff3 += diff * diff * diff;
-            sum_diff4 += diff * diff * diff * diff;
-        }
-
-        final double asymetry = sum_diff3 / array.length;
-        final double kurtosis = (sum_diff4 / array.length) - 3.0; // normalised
+        final double asymetry = sum_diff3 / (stddev * stddev * stddev) / length;
+        final double kurtosis = (sum_diff4 / (variance * variance) / length) - 3.0; // normalised
 
         // output:
         moments[0] = mean;
@@ -512,6 +1133,141 @@ public final class StatUtils {
         moments[3] = kurtosis;
     }
 
+    /**
+     * Compute the compensated sums of diff, diff^2, diff^3, diff^4 (diff = value - mean) of the given array range
+     * @param array values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param mean mean value
+     * @param partials output [sum, compensation] x 4 at the given offset or null
+     * @param off offset in partials
+     * @param sums output sums x 4 (compensation merged) if partials is null
+     */
+    private static void momentsChunk(final double[] array, final int from, final int to, final double mean,
+                                     final double[] partials, final int off, final double[] sums) {
+        double diff, diff2, y, t;
+        double s1 = 0.0, s2 = 0.0, s3 = 0.0, s4 = 0.0;
+        double e1 = 0.0, e2 = 0.0, e3 = 0.0, e4 = 0.0;
+
+        for (int n = from; n < to; n++) {
+            diff = array[n] - mean;
+            diff2 = diff * diff;
+
+            // kahan sums (4 independent chains):
+            y = diff - e1;
+            t = s1 + y;
+            e1 = (t - s1) - y;
+            s1 = t;
+
+            y = diff2 - e2;
+            t = s2 + y;
+            e2 = (t - s2) - y;
+            s2 = t;
+
+            y = diff2 * diff - e3;
+            t = s3 + y;
+            e3 = (t - s3) - y;
+            s3 = t;
+
+            y = diff2 * diff2 - e4;
+            t = s4 + y;
+            e4 = (t - s4) - y;
+            s4 = t;
+        }
+        if (partials == null) {
+            // same result as merging a single chunk:
+            sums[0] = sumCompensated(s1, -e1);
+            sums[1] = sumCompensated(s2, -e2);
+            sums[2] = sumCompensated(s3, -e3);
+            sums[3] = sumCompensated(s4, -e4);
+        } else {
+            partials[off] = s1;
+            partials[off + 1] = -e1;
+            partials[off + 2] = s2;
+            partials[off + 3] = -e2;
+            partials[off + 4] = s3;
+            partials[off + 5] = -e3;
+            partials[off + 6] = s4;
+            partials[off + 7] = -e4;
+        }
+    }
+
+    /**
+     * Return the number of chunks for the given array length
+     * @param length array length
+     * @return number of chunks
+     */
+    private static int chunks(final int length) {
+        return (int) ((length + (long) CHUNK_SIZE - 1L) / CHUNK_SIZE);
+    }
+
+    /**
+     * Return the start (inclusive) of the given chunk
+     * @param chunk chunk index
+     * @return chunk start
+     */
+    private static int chunkStart(final int chunk) {
+        return chunk * CHUNK_SIZE;
+    }
+
+    /**
+     * Return the end (exclusive) of the given chunk
+     * @param chunk chunk index
+     * @param length array length
+     * @return chunk end
+     */
+    private static int chunkEnd(final int chunk, final int length) {
+        return (int) Math.min((long) (chunk + 1) * CHUNK_SIZE, length);
+    }
+
+    /**
+     * Process all chunks of an array with the given length: in parallel (ParallelJobExecutor) if the array is large
+     * else in the current thread. Chunk boundaries are fixed (CHUNK_SIZE) and partial results are merged in chunk order
+     * so results do not depend on the number of threads.
+     * Note: arrays of a single chunk are processed by plain loops (no job nor partial results)
+     *
+     * @param jobName job name used when throwing an exception
+     * @param length array length
+     * @param body loop body called with chunk index ranges [lo; hi[
+     */
+    private static void forEachChunk(final String jobName, final int length, final IntRangeBody body) {
+        final int nChunks = chunks(length);
+        if (length >= PARALLEL_THRESHOLD) {
+            ParallelJobExecutor.getInstance().parallelFor(jobName, 0, nChunks, 1, body);
+        } else {
+            body.run(0, nChunks);
+        }
+    }
+
+    /**
+     * Return the compensated sum (Neumaier) of the given values ie the same result as adding them to an empty
+     * compensated sum (see sumCompensated(double[], double))
+     * @param a first value
+     * @param b second value
+     * @return a + b
+     */
+    private static double sumCompensated(final double a, final double b) {
+        final double t = a + b;
+        final double err = (Math.abs(a) >= Math.abs(b)) ? ((a - t) + b) : ((b - t) + a);
+        return t + err;
+    }
+
+    /**
+     * Add the given value to the compensated sum (Neumaier)
+     * @param acc compensated sum [sum, compensation]
+     * @param value value to add
+     */
+    private static void sumCompensated(final double[] acc, final double value) {
+        final double sum = acc[0];
+        final double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            acc[1] += (sum - t) + value;
+        } else {
+            acc[1] += (value - t) + sum;
+        }
+        acc[0] = t;
+    }
+
     // --- TEST ---
     public static void main(String[] args) throws IOException {
         final boolean TEST_SUM = false;
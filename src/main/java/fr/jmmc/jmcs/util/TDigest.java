@@ -0,0 +1,445 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile estimator (merging t-digest, Dunning &amp; Ertl) using bounded memory:
+ * values are buffered then sorted and merged into less than compression weighted centroids
+ * whose sizes follow the k2 scale function (log-odds: tiny centroids near the tails, so extreme percentiles stay accurate).
+ *
+ * Like WelfordVariance, this class is not thread-safe: use one instance per thread (or array chunk)
+ * then merge(TDigest) partial results. NaN values are ignored.
+ *
+ * see https://arxiv.org/abs/1902.04023
+ *
+ * @author agent
+ */
+public final class TDigest {
+
+    /** default compression (about 100 centroids: rank error &lt; 1e-3 at median, ~ 1e-5 at tails) */
+    public static final double DEFAULT_COMPRESSION = 200.0;
+    /** buffer size factor (relative to the centroid capacity) */
+    private static final int BUFFER_FACTOR = 8;
+    /** threshold to sort small ranges with insertion sort */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /* members */
+    /** compression (delta) */
+    private final double compression;
+    /** number of centroids */
+    private int nCentroids;
+    /** centroid means (sorted) */
+    private double[] means;
+    /** centroid weights */
+    private double[] weights;
+    /** merge output (swapped with means / weights) */
+    private double[] mergeMeans, mergeWeights;
+    /** number of buffered values */
+    private int nBuffered;
+    /** buffered values */
+    private final double[] bufMeans;
+    /** buffered weights */
+    private final double[] bufWeights;
+    /** true if the buffer contains weighted values (merged centroids) */
+    private boolean bufWeighted;
+    private long nSamples;
+    private double min, max;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression compression (delta &gt;= 10): higher values give more accurate quantiles using more memory
+     */
+    public TDigest(final double compression) {
+        if (!(compression >= 10.0)) {
+            throw new IllegalArgumentException("Invalid compression: " + compression);
+        }
+        this.compression = compression;
+        final int capacity = 2 * (int) Math.ceil(compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.mergeMeans = new double[capacity];
+        this.mergeWeights = new double[capacity];
+        this.bufMeans = new double[BUFFER_FACTOR * capacity];
+        this.bufWeights = new double[BUFFER_FACTOR * capacity];
+        reset();
+    }
+
+    public void reset() {
+        nCentroids = 0;
+        nBuffered = 0;
+        bufWeighted = false;
+        nSamples = 0L;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    public void add(final double x) {
+        if (x != x) {
+            return; // NaN
+        }
+        if (x < min) {
+            min = x;
+        }
+        if (x > max) {
+            max = x;
+        }
+        nSamples++;
+        if (nBuffered == bufMeans.length) {
+            compress();
+        }
+        bufMeans[nBuffered] = x;
+        bufWeights[nBuffered++] = 1.0;
+    }
+
+    /**
+     * Add the values[from; to[ (copied into the buffer by blocks)
+     * @param values array of values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     */
+    public void add(final double[] values, final int from, final int to) {
+        double lo = min, hi = max;
+        long n = 0L;
+
+        for (int i = from; i < to;) {
+            if (nBuffered == bufMeans.length) {
+                compress();
+            }
+            final int end = Math.min(to, i + bufMeans.length - nBuffered);
+            final int start = nBuffered;
+            int k = start;
+            for (; i < end; i++) {
+                final double x = values[i];
+                if (x == x) {
+                    bufMeans[k++] = x;
+                    lo = Math.min(lo, x);
+                    hi = Math.max(hi, x);
+                }
+            }
+            Arrays.fill(bufWeights, start, k, 1.0);
+            n += k - start;
+            nBuffered = k;
+        }
+        nSamples += n;
+        min = lo;
+        max = hi;
+    }
+
+    /**
+     * Merge the given partial result in this instance (the other instance is not modified)
+     * @param other partial result to merge
+     * @throws IllegalArgumentException if other is this instance
+     */
+    public void merge(final TDigest other) {
+        if (other == this) {
+            // its arrays would change while being read:
+            throw new IllegalArgumentException("Unable to merge a TDigest with itself");
+        }
+        if (other.nSamples == 0L) {
+            return;
+        }
+        for (int i = 0; i < other.nCentroids; i++) {
+            addWeighted(other.means[i], other.weights[i]);
+        }
+        for (int i = 0; i < other.nBuffered; i++) {
+            addWeighted(other.bufMeans[i], other.bufWeights[i]);
+        }
+        nSamples += other.nSamples;
+        if (other.min < min) {
+            min = other.min;
+        }
+        if (other.max > max) {
+            max = other.max;
+        }
+    }
+
+    private void addWeighted(final double x, final double w) {
+        if (nBuffered == bufMeans.length) {
+            compress();
+        }
+        bufMeans[nBuffered] = x;
+        bufWeights[nBuffered++] = w;
+        if (w != 1.0) {
+            bufWeighted = true;
+        }
+    }
+
+    /**
+     * Sort the buffered values and merge them with centroids (single pass, k2 scale function)
+     */
+    public void compress() {
+        if (nBuffered == 0) {
+            return;
+        }
+        if (bufWeighted) {
+            sort(bufMeans, bufWeights, 0, nBuffered - 1);
+        } else {
+            // unit weights: only values need sorting
+            Arrays.sort(bufMeans, 0, nBuffered);
+        }
+
+        double total = 0.0;
+        for (int i = 0; i < nCentroids; i++) {
+            total += weights[i];
+        }
+        for (int i = 0; i < nBuffered; i++) {
+            total += bufWeights[i];
+        }
+
+        // k2 normalization: k2(q) = delta / Z log(q / (1 - q)) with Z = 4 log(n / delta) + 24
+        final double norm = (4.0 * Math.log(Math.max(1.0, total / compression)) + 24.0) / compression;
+
+        final double[] cm = means, cw = weights, bm = bufMeans, bw = bufWeights;
+        double[] om = mergeMeans, ow = mergeWeights;
+        final int nc = nCentroids, nb = nBuffered;
+
+        int ic = 0, ib = 0, n = 0;
+        double curMean = 0.0, curWeight = 0.0;
+        // cumulated weight before the current centroid and its weight limit (k(q_limit) = k(q_left) + 1):
+        double wSoFar = 0.0;
+        double wLimit = 0.0;
+
+        while (ic < nc || ib < nb) {
+            final double x, w;
+            // merge both sorted sequences:
+            if (ib >= nb || (ic < nc && cm[ic] <= bm[ib])) {
+                x = cm[ic];
+                w = cw[ic++];
+            } else {
+                x = bm[ib];
+                w = bw[ib++];
+            }
+            if (curWeight == 0.0) {
+                curMean = x;
+                curWeight = w;
+            } else if (wSoFar + curWeight + w <= wLimit) {
+                curWeight += w;
+                curMean += (x - curMean) * w / curWeight;
+            } else {
+                if (n == om.length) {
+                    // should not happen (centroid count is bounded):
+                    om = Arrays.copyOf(om, 2 * n);
+                    ow = Arrays.copyOf(ow, 2 * n);
+                }
+                om[n] = curMean;
+                ow[n++] = curWeight;
+                wSoFar += curWeight;
+                wLimit = total * quantileLimit(wSoFar / total, norm);
+                curMean = x;
+                curWeight = w;
+            }
+        }
+        if (n == om.length) {
+            om = Arrays.copyOf(om, n + 1);
+            ow = Arrays.copyOf(ow, n + 1);
+        }
+        om[n] = curMean;
+        ow[n++] = curWeight;
+
+        // swap arrays:
+        mergeMeans = cm;
+        mergeWeights = cw;
+        means = om;
+        weights = ow;
+        nCentroids = n;
+        nBuffered = 0;
+        bufWeighted = false;
+    }
+
+    /**
+     * Return the upper quantile of a centroid starting at the given quantile: k2(q_limit) = k2(q) + 1
+     * @param q left quantile
+     * @param norm k2 normalization (Z / delta)
+     * @return upper quantile limit
+     */
+    private static double quantileLimit(final double q, final double norm) {
+        if (q <= 0.0) {
+            return 0.0; // singleton at min
+        }
+        if (q >= 1.0) {
+            return 1.0;
+        }
+        final double k = Math.log(q / (1.0 - q)) + norm;
+        return 1.0 / (1.0 + Math.exp(-k));
+    }
+
+    public long nSamples() {
+        return nSamples;
+    }
+
+    public double min() {
+        if (nSamples != 0L) {
+            return min;
+        }
+        return Double.NaN;
+    }
+
+    public double max() {
+        if (nSamples != 0L) {
+            return max;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * @return number of centroids (after compress)
+     */
+    public int centroids() {
+        compress();
+        return nCentroids;
+    }
+
+    /**
+     * Return the estimated value at the given quantile (interpolated between centroid centers, min and max)
+     * @param q quantile in [0; 1]
+     * @return estimated value or NaN if empty
+     */
+    public double quantile(final double q) {
+        if (!(q >= 0.0 && q <= 1.0)) {
+            throw new IllegalArgumentException("Invalid quantile: " + q);
+        }
+        if (nSamples == 0L) {
+            return Double.NaN;
+        }
+        compress();
+
+        final int n = nCentroids;
+        final double[] cm = means, cw = weights;
+        if (n == 1) {
+            return (q == 0.0) ? min : (q == 1.0) ? max : cm[0];
+        }
+        double total = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += cw[i];
+        }
+        final double index = q * total;
+
+        // left tail: between min and the first centroid center
+        double center = cw[0] / 2.0;
+        if (index <= center) {
+            return min + (cm[0] - min) * (index / center);
+        }
+        // right tail: between the last centroid center and max
+        if (index >= total - cw[n - 1] / 2.0) {
+            final double half = cw[n - 1] / 2.0;
+            return max - (max - cm[n - 1]) * ((total - index) / half);
+        }
+        for (int i = 0; i < n - 1; i++) {
+            final double next = center + (cw[i] + cw[i + 1]) / 2.0;
+            if (index <= next) {
+                return cm[i] + (cm[i + 1] - cm[i]) * ((index - center) / (next - center));
+            }
+            center = next;
+        }
+        return cm[n - 1];
+    }
+
+    public double median() {
+        return quantile(0.5);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + nSamples()
+                + ": min=" + min()
+                + " p50=" + quantile(0.5)
+                + " p90=" + quantile(0.9)
+                + " p99=" + quantile(0.99)
+                + " p99.9=" + quantile(0.999)
+                + " max=" + max()
+                + " (" + centroids() + " centroids)]";
+    }
+
+    /**
+     * Sort keys[lo; hi] and values in the same order (quick sort, median of 3 + insertion sort)
+     */
+    private static void sort(final double[] keys, final double[] values, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            final int mid = (lo + hi) >>> 1;
+            if (keys[mid] < keys[lo]) {
+                swap(keys, values, mid, lo);
+            }
+            if (keys[hi] < keys[lo]) {
+                swap(keys, values, hi, lo);
+            }
+            if (keys[hi] < keys[mid]) {
+                swap(keys, values, hi, mid);
+            }
+            final double pivot = keys[mid];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // recurse on the smaller part:
+            if (j - lo < hi - i) {
+                sort(keys, values, lo, j);
+                lo = i;
+            } else {
+                sort(keys, values, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            final double k = keys[i], v = values[i];
+            int j = i - 1;
+            while (j >= lo && keys[j] > k) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            values[j + 1] = v;
+        }
+    }
+
+    private static void swap(final double[] keys, final double[] values, final int i, final int j) {
+        final double k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        final double v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+    }
+}
@@ -6,12 +6,18 @@ package fr.jmmc.jmcs.util;
  *
  * see http://jonisalonen.com/2013/deriving-welfords-method-for-computing-variance/
  *
+ * Higher moments (skewness, kurtosis) use the Terriberry / Pebay updates and partial results
+ * (threads, array chunks) are combined with the parallel algorithm of Chan et al.
+ * see https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Higher-order_statistics
+ *
  * @author Sebastian Wild (wild@uwaterloo.ca)
  */
 public final class WelfordVariance {
 
     private long nSamples;
     private double min, max, mean, squaredError;
+    /** sums of the 3rd and 4th powers of the differences to the mean */
+    private double m3, m4;
 
     public WelfordVariance() {
         reset();
@@ -23,6 +29,8 @@ public final class WelfordVariance {
         max = Double.NEGATIVE_INFINITY;
         mean = 0.0;
         squaredError = 0.0;
+        m3 = 0.0;
+        m4 = 0.0;
     }
 
     public void copy(final WelfordVariance other) {
@@ -31,6 +39,8 @@ public final class WelfordVariance {
         max = other.max;
         mean = other.mean;
         squaredError = other.squaredError;
+        m3 = other.m3;
+        m4 = other.m4;
     }
 
     public void add(final double x) {
@@ -40,9 +50,100 @@ public final class WelfordVariance {
         if (x > max) {
             max = x;
         }
-        final double oldMean = mean;
-        mean += (x - mean) / (++nSamples);
-        squaredError += (x - mean) * (x - oldMean);
+        final long n1 = nSamples;
+        final double n = ++nSamples;
+        final double delta = x - mean;
+        final double deltaN = delta / n;
+        final double deltaN2 = deltaN * deltaN;
+        // (x - new mean) * (x - old mean):
+        final double term1 = delta * deltaN * n1;
+
+        mean += deltaN;
+        m4 += term1 * deltaN2 * (n * n - 3.0 * n + 3.0) + 6.0 * deltaN2 * squaredError - 4.0 * deltaN * m3;
+        m3 += term1 * deltaN * (n - 2.0) - 3.0 * deltaN * squaredError;
+        squaredError += term1;
+    }
+
+    /**
+     * Add the values[from; to[ (2 passes over the chunk: sum / min / max then central moments)
+     * @param values array of values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     */
+    public void add(final double[] values, final int from, final int to) {
+        final int len = to - from;
+        if (len <= 0) {
+            return;
+        }
+        // pass 1: independent accumulators (no division in the loop):
+        double sum = 0.0;
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            final double x = values[i];
+            sum += x;
+            lo = Math.min(lo, x);
+            hi = Math.max(hi, x);
+        }
+        final double chunkMean = sum / len;
+
+        // pass 2: central moments of the chunk:
+        double s2 = 0.0, s3 = 0.0, s4 = 0.0;
+        for (int i = from; i < to; i++) {
+            final double d = values[i] - chunkMean;
+            final double d2 = d * d;
+            s2 += d2;
+            s3 += d2 * d;
+            s4 += d2 * d2;
+        }
+        merge(len, lo, hi, chunkMean, s2, s3, s4);
+    }
+
+    /**
+     * Merge the given partial result in this instance (Chan et al.)
+     * @param other partial result to merge
+     */
+    public void merge(final WelfordVariance other) {
+        merge(other.nSamples, other.min, other.max, other.mean, other.squaredError, other.m3, other.m4);
+    }
+
+    private void merge(final long nB, final double minB, final double maxB, final double meanB,
+                       final double m2B, final double m3B, final double m4B) {
+        if (nB == 0L) {
+            return;
+        }
+        if (minB < min) {
+            min = minB;
+        }
+        if (maxB > max) {
+            max = maxB;
+        }
+        final long nA = nSamples;
+        if (nA == 0L) {
+            nSamples = nB;
+            mean = meanB;
+            squaredError = m2B;
+            m3 = m3B;
+            m4 = m4B;
+            return;
+        }
+        final double na = nA;
+        final double nb = nB;
+        final double n = na + nb;
+        final double delta = meanB - mean;
+        final double deltaN = delta / n;
+        final double deltaN2 = deltaN * deltaN;
+        final double m2A = squaredError;
+        final double m3A = m3;
+
+        nSamples = nA + nB;
+        mean += deltaN * nb;
+        m4 += m4B + delta * deltaN2 * deltaN * na * nb * (na * na - na * nb + nb * nb)
+                + 6.0 * deltaN2 * (na * na * m2B + nb * nb * m2A)
+                + 4.0 * deltaN * (na * m3B - nb * m3A);
+        m3 += m3B + delta * deltaN2 * na * nb * (na - nb)
+                + 3.0 * deltaN * (na * m2B - nb * m2A);
+        squaredError += m2B + delta * deltaN * na * nb;
     }
 
     public long nSamples() {
@@ -84,6 +185,26 @@ public final class WelfordVariance {
         return Double.NaN;
     }
 
+    /**
+     * @return sample skewness (g1 = sqrt(n) m3 / m2^1.5) or NaN
+     */
+    public double skewness() {
+        if (nSamples != 0L && squaredError > 0.0) {
+            return Math.sqrt((double) nSamples) * m3 / Math.pow(squaredError, 1.5);
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * @return sample excess kurtosis (g2 = n m4 / m2^2 - 3) or NaN
+     */
+    public double kurtosis() {
+        if (nSamples != 0L && squaredError > 0.0) {
+            return nSamples * m4 / (squaredError * squaredError) - 3.0;
+        }
+        return Double.NaN;
+    }
+
     public double rms() {
         if (nSamples != 0L) {
             return mean() + stddev();
@@ -115,6 +236,8 @@ public final class WelfordVariance {
                 + " min=" + min()
                 + " max=" + max()
                 + " sum=" + total()
+                + " skew=" + skewness()
+                + " kurt=" + kurtosis()
                 + "]";
     }
 
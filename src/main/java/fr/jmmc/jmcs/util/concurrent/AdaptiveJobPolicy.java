@@ -0,0 +1,311 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import fr.jmmc.jmcs.util.NumberUtils;
+import fr.jmmc.jmcs.util.ToStringable;
+import fr.jmmc.jmcs.util.timer.StatLong;
+
+/**
+ * This class decides whether a job batch (identified by its job name) should run in parallel or inline
+ * (current thread) using the recent execution cost per job measured in both modes (StatLong statistics).
+ * 
+ * Costs are kept per batch size bucket (powers of 2) as the parallel overhead per job depends on
+ * the number of jobs: small and large batches of the same job name get their own decisions.
+ * 
+ * Decision rule: run in parallel if the recent parallel cost per job is lower than the inline cost per job.
+ * Each mode is first measured (warmup) then probed periodically to follow workload changes;
+ * statistics are reset every WINDOW batches to only keep recent costs.
+ * 
+ * Note: thread-safe (synchronized); costs are given in nanoseconds per job.
+ * 
+ * @author agent
+ */
+public final class AdaptiveJobPolicy implements ToStringable {
+
+    /** minimum number of batches per mode before trusting its statistics */
+    static final int MIN_SAMPLES = 3;
+    /** probe the other mode every PROBE_PERIOD decisions (per bucket) */
+    static final int PROBE_PERIOD = 8;
+    /** maximum number of batches per statistics window */
+    static final int WINDOW = 16;
+    /** number of batch size buckets: [1], [2-3], [4-7] ... [128+] */
+    static final int BUCKETS = 8;
+    /* members */
+    /** job name */
+    private final String _jobName;
+    /** costs per batch size bucket (lazily created) */
+    private final Bucket[] _buckets = new Bucket[BUCKETS];
+    /** number of inline decisions */
+    private long _inlineCount = 0L;
+    /** number of parallel decisions */
+    private long _parallelCount = 0L;
+    /** number of decisions made to measure a mode (warmup or probe) */
+    private long _probeCount = 0L;
+
+    /**
+     * Protected constructor
+     * @param jobName job name
+     */
+    AdaptiveJobPolicy(final String jobName) {
+        _jobName = jobName;
+    }
+
+    /**
+     * Return the job name
+     * @return job name
+     */
+    public String getJobName() {
+        return _jobName;
+    }
+
+    /**
+     * Decide whether the next batch should run in parallel
+     * @param nJobs number of jobs in the batch
+     * @return true to run jobs in parallel; false to run them in the current thread
+     */
+    public synchronized boolean shouldRunParallel(final int nJobs) {
+        final Bucket bucket = getBucket(nJobs);
+        final long decision = ++bucket._decisions;
+
+        final double inlineCost = bucket.getInlineCost();
+        final double parallelCost = bucket.getParallelCost();
+
+        final boolean parallel;
+        if (Double.isNaN(inlineCost)) {
+            // warmup (inline first: cheap for tiny batches):
+            parallel = false;
+            _probeCount++;
+        } else if (Double.isNaN(parallelCost)) {
+            // warmup:
+            parallel = true;
+            _probeCount++;
+        } else {
+            final boolean best = (parallelCost < inlineCost);
+            if (decision % PROBE_PERIOD == 0L) {
+                // probe the other mode:
+                parallel = !best;
+                _probeCount++;
+            } else {
+                parallel = best;
+            }
+        }
+        if (parallel) {
+            _parallelCount++;
+        } else {
+            _inlineCount++;
+        }
+        return parallel;
+    }
+
+    /**
+     * Record the elapsed time of a batch
+     * @param parallel true if jobs ran in parallel
+     * @param nJobs number of jobs in the batch
+     * @param elapsed elapsed time in nanoseconds
+     */
+    public synchronized void record(final boolean parallel, final int nJobs, final long elapsed) {
+        if (nJobs <= 0) {
+            return;
+        }
+        final Bucket bucket = getBucket(nJobs);
+        final StatLong stat = (parallel) ? bucket._parallelCost : bucket._inlineCost;
+
+        if (stat.getCounter() >= WINDOW) {
+            // start a new window:
+            if (parallel) {
+                bucket._lastParallelCost = stat.getAverage();
+            } else {
+                bucket._lastInlineCost = stat.getAverage();
+            }
+            stat.reset();
+        }
+        stat.add(((double) elapsed) / nJobs);
+    }
+
+    /**
+     * Return the bucket index of the given batch size
+     * @param nJobs number of jobs in the batch
+     * @return bucket index in [0; BUCKETS - 1]
+     */
+    static int bucketIndex(final int nJobs) {
+        return (nJobs <= 1) ? 0 : Math.min(31 - Integer.numberOfLeadingZeros(nJobs), BUCKETS - 1);
+    }
+
+    /**
+     * Return the bucket of the given batch size (created if needed)
+     * @param nJobs number of jobs in the batch
+     * @return bucket
+     */
+    private Bucket getBucket(final int nJobs) {
+        final int index = bucketIndex(nJobs);
+        Bucket bucket = _buckets[index];
+        if (bucket == null) {
+            bucket = new Bucket();
+            _buckets[index] = bucket;
+        }
+        return bucket;
+    }
+
+    /**
+     * Return the cost estimate from the current window or the previous one
+     * @param stat current window statistics
+     * @param lastCost previous window average (NaN if undefined)
+     * @return cost estimate or NaN if not measured enough
+     */
+    private static double estimate(final StatLong stat, final double lastCost) {
+        return (stat.getCounter() >= MIN_SAMPLES) ? stat.getAverage() : lastCost;
+    }
+
+    /**
+     * Return the number of inline decisions
+     * @return number of inline decisions
+     */
+    public synchronized long getInlineCount() {
+        return _inlineCount;
+    }
+
+    /**
+     * Return the number of parallel decisions
+     * @return number of parallel decisions
+     */
+    public synchronized long getParallelCount() {
+        return _parallelCount;
+    }
+
+    /**
+     * Return the number of decisions made to measure a mode (warmup or probe)
+     * @return number of probe decisions
+     */
+    public synchronized long getProbeCount() {
+        return _probeCount;
+    }
+
+    /**
+     * Return the recent inline cost per job (ns) for the given batch size or NaN if not measured enough
+     * @param nJobs number of jobs in the batch
+     * @return recent inline cost per job (ns)
+     */
+    public synchronized double getInlineCost(final int nJobs) {
+        final Bucket bucket = _buckets[bucketIndex(nJobs)];
+        return (bucket != null) ? bucket.getInlineCost() : Double.NaN;
+    }
+
+    /**
+     * Return the recent parallel cost per job (ns) for the given batch size or NaN if not measured enough
+     * @param nJobs number of jobs in the batch
+     * @return recent parallel cost per job (ns)
+     */
+    public synchronized double getParallelCost(final int nJobs) {
+        final Bucket bucket = _buckets[bucketIndex(nJobs)];
+        return (bucket != null) ? bucket.getParallelCost() : Double.NaN;
+    }
+
+    /**
+     * Reset statistics and metrics
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            _buckets[i] = null;
+        }
+        _inlineCount = 0L;
+        _parallelCount = 0L;
+        _probeCount = 0L;
+    }
+
+    /**
+     * Return a string representation
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(256);
+        toString(sb, false);
+        return sb.toString();
+    }
+
+    /**
+     * toString() implementation using string builder
+     *
+     * @param sb string builder to append to
+     * @param full true to get complete information; false to get main information (shorter)
+     */
+    @Override
+    public synchronized void toString(final StringBuilder sb, final boolean full) {
+        sb.append(_jobName).append(" [adaptive] : inline = ").append(_inlineCount);
+        sb.append(", parallel = ").append(_parallelCount);
+        sb.append(", probes = ").append(_probeCount);
+        for (int i = 0; i < BUCKETS; i++) {
+            final Bucket bucket = _buckets[i];
+            if (bucket != null) {
+                sb.append("\n  jobs >= ").append(1 << i).append(" - cost (ns/job) : inline = ");
+                sb.append(NumberUtils.trimTo5Digits(bucket.getInlineCost()));
+                sb.append(", parallel = ").append(NumberUtils.trimTo5Digits(bucket.getParallelCost()));
+                if (full) {
+                    sb.append("\n    inline   ");
+                    bucket._inlineCost.toString(sb, true);
+                    sb.append("\n    parallel ");
+                    bucket._parallelCost.toString(sb, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Costs of one batch size bucket (guarded by the policy)
+     */
+    private static final class Bucket {
+
+        /** inline cost per job (ns) in the current window */
+        final StatLong _inlineCost = new StatLong();
+        /** parallel cost per job (ns) in the current window */
+        final StatLong _parallelCost = new StatLong();
+        /** inline cost per job (ns) of the previous window */
+        double _lastInlineCost = Double.NaN;
+        /** parallel cost per job (ns) of the previous window */
+        double _lastParallelCost = Double.NaN;
+        /** number of decisions */
+        long _decisions = 0L;
+
+        /**
+         * Return the recent inline cost per job (ns) or NaN if not measured enough
+         * @return recent inline cost per job (ns)
+         */
+        double getInlineCost() {
+            return estimate(_inlineCost, _lastInlineCost);
+        }
+
+        /**
+         * Return the recent parallel cost per job (ns) or NaN if not measured enough
+         * @return recent parallel cost per job (ns)
+         */
+        double getParallelCost() {
+            return estimate(_parallelCost, _lastParallelCost);
+        }
+    }
+}
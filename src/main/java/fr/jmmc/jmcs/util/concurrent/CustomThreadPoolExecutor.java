@@ -31,6 +31,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -52,7 +53,7 @@ public final class CustomThreadPoolExecutor extends ThreadPoolExecutor {
     private final String _name;
 
     /**
-     * Single constructor allowed
+     * Constructor (default rejected execution handler)
      *
      * @param pPoolName thread pool name
      * @param corePoolSize the number of threads to keep in the
@@ -82,6 +83,40 @@ public final class CustomThreadPoolExecutor extends ThreadPoolExecutor {
         _name = pPoolName;
     }
 
+    /**
+     * Constructor with a rejected execution handler (bounded thread pools)
+     *
+     * @param pPoolName thread pool name
+     * @param corePoolSize the number of threads to keep in the
+     * pool, even if they are idle.
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     * pool.
+     * @param keepAliveTime when the number of threads is greater than
+     * the core, this is the maximum time that excess idle threads
+     * will wait for new tasks before terminating.
+     * @param unit the time unit for the keepAliveTime
+     * argument.
+     * @param workQueue the queue to use for holding tasks before they
+     * are executed. This queue will hold only the <tt>Runnable</tt>
+     * tasks submitted by the <tt>execute</tt> method.
+     * @param threadFactory the factory to use when the executor
+     * creates a new thread.
+     * @param handler the handler to use when execution is blocked
+     * because the thread bounds and queue capacities are reached
+     */
+    public CustomThreadPoolExecutor(final String pPoolName,
+            final int corePoolSize,
+            final int maximumPoolSize,
+            final long keepAliveTime,
+            final TimeUnit unit,
+            final BlockingQueue<Runnable> workQueue,
+            final ThreadFactory threadFactory,
+            final RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+                threadFactory, handler);
+        _name = pPoolName;
+    }
+
     /**
      * Return the thread pool name
      * @return thread pool name
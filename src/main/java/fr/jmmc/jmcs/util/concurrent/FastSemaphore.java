@@ -31,15 +31,21 @@ import java.io.Serializable;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Imported fast semaphore class
  * 
  * Fast pathed semaphore :
- * It only does acquires and releases of single permits though it would be
- * easy to make it release multiple permits.  Acquiring multiple permits would
- * be a little tricky based on the current Semaphore semantics (atomic acquire
- * of all requested permits).
+ * The permit count is an atomic counter (fast path); only threads that must wait
+ * use the slow semaphore.
+ * 
+ * Multiple permits: acquire(n) is all or nothing: n permits are taken from the counter
+ * in a single CAS only when all are available, else the thread waits on a condition
+ * signalled by releases (no partial grant is held while waiting, nonfair).
+ * release(n) hands to the slow semaphore only the permits covering the deficit of
+ * single permit waiters.
  * 
  * It's a port from a C win32/posix version that's been around for a while.
  * 
@@ -55,6 +61,12 @@ public final class FastSemaphore implements Serializable {
     private final AtomicInteger cancel;
     /** slow semaphore */
     private final Semaphore sem;
+    /** number of threads waiting for multiple permits */
+    private final AtomicInteger waiters = new AtomicInteger(0);
+    /** multiple permits lock */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** multiple permits condition signalled when permits are released */
+    private final Condition released = lock.newCondition();
 
     /**
      * Creates a <tt>Semaphore</tt> with the given number of
@@ -124,6 +136,25 @@ public final class FastSemaphore implements Serializable {
         }
     }
 
+    /**
+     * Acquires the given number of permits from this semaphore, blocking until
+     * all are available, or the thread is {@link Thread#interrupt interrupted}.
+     *
+     * @param permits the number of permits to acquire
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws IllegalArgumentException if permits is negative
+     *
+     * @see #acquire()
+     */
+    public void acquire(final int permits) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (!tryAcquire(permits)) {
+            await(permits, -1L);
+        }
+    }
+
     /**
      * Acquires a permit from this semaphore, if one becomes available 
      * within the given waiting time and the
@@ -186,6 +217,32 @@ public final class FastSemaphore implements Serializable {
         return true;
     }
 
+    /**
+     * Acquires the given number of permits from this semaphore, if all become available
+     * within the given waiting time and the current thread has not been
+     * {@link Thread#interrupt interrupted}.
+     *
+     * @param permits the number of permits to acquire
+     * @param timeout the maximum time to wait for the permits
+     * @param unit the time unit of the <tt>timeout</tt> argument.
+     * @return <tt>true</tt> if all permits were acquired and <tt>false</tt>
+     * if the waiting time elapsed before all permits were acquired (none acquired).
+     *
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws IllegalArgumentException if permits is negative
+     *
+     * @see #tryAcquire(long, TimeUnit)
+     */
+    public boolean tryAcquire(final int permits, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryAcquire(permits)) {
+            return true;
+        }
+        return await(permits, Math.max(0L, unit.toNanos(timeout)));
+    }
+
     /**
      * Acquires a permit from this semaphore, only if one is available at the 
      * time of invocation.
@@ -219,6 +276,28 @@ public final class FastSemaphore implements Serializable {
         return (oldCount > 0);
     }
 
+    /**
+     * Acquires the given number of permits from this semaphore, only if all are available
+     * at the time of invocation.
+     *
+     * @param permits the number of permits to acquire
+     * @return <tt>true</tt> if the permits were acquired and <tt>false</tt>
+     * otherwise.
+     * @throws IllegalArgumentException if permits is negative
+     *
+     * @see #tryAcquire()
+     */
+    public boolean tryAcquire(final int permits) {
+        checkPermits(permits);
+        int oldCount;
+
+        do {
+            oldCount = count.get();
+        } while (oldCount >= permits && !count.compareAndSet(oldCount, oldCount - permits));
+
+        return (oldCount >= permits);
+    }
+
     /**
      * Releases a permit, returning it to the semaphore.
      * <p>Releases a permit, increasing the number of available permits
@@ -239,6 +318,88 @@ public final class FastSemaphore implements Serializable {
         if (count.addAndGet(1) <= 0) {
             sem.release();
         }
+        signalWaiters();
+    }
+
+    /**
+     * Releases the given number of permits, returning them to the semaphore.
+     * Waiting threads are given the permits covering their deficit.
+     *
+     * @param permits the number of permits to release
+     * @throws IllegalArgumentException if permits is negative
+     *
+     * @see #release()
+     */
+    public void release(final int permits) {
+        checkPermits(permits);
+        if (cancel.get() > 0 && count.get() < 0) {
+            processCancels(cancel.getAndSet(0));
+        }
+
+        final int oldCount = count.getAndAdd(permits);
+        if (oldCount < 0) {
+            // give permits covering the deficit to waiting threads:
+            sem.release(Math.min(permits, -oldCount));
+        }
+        signalWaiters();
+    }
+
+    /**
+     * Wake up threads waiting for multiple permits
+     */
+    private void signalWaiters() {
+        // the count update happens before reading waiters (waiters re-check count after registering):
+        if (waiters.get() != 0) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Slow path: wait until all permits are available then take them at once
+     * @param permits the number of permits to acquire
+     * @param nanos maximum time to wait in nanoseconds or -1 to wait without timeout
+     * @return true if all permits were acquired
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private boolean await(final int permits, final long nanos) throws InterruptedException {
+        long remaining = nanos;
+        lock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                while (!tryAcquire(permits)) {
+                    if (nanos < 0L) {
+                        released.await();
+                    } else {
+                        if (remaining <= 0L) {
+                            return false;
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                }
+                return true;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check the given number of permits
+     * @param permits number of permits
+     * @throws IllegalArgumentException if permits is negative
+     */
+    private static void checkPermits(final int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("permits < 0");
+        }
     }
 
     /**
@@ -266,7 +427,7 @@ public final class FastSemaphore implements Serializable {
 
         // add any untransferred cancelCount back into cancel
         if (newCancelCount > 0) {
-            cancel.addAndGet(cancelCount);
+            cancel.addAndGet(newCancelCount);
         }
     }
 
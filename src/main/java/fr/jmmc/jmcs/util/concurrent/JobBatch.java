@@ -0,0 +1,389 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents a reusable batch of jobs executed by the ParallelJobExecutor thread pool.
+ * 
+ * Its task wrappers are preallocated once and re-armed on every forkAndJoin() call;
+ * completion is signaled by a counter (park / unpark) instead of futures so forking
+ * small job batches at high frequency does not allocate futures nor result lists.
+ * 
+ * Note: a JobBatch instance is not thread-safe: only one thread may call forkAndJoin() at a time.
+ * If called from a job worker thread, the waiting worker executes its pending tasks itself.
+ * 
+ * @see ParallelJobExecutor#newJobBatch(String, int)
+ * @author agent
+ */
+public final class JobBatch {
+
+    /** Class logger */
+    private static final Logger _logger = LoggerFactory.getLogger(JobBatch.class.getName());
+    /* members */
+    /** job name used when throwing an exception */
+    private final String _jobName;
+    /** thread pool executing tasks */
+    private final ThreadPoolExecutor _executor;
+    /** preallocated task wrappers */
+    private final BatchTask[] _tasks;
+    /** number of tasks of the current round */
+    private volatile int _len = 0;
+    /** pending task counter */
+    private final AtomicInteger _pending = new AtomicInteger(0);
+    /** first failure */
+    private final AtomicReference<Throwable> _failure = new AtomicReference<Throwable>();
+    /** waiting thread (forkAndJoin caller) */
+    private volatile Thread _waiter = null;
+    /** cancellation flag (set on failure or interruption) */
+    private volatile boolean _cancelled = false;
+    /** busy flag to detect concurrent usage */
+    private final AtomicBoolean _busy = new AtomicBoolean(false);
+
+    /**
+     * Protected constructor
+     * @param jobName job name used when throwing an exception
+     * @param executor thread pool executing tasks
+     * @param capacity maximum number of jobs per batch
+     */
+    JobBatch(final String jobName, final ThreadPoolExecutor executor, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        _jobName = jobName;
+        _executor = executor;
+        _tasks = new BatchTask[capacity];
+        for (int i = 0; i < capacity; i++) {
+            _tasks[i] = new BatchTask(this);
+        }
+    }
+
+    /**
+     * Return the job name
+     * @return job name
+     */
+    public String getJobName() {
+        return _jobName;
+    }
+
+    /**
+     * Return the maximum number of jobs per batch
+     * @return maximum number of jobs per batch
+     */
+    public int getCapacity() {
+        return _tasks.length;
+    }
+
+    /**
+     * Submit the given jobs and wait for their completion
+     * If the current thread is interrupted (canceled), then pending jobs are canceled too.
+     * 
+     * @param jobs runnable jobs (at most getCapacity())
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public void forkAndJoin(final Runnable[] jobs) throws InterruptedJobException, RuntimeException {
+        forkAndJoin(jobs, (jobs != null) ? jobs.length : 0, true);
+    }
+
+    /**
+     * Submit the first len given jobs and wait for their completion
+     * If the current thread is interrupted (canceled), then pending jobs are canceled too.
+     * 
+     * @param jobs runnable jobs
+     * @param len number of jobs to execute (at most getCapacity())
+     * @param useThreads flag to enable or disable thread pool usage (async)
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public void forkAndJoin(final Runnable[] jobs, final int len, final boolean useThreads) throws InterruptedJobException, RuntimeException {
+        if (jobs == null || len <= 0) {
+            // illegal state ?
+            return;
+        }
+        if (len > _tasks.length) {
+            throw new IllegalArgumentException(_jobName + ": too many jobs (" + len + " > " + _tasks.length + ")");
+        }
+
+        final Thread currentTh = Thread.currentThread(); // local var
+
+        // fast interrupt :
+        if (currentTh.isInterrupted()) {
+            throw new InterruptedJobException(_jobName + ": interrupted");
+        }
+
+        if (useThreads && len > 1) {
+            if (!_busy.compareAndSet(false, true)) {
+                throw new IllegalStateException(_jobName + ": batch already in use");
+            }
+            try {
+                fork(jobs, len, currentTh);
+
+                if (ParallelJobExecutor.isJobWorkerThread(currentTh)) {
+                    // nested jobs: avoid starving the thread pool:
+                    helpJoin(len, currentTh);
+                }
+                join(currentTh);
+            } finally {
+                _busy.set(false);
+            }
+        } else {
+            try {
+                // execute job(s) using the current thread:
+                for (int i = 0; i < len; i++) {
+                    jobs[i].run();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(_jobName + ": failed:", e);
+            }
+        }
+
+        // fast interrupt :
+        if (currentTh.isInterrupted()) {
+            throw new InterruptedJobException(_jobName + ": interrupted");
+        }
+    }
+
+    /**
+     * Re-arm task wrappers and submit them to the thread pool
+     * @param jobs runnable jobs
+     * @param len number of jobs to execute
+     * @param currentTh current thread (waiter)
+     */
+    private void fork(final Runnable[] jobs, final int len, final Thread currentTh) {
+        _failure.set(null);
+        _cancelled = false;
+        _waiter = currentTh;
+        _len = len;
+        _pending.set(len);
+
+        final BatchTask[] tasks = _tasks;
+        for (int i = 0; i < len; i++) {
+            final BatchTask task = tasks[i];
+            task._job = jobs[i];
+            try {
+                _executor.execute(task);
+            } catch (RejectedExecutionException ree) {
+                // cancel remaining tasks and wait for submitted ones:
+                _cancelled = true;
+                for (int j = i; j < len; j++) {
+                    tasks[j]._job = null;
+                }
+                if (_pending.addAndGet(i - len) != 0) {
+                    awaitTasks(currentTh);
+                }
+                throw new IllegalStateException(_jobName + ": unable to queue the job !", ree);
+            }
+        }
+    }
+
+    /**
+     * Help while joining: execute in the current (worker) thread the tasks not yet started (still queued).
+     * Tasks are taken in reverse order as last submitted tasks are the least likely started.
+     * @param len number of submitted tasks
+     * @param currentTh current thread (waiter)
+     */
+    private void helpJoin(final int len, final Thread currentTh) {
+        final BatchTask[] tasks = _tasks;
+        for (int i = len - 1; i >= 0; i--) {
+            if (_executor.remove(tasks[i])) {
+                tasks[i].run();
+
+                // fast interrupt :
+                if (currentTh.isInterrupted()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for task completion and report the first failure (if any)
+     * @param currentTh current thread (waiter)
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    private void join(final Thread currentTh) throws InterruptedJobException, RuntimeException {
+        final boolean interrupted = awaitTasks(currentTh);
+
+        _waiter = null;
+
+        if (interrupted) {
+            // Anyway: interrupt this thread again:
+            currentTh.interrupt();
+            throw new InterruptedJobException(_jobName + ": interrupted");
+        }
+
+        final Throwable th = _failure.get();
+        if (th != null) {
+            _failure.set(null);
+            if (th instanceof InterruptedJobException) {
+                throw (InterruptedJobException) th;
+            }
+            throw new RuntimeException(_jobName + ": failed:", th);
+        }
+    }
+
+    /**
+     * Park the current thread until all pending tasks are done.
+     * If the current thread is interrupted, pending tasks are canceled and running ones interrupted.
+     * @param currentTh current thread (waiter)
+     * @return true if the current thread was interrupted while waiting
+     */
+    private boolean awaitTasks(final Thread currentTh) {
+        boolean interrupted = false;
+
+        while (_pending.get() != 0) {
+            LockSupport.park(this);
+
+            if (Thread.interrupted() && !interrupted) {
+                interrupted = true;
+
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("{}: waiting thread cancelled: cancel jobs", _jobName);
+                }
+                cancel();
+            }
+        }
+        return interrupted;
+    }
+
+    /**
+     * Cancel pending tasks and interrupt running ones (only tasks of the current round):
+     * queued tasks are removed from the thread pool and running ones interrupted,
+     * except if run by the waiting thread (help while joining) or the current thread
+     */
+    private void cancel() {
+        _cancelled = true;
+
+        final Thread waiter = _waiter;
+        final Thread currentTh = Thread.currentThread();
+
+        final BatchTask[] tasks = _tasks;
+        for (int i = 0, len = _len; i < len; i++) {
+            final BatchTask task = tasks[i];
+            if (_executor.remove(task)) {
+                // never run:
+                task._job = null;
+                onTaskDone();
+            } else {
+                task.interruptRunner(waiter, currentTh);
+            }
+        }
+    }
+
+    /**
+     * Record the given failure (first one only) and cancel other tasks
+     * @param th failure
+     */
+    void onFailure(final Throwable th) {
+        if (_failure.compareAndSet(null, th)) {
+            cancel();
+        }
+    }
+
+    /**
+     * Decrement the pending counter and wake up the waiter when the batch is complete
+     */
+    void onTaskDone() {
+        if (_pending.decrementAndGet() == 0) {
+            final Thread waiter = _waiter;
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Preallocated task wrapper
+     */
+    private static final class BatchTask implements Runnable {
+
+        /** parent batch */
+        private final JobBatch _batch;
+        /** wrapped job (armed by fork) */
+        Runnable _job = null;
+        /** thread running this task (to be interrupted on cancellation) guarded by this */
+        private Thread _runner = null;
+
+        /**
+         * Protected constructor
+         * @param batch parent batch
+         */
+        BatchTask(final JobBatch batch) {
+            _batch = batch;
+        }
+
+        @Override
+        public void run() {
+            final JobBatch batch = _batch;
+            final Runnable job = _job;
+            _job = null;
+            try {
+                if (job != null && !batch._cancelled) {
+                    synchronized (this) {
+                        _runner = Thread.currentThread();
+                    }
+                    // cancelled meanwhile ?
+                    if (!batch._cancelled) {
+                        job.run();
+                    }
+                }
+            } catch (Throwable th) {
+                batch.onFailure(th);
+            } finally {
+                synchronized (this) {
+                    _runner = null;
+                }
+                batch.onTaskDone();
+            }
+        }
+
+        /**
+         * Interrupt the thread running this task (if any) unless it is one of the given threads
+         * Note: the interrupted flag is cleared by FixedThreadPoolExecutor.afterExecute()
+         * @param waiter waiting thread (not interrupted)
+         * @param currentTh current thread (not interrupted)
+         */
+        synchronized void interruptRunner(final Thread waiter, final Thread currentTh) {
+            if (_runner != null && _runner != waiter && _runner != currentTh) {
+                _runner.interrupt();
+            }
+        }
+    }
+}
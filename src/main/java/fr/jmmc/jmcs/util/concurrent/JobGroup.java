@@ -0,0 +1,499 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents a scope of jobs executed by the ParallelJobExecutor thread pool.
+ * 
+ * Contrary to the shared thread pool, a job group only tracks its own jobs (members):
+ * - the first failure cancels the other members (running members are interrupted)
+ * - an optional deadline cancels the group when exceeded
+ * - the teardown only waits for its own members, not for unrelated jobs of the thread pool
+ * 
+ * Note: a job group is owned by one thread (the one calling join() or cancel()),
+ * but members may fork new jobs into their group.
+ * 
+ * @see ParallelJobExecutor#newJobGroup(String)
+ * @author agent
+ */
+public final class JobGroup implements AutoCloseable {
+
+    /** Class logger */
+    private static final Logger _logger = LoggerFactory.getLogger(JobGroup.class.getName());
+    /* members */
+    /** job name used when throwing an exception */
+    private final String _jobName;
+    /** thread pool executing members */
+    private final ThreadPoolExecutor _executor;
+    /** true if a deadline is defined */
+    private final boolean _hasDeadline;
+    /** deadline (System.nanoTime, may be negative) */
+    private final long _deadline;
+    /** members in fork order (guarded by itself) */
+    private final ArrayList<GroupTask<?>> _tasks = new ArrayList<GroupTask<?>>();
+    /** active (not settled) member counter */
+    private final AtomicInteger _active = new AtomicInteger(0);
+    /** first failure */
+    private final AtomicReference<Throwable> _failure = new AtomicReference<Throwable>();
+    /** waiting thread */
+    private volatile Thread _waiter = null;
+    /** cancellation flag */
+    private volatile boolean _cancelled = false;
+
+    /**
+     * Protected constructor
+     * @param jobName job name used when throwing an exception
+     * @param executor thread pool executing members
+     * @param timeoutNanos timeout in nanoseconds or 0 if undefined
+     */
+    JobGroup(final String jobName, final ThreadPoolExecutor executor, final long timeoutNanos) {
+        _jobName = jobName;
+        _executor = executor;
+        _hasDeadline = (timeoutNanos > 0L);
+        _deadline = (_hasDeadline) ? System.nanoTime() + timeoutNanos : 0L;
+    }
+
+    /**
+     * Return the job name
+     * @return job name
+     */
+    public String getJobName() {
+        return _jobName;
+    }
+
+    /**
+     * Return true if this group was cancelled (failure, deadline, interruption or cancel())
+     * @return true if this group was cancelled
+     */
+    public boolean isCancelled() {
+        return _cancelled;
+    }
+
+    /**
+     * Return the number of members not finished yet
+     * @return number of active members
+     */
+    public int getActiveCount() {
+        return _active.get();
+    }
+
+    /**
+     * Submit the given job as a member of this group
+     * @param job runnable job
+     * @return Future object to wait for or cancel the job
+     * @throws IllegalStateException if this group is cancelled or the job can not be queued
+     */
+    public Future<?> fork(final Runnable job) throws IllegalStateException {
+        return submit(new GroupTask<Object>(this, job));
+    }
+
+    /**
+     * Submit the given job as a member of this group
+     * @param <V> result type
+     * @param job callable job
+     * @return Future object to wait for or cancel the job
+     * @throws IllegalStateException if this group is cancelled or the job can not be queued
+     */
+    public <V> Future<V> fork(final Callable<V> job) throws IllegalStateException {
+        return submit(new GroupTask<V>(this, job));
+    }
+
+    /**
+     * Submit the given jobs as members of this group
+     * @param jobs runnable jobs
+     * @return Future objects to wait for or cancel jobs
+     * @throws IllegalStateException if this group is cancelled or any job can not be queued
+     */
+    public Future<?>[] fork(final Runnable[] jobs) throws IllegalStateException {
+        final int len = jobs.length;
+        final Future<?>[] futures = new Future<?>[len];
+        for (int i = 0; i < len; i++) {
+            futures[i] = fork(jobs[i]);
+        }
+        return futures;
+    }
+
+    /**
+     * Submit the given jobs as members of this group
+     * @param jobs callable jobs
+     * @return Future objects to wait for or cancel jobs
+     * @throws IllegalStateException if this group is cancelled or any job can not be queued
+     */
+    public Future<?>[] fork(final Callable<?>[] jobs) throws IllegalStateException {
+        final int len = jobs.length;
+        final Future<?>[] futures = new Future<?>[len];
+        for (int i = 0; i < len; i++) {
+            futures[i] = fork(jobs[i]);
+        }
+        return futures;
+    }
+
+    /**
+     * Queue the given member task
+     * @param <V> result type
+     * @param task member task
+     * @return member task
+     */
+    private <V> GroupTask<V> submit(final GroupTask<V> task) {
+        if (_cancelled) {
+            throw new IllegalStateException(_jobName + ": job group cancelled");
+        }
+        synchronized (_tasks) {
+            _tasks.add(task);
+        }
+        _active.incrementAndGet();
+        try {
+            _executor.execute(task);
+        } catch (RejectedExecutionException ree) {
+            task.cancel(false);
+            task.settle();
+            throw new IllegalStateException(_jobName + ": unable to queue the job !", ree);
+        }
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("{}: started job: {}", _jobName, task);
+        }
+        // a member forked a new job: a waiting worker thread may help:
+        wakeUp();
+        return task;
+    }
+
+    /**
+     * Wait for all members to complete and return their results (in fork order).
+     * If any member fails, the deadline is exceeded or the current thread is interrupted,
+     * other members are canceled and this method waits only for them to terminate.
+     *
+     * @return results as List&lt;Object&gt;
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled) or the deadline is exceeded
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public List<Object> join() throws InterruptedJobException, RuntimeException {
+        final Thread currentTh = Thread.currentThread(); // local var
+        // nested jobs: help to avoid starving the thread pool:
+        final boolean help = ParallelJobExecutor.isJobWorkerThread(currentTh);
+
+        boolean interrupted = false;
+        boolean timeout = false;
+
+        _waiter = currentTh;
+        try {
+            while (_active.get() != 0 && _failure.get() == null && !_cancelled) {
+                long remaining = 0L;
+                if (_hasDeadline) {
+                    remaining = _deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        timeout = true;
+                        break;
+                    }
+                }
+                // run queued members (including the ones forked by other members) before parking:
+                if (!help || !helpJoin(currentTh)) {
+                    if (_hasDeadline) {
+                        LockSupport.parkNanos(this, remaining);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    break;
+                }
+            }
+        } finally {
+            _waiter = null;
+        }
+
+        final Throwable th = _failure.get();
+
+        if (interrupted || timeout || th != null || _cancelled) {
+            // cancel other members and wait for them only:
+            cancelAndWait();
+
+            if (interrupted) {
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("{}: waiting thread cancelled", _jobName);
+                }
+                // Anyway: interrupt this thread again:
+                currentTh.interrupt();
+                throw new InterruptedJobException(_jobName + ": interrupted");
+            }
+            if (timeout) {
+                throw new InterruptedJobException(_jobName + ": deadline exceeded",
+                        new TimeoutException(_jobName + ": deadline exceeded"));
+            }
+            if (th != null) {
+                if (th instanceof InterruptedJobException) {
+                    throw (InterruptedJobException) th;
+                }
+                throw new RuntimeException(_jobName + ": failed:", th);
+            }
+            throw new InterruptedJobException(_jobName + ": cancelled");
+        }
+
+        // collect results (all members are done):
+        final GroupTask<?>[] tasks = getTasks();
+        final List<Object> results = new ArrayList<Object>(tasks.length);
+        try {
+            for (GroupTask<?> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (ExecutionException ee) {
+            throw new RuntimeException(_jobName + ": failed:", ee.getCause());
+        } catch (CancellationException ce) {
+            throw new InterruptedJobException(_jobName + ": interrupted", ce);
+        } catch (InterruptedException ie) {
+            // should not happen as tasks are done:
+            currentTh.interrupt();
+            throw new InterruptedJobException(_jobName + ": interrupted", ie);
+        }
+        return results;
+    }
+
+    /**
+     * Cancel all members: queued members are removed from the thread pool and
+     * running members are interrupted. This method does not wait for them.
+     */
+    public void cancel() {
+        _cancelled = true;
+
+        final GroupTask<?>[] tasks = getTasks();
+        // in reverse order to avoid starting new jobs while cancelling them:
+        for (int i = tasks.length - 1; i >= 0; i--) {
+            final GroupTask<?> task = tasks[i];
+            if (!task.isDone()) {
+                if (_executor.remove(task)) {
+                    // never started:
+                    task.cancel(false);
+                    task.settle();
+                } else {
+                    // do interrupt thread if running:
+                    task.cancel(true);
+                }
+            }
+        }
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("{}: cancelled ({} active jobs)", _jobName, _active.get());
+        }
+    }
+
+    /**
+     * Cancel all members and wait for running members to terminate (only members of this group)
+     */
+    public void cancelAndWait() {
+        cancel();
+        awaitMembers();
+    }
+
+    /**
+     * Fast teardown: cancel remaining members and wait for them to terminate
+     */
+    @Override
+    public void close() {
+        if (_active.get() != 0) {
+            cancelAndWait();
+        }
+    }
+
+    /**
+     * Wait for all members to terminate (ignoring interrupts)
+     */
+    private void awaitMembers() {
+        if (_active.get() == 0) {
+            return;
+        }
+        final Thread currentTh = Thread.currentThread(); // local var
+        boolean wasInterrupted = false;
+
+        _waiter = currentTh;
+        try {
+            while (_active.get() != 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    // ignore interrupts while waiting
+                    wasInterrupted = true;
+                }
+            }
+        } finally {
+            _waiter = null;
+        }
+        if (wasInterrupted) {
+            // reassert interrupt status on exit
+            currentTh.interrupt();
+        }
+    }
+
+    /**
+     * Help while joining: execute in the current (worker) thread the members not yet started (still queued).
+     * @param currentTh current thread
+     * @return true if any member was executed
+     */
+    private boolean helpJoin(final Thread currentTh) {
+        boolean helped = false;
+        final GroupTask<?>[] tasks = getTasks();
+        for (int i = tasks.length - 1; i >= 0; i--) {
+            final GroupTask<?> task = tasks[i];
+            if (_executor.remove(task)) {
+                task.run();
+                helped = true;
+
+                // fast interrupt or failure :
+                if (currentTh.isInterrupted() || _cancelled || _failure.get() != null) {
+                    break;
+                }
+            }
+        }
+        return helped;
+    }
+
+    /**
+     * Return a snapshot of members
+     * @return members
+     */
+    private GroupTask<?>[] getTasks() {
+        synchronized (_tasks) {
+            return _tasks.toArray(new GroupTask<?>[_tasks.size()]);
+        }
+    }
+
+    /**
+     * Record the given failure (first one only) and wake up the waiter
+     * @param th failure
+     */
+    void onFailure(final Throwable th) {
+        if (_failure.compareAndSet(null, th)) {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("{}: job failed", _jobName, th);
+            }
+            wakeUp();
+        }
+    }
+
+    /**
+     * Decrement the active counter and wake up the waiter when all members are done
+     */
+    void onSettled() {
+        if (_active.decrementAndGet() == 0) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Wake up the waiting thread (if any)
+     */
+    private void wakeUp() {
+        final Thread waiter = _waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Member task: FutureTask reporting its failure and termination to its group
+     * @param <V> result type
+     */
+    static final class GroupTask<V> extends FutureTask<V> {
+
+        /** parent group */
+        private final JobGroup _group;
+        /** settled flag (0 = active, 1 = settled) */
+        private final AtomicInteger _settled = new AtomicInteger(0);
+
+        /**
+         * Protected constructor
+         * @param group parent group
+         * @param job callable job
+         */
+        GroupTask(final JobGroup group, final Callable<V> job) {
+            super(job);
+            _group = group;
+        }
+
+        /**
+         * Protected constructor
+         * @param group parent group
+         * @param job runnable job
+         */
+        GroupTask(final JobGroup group, final Runnable job) {
+            super(job, null);
+            _group = group;
+        }
+
+        /**
+         * Return the parent group
+         * @return parent group
+         */
+        JobGroup getGroup() {
+            return _group;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (_group._cancelled) {
+                    cancel(false);
+                } else {
+                    super.run();
+                }
+            } finally {
+                settle();
+            }
+        }
+
+        @Override
+        protected void setException(final Throwable th) {
+            super.setException(th);
+            _group.onFailure(th);
+        }
+
+        /**
+         * Mark this task as terminated (once)
+         */
+        void settle() {
+            if (_settled.compareAndSet(0, 1)) {
+                _group.onSettled();
+            }
+        }
+    }
+}
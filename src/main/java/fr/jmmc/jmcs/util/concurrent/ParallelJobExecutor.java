@@ -32,14 +32,25 @@ import fr.jmmc.jmcs.util.JVMUtils;
 import fr.jmmc.jmcs.logging.LoggingService;
 import fr.jmmc.jmcs.util.MCSExceptionHandler;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,8 +67,21 @@ public final class ParallelJobExecutor {
     private static final Logger _logger = LoggerFactory.getLogger(ParallelJobExecutor.class.getName());
     /** singleton pattern */
     private static volatile ParallelJobExecutor _instance = null;
+    /** padding between per-thread accumulator slots (16 x 8 bytes = 128 bytes) to avoid false sharing */
+    private static final int SLOT_PAD = 16;
+    /** system property to enable the adaptive mode by default (false by default) */
+    public static final String PROPERTY_ADAPTIVE = "ParallelJobExecutor.adaptive";
+    /** job name of groups created by fork() */
+    private static final String FORK_JOB_NAME = "fork";
     /** The ThreadLocal storing thread indexes */
     private static final ThreadLocal<Integer> _localIndex = new ThreadLocal<Integer>();
+    /** The ThreadLocal storing the number of parallelFor bodies running in the current thread (nested calls) */
+    private static final ThreadLocal<int[]> _localBodyDepth = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
     /* members */
     /** number of available processors */
     private final int _cpuCount;
@@ -65,6 +89,10 @@ public final class ParallelJobExecutor {
     private int _maxParallelJob;
     /** thread pool dedicated to this computation */
     private final FixedThreadPoolExecutor _parallelExecutor;
+    /** adaptive mode flag: forkAndJoin(useThreads = true) runs small batches inline */
+    private volatile boolean _adaptive = "true".equalsIgnoreCase(System.getProperty(PROPERTY_ADAPTIVE, "false"));
+    /** adaptive policies keyed by job name */
+    private final ConcurrentHashMap<String, AdaptiveJobPolicy> _policies = new ConcurrentHashMap<String, AdaptiveJobPolicy>(32);
 
     /**
      * Return the singleton instance
@@ -83,6 +111,9 @@ public final class ParallelJobExecutor {
      */
     public static synchronized void shutdown() {
         if (_instance != null) {
+            if (_instance.isAdaptive() && _logger.isInfoEnabled()) {
+                _logger.info("ParallelJobExecutor adaptive policies:\n{}", _instance.dumpAdaptivePolicies());
+            }
             _instance.getParallelExecutor().shutdownNow();
             _instance = null;
             _logger.info("ParallelJobExecutor stopped.");
@@ -147,6 +178,67 @@ public final class ParallelJobExecutor {
         return _cpuCount;
     }
 
+    /**
+     * Return true if the adaptive mode is enabled: forkAndJoin(useThreads = true) decides per job name
+     * whether batches run in parallel or inline, using their recent execution cost.
+     *
+     * @return true if the adaptive mode is enabled
+     */
+    public boolean isAdaptive() {
+        return _adaptive;
+    }
+
+    /**
+     * Enable or disable the adaptive mode (see PROPERTY_ADAPTIVE system property for its default value)
+     *
+     * @param adaptive true to enable the adaptive mode
+     */
+    public void setAdaptive(final boolean adaptive) {
+        _adaptive = adaptive;
+    }
+
+    /**
+     * Return the adaptive policy (decision metrics) associated to the given job name (created if missing)
+     *
+     * @param jobName job name
+     * @return adaptive policy
+     */
+    public AdaptiveJobPolicy getAdaptivePolicy(final String jobName) {
+        AdaptiveJobPolicy policy = _policies.get(jobName);
+        if (policy == null) {
+            policy = new AdaptiveJobPolicy(jobName);
+            final AdaptiveJobPolicy prev = _policies.putIfAbsent(jobName, policy);
+            if (prev != null) {
+                policy = prev;
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * Return the decision metrics of all adaptive policies (sorted by job name)
+     *
+     * @return string representation of adaptive policies
+     */
+    public String dumpAdaptivePolicies() {
+        final List<String> jobNames = new ArrayList<String>(_policies.keySet());
+        Collections.sort(jobNames);
+
+        final StringBuilder sb = new StringBuilder(256);
+        for (String jobName : jobNames) {
+            _policies.get(jobName).toString(sb, true);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reset all adaptive policies
+     */
+    public void resetAdaptivePolicies() {
+        _policies.clear();
+    }
+
     /**
      * Return the thread pool dedicated to this computation
      *
@@ -158,10 +250,23 @@ public final class ParallelJobExecutor {
 
     /**
      * Return true if the current thread is a Job worker thread
+     * 
+     * Note: nested forkAndJoin() calls from a worker thread are safe: the waiting worker
+     * executes its own pending jobs (help while joining) instead of blocking the thread pool.
+     * 
      * @return true if the current thread is a Job worker thread  
      */
     public boolean isWorkerThread() {
-        return Thread.currentThread() instanceof JobWorkerThread;
+        return isJobWorkerThread(Thread.currentThread());
+    }
+
+    /**
+     * Return true if the given thread is a Job worker thread
+     * @param thread thread to test
+     * @return true if the given thread is a Job worker thread  
+     */
+    static boolean isJobWorkerThread(final Thread thread) {
+        return thread instanceof JobWorkerThread;
     }
 
     /**
@@ -184,7 +289,8 @@ public final class ParallelJobExecutor {
      * 
      * @param jobName job name used when throwing an exception
      * @param jobs callable jobs i.e. jobs that return results
-     * @param useThreads flag to enable or disable thread pool usage (async)
+     * @param useThreads flag to enable or disable thread pool usage (async); in adaptive mode,
+     * true lets the adaptive policy of this job name decide
      *
      * @throws InterruptedJobException if the current thread is interrupted (canceled)
      * @throws RuntimeException if any exception occurred during the computation.
@@ -204,13 +310,18 @@ public final class ParallelJobExecutor {
 
         final int len = jobs.length;
 
-        if (useThreads && len > 1) {
-            // execute jobs in parallel:
-            final Future<?>[] futures = fork(jobs);
+        final AdaptiveJobPolicy policy = (_adaptive && useThreads && len > 1) ? getAdaptivePolicy(jobName) : null;
+        final boolean parallel = (policy != null) ? policy.shouldRunParallel(len) : (useThreads && len > 1);
+        final long start = (policy != null) ? System.nanoTime() : 0L;
+
+        if (parallel) {
+            // execute jobs in parallel (scoped group):
+            final JobGroup group = newJobGroup(jobName);
+            group.fork(jobs);
 
             _logger.debug("wait for jobs to terminate ...");
 
-            join(jobName, futures);
+            joinGroup(group);
 
         } else {
             try {
@@ -223,6 +334,10 @@ public final class ParallelJobExecutor {
             }
         }
 
+        if (policy != null) {
+            policy.record(parallel, len, System.nanoTime() - start);
+        }
+
         // fast interrupt :
         if (currentTh.isInterrupted()) {
             throw new InterruptedJobException(jobName + ": interrupted");
@@ -250,7 +365,8 @@ public final class ParallelJobExecutor {
      * 
      * @param jobName job name used when throwing an exception
      * @param jobs callable jobs i.e. jobs that return results
-     * @param useThreads flag to enable or disable thread pool usage (async)
+     * @param useThreads flag to enable or disable thread pool usage (async); in adaptive mode,
+     * true lets the adaptive policy of this job name decide
      * @return results as List&lt;Object&gt; or null if interrupted
      *
      * @throws InterruptedJobException if the current thread is interrupted (canceled)
@@ -272,13 +388,18 @@ public final class ParallelJobExecutor {
         final List<Object> results;
         final int len = jobs.length;
 
-        if (useThreads && len > 1) {
-            // execute jobs in parallel:
-            final Future<?>[] futures = fork(jobs);
+        final AdaptiveJobPolicy policy = (_adaptive && useThreads && len > 1) ? getAdaptivePolicy(jobName) : null;
+        final boolean parallel = (policy != null) ? policy.shouldRunParallel(len) : (useThreads && len > 1);
+        final long start = (policy != null) ? System.nanoTime() : 0L;
+
+        if (parallel) {
+            // execute jobs in parallel (scoped group):
+            final JobGroup group = newJobGroup(jobName);
+            group.fork(jobs);
 
             _logger.debug("wait for jobs to terminate ...");
 
-            results = join(jobName, futures);
+            results = joinGroup(group);
 
         } else {
             results = new ArrayList<Object>(len);
@@ -292,6 +413,10 @@ public final class ParallelJobExecutor {
             }
         }
 
+        if (policy != null) {
+            policy.record(parallel, len, System.nanoTime() - start);
+        }
+
         // fast interrupt :
         if (currentTh.isInterrupted()) {
             throw new InterruptedJobException(jobName + ": interrupted");
@@ -300,6 +425,297 @@ public final class ParallelJobExecutor {
         return results;
     }
 
+    /**
+     * Wait for all jobs of the given group like join(jobName, futures): if any job fails or the current thread
+     * is interrupted, the current thread is interrupted again
+     *
+     * @param group job group to join
+     * @return results as List&lt;Object&gt;
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    private static List<Object> joinGroup(final JobGroup group) throws InterruptedJobException, RuntimeException {
+        try {
+            return group.join();
+        } catch (RuntimeException re) {
+            // Anyway: interrupt this thread again anyway:
+            Thread.currentThread().interrupt();
+            throw re;
+        }
+    }
+
+    /**
+     * Create a new job group (scope) to fork jobs and join them: the first failure cancels
+     * its other jobs and the teardown only waits for its own jobs.
+     *
+     * @param jobName job name used when throwing an exception
+     * @return new JobGroup instance bound to this thread pool
+     */
+    public JobGroup newJobGroup(final String jobName) {
+        return new JobGroup(jobName, _parallelExecutor, 0L);
+    }
+
+    /**
+     * Create a new job group (scope) with a deadline to fork jobs and join them: the first failure
+     * or exceeding the deadline cancels its other jobs and the teardown only waits for its own jobs.
+     *
+     * @param jobName job name used when throwing an exception
+     * @param timeout maximum time to wait for jobs (from now)
+     * @param unit time unit of the timeout argument
+     * @return new JobGroup instance bound to this thread pool
+     */
+    public JobGroup newJobGroup(final String jobName, final long timeout, final TimeUnit unit) {
+        return new JobGroup(jobName, _parallelExecutor, unit.toNanos(timeout));
+    }
+
+    /**
+     * Create a reusable job batch (preallocated) to fork and join small job batches at high frequency
+     * without allocating futures or result lists.
+     *
+     * @param jobName job name used when throwing an exception
+     * @param capacity maximum number of jobs per batch
+     * @return new JobBatch instance bound to this thread pool
+     */
+    public JobBatch newJobBatch(final String jobName, final int capacity) {
+        return new JobBatch(jobName, _parallelExecutor, capacity);
+    }
+
+    /**
+     * Execute the given loop body over the range [start; end[ in parallel and wait for its completion.
+     * The range is split adaptively (range stealing) so idle threads take work from busy ones.
+     * If the current thread is interrupted (canceled), then jobs are canceled too.
+     *
+     * @param start first index (inclusive)
+     * @param end last index (exclusive)
+     * @param grainSize number of indices processed at once (or 0 to use an automatic grain size)
+     * @param body loop body called with sub-ranges [lo; hi[
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public void parallelFor(final int start, final int end, final int grainSize, final IntRangeBody body) throws InterruptedJobException, RuntimeException {
+        parallelFor("parallelFor", start, end, grainSize, body);
+    }
+
+    /**
+     * Execute the given loop body over the range [start; end[ in parallel and wait for its completion.
+     * The range is split adaptively (range stealing) so idle threads take work from busy ones.
+     * If the current thread is interrupted (canceled), then jobs are canceled too.
+     *
+     * Note: sub-ranges are always processed by job worker threads (or the current thread if sequential)
+     * so currentThreadIndex(getMaxParallelJob()) can be used to get per-thread scratch buffers:
+     * no other body runs with the same thread index while a body is running.
+     * Nested calls from a loop body (directly or through nested jobs helped by the current thread)
+     * run inline in the current thread, like a plain method call.
+     *
+     * @param jobName job name used when throwing an exception
+     * @param start first index (inclusive)
+     * @param end last index (exclusive)
+     * @param grainSize number of indices processed at once (or 0 to use an automatic grain size)
+     * @param body loop body called with sub-ranges [lo; hi[
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public void parallelFor(final String jobName, final int start, final int end, final int grainSize,
+                            final IntRangeBody body) throws InterruptedJobException, RuntimeException {
+        if (body == null || end <= start) {
+            return;
+        }
+        final long length = (long) end - start;
+
+        // use only the useful number of workers:
+        int nWorkers = _maxParallelJob;
+
+        final int grain = (grainSize > 0) ? grainSize : WorkStealingRange.autoGrainSize(length, nWorkers);
+
+        if (length < (long) grain * nWorkers) {
+            nWorkers = (int) ((length + grain - 1L) / grain);
+        }
+
+        final int[] bodyDepth = _localBodyDepth.get();
+
+        // nested calls from a loop body run inline (thread index in use by the outer body):
+        if (nWorkers > 1 && bodyDepth[0] == 0) {
+            final WorkStealingRange range = new WorkStealingRange(start, end, grain, nWorkers, body);
+
+            // execute jobs in parallel (throws InterruptedJobException if interrupted):
+            forkAndJoin(jobName, range.createJobs(), true);
+
+        } else {
+            final Thread currentTh = Thread.currentThread(); // local var
+
+            // fast interrupt :
+            if (currentTh.isInterrupted()) {
+                throw new InterruptedJobException(jobName + ": interrupted");
+            }
+            bodyDepth[0]++;
+            try {
+                // execute the loop using the current thread:
+                body.run(start, end);
+            } catch (InterruptedJobException ije) {
+                throw ije;
+            } catch (Exception e) {
+                throw new RuntimeException(jobName + ": failed:", e);
+            } finally {
+                bodyDepth[0]--;
+            }
+
+            // fast interrupt :
+            if (currentTh.isInterrupted()) {
+                throw new InterruptedJobException(jobName + ": interrupted");
+            }
+        }
+    }
+
+    /**
+     * Reduce the values given by the mapper over the range [start; end[ in parallel.
+     * Each worker thread accumulates into its own slot (no boxing) and slots are merged once at join time.
+     * 
+     * Note: the reduction order depends on thread scheduling so the operator should be associative
+     * (floating-point sums may differ slightly between calls)
+     *
+     * @param jobName job name used when throwing an exception
+     * @param start first index (inclusive)
+     * @param end last index (exclusive)
+     * @param grainSize number of indices processed at once (or 0 to use an automatic grain size)
+     * @param identity identity value for the operator (0 for sum, +Inf for min ...)
+     * @param mapper function giving the value for each index
+     * @param op associative reduction operator
+     * @return reduced value (identity if the range is empty)
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public double reduceDouble(final String jobName, final int start, final int end, final int grainSize,
+                               final double identity, final IntToDoubleFunction mapper,
+                               final DoubleBinaryOperator op) throws InterruptedJobException, RuntimeException {
+        final int nSlots = _cpuCount;
+        // per-thread accumulators (padded):
+        final double[] slots = new double[nSlots * SLOT_PAD];
+        for (int i = 0; i < nSlots; i++) {
+            slots[i * SLOT_PAD] = identity;
+        }
+
+        parallelFor(jobName, start, end, grainSize, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                double acc = identity;
+                for (int i = lo; i < hi; i++) {
+                    acc = op.applyAsDouble(acc, mapper.applyAsDouble(i));
+                }
+                final int slot = currentThreadIndex(nSlots) * SLOT_PAD;
+                slots[slot] = op.applyAsDouble(slots[slot], acc);
+            }
+        });
+
+        // merge slots:
+        double result = identity;
+        for (int i = 0; i < nSlots; i++) {
+            result = op.applyAsDouble(result, slots[i * SLOT_PAD]);
+        }
+        return result;
+    }
+
+    /**
+     * Reduce the values given by the mapper over the range [start; end[ in parallel.
+     * Each worker thread accumulates into its own slot (no boxing) and slots are merged once at join time.
+     *
+     * @param jobName job name used when throwing an exception
+     * @param start first index (inclusive)
+     * @param end last index (exclusive)
+     * @param grainSize number of indices processed at once (or 0 to use an automatic grain size)
+     * @param identity identity value for the operator (0 for sum, Long.MAX_VALUE for min ...)
+     * @param mapper function giving the value for each index
+     * @param op associative reduction operator
+     * @return reduced value (identity if the range is empty)
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    public long reduceLong(final String jobName, final int start, final int end, final int grainSize,
+                           final long identity, final IntToLongFunction mapper,
+                           final LongBinaryOperator op) throws InterruptedJobException, RuntimeException {
+        final int nSlots = _cpuCount;
+        // per-thread accumulators (padded):
+        final long[] slots = new long[nSlots * SLOT_PAD];
+        for (int i = 0; i < nSlots; i++) {
+            slots[i * SLOT_PAD] = identity;
+        }
+
+        parallelFor(jobName, start, end, grainSize, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                long acc = identity;
+                for (int i = lo; i < hi; i++) {
+                    acc = op.applyAsLong(acc, mapper.applyAsLong(i));
+                }
+                final int slot = currentThreadIndex(nSlots) * SLOT_PAD;
+                slots[slot] = op.applyAsLong(slots[slot], acc);
+            }
+        });
+
+        // merge slots:
+        long result = identity;
+        for (int i = 0; i < nSlots; i++) {
+            result = op.applyAsLong(result, slots[i * SLOT_PAD]);
+        }
+        return result;
+    }
+
+    /**
+     * Reduce the range [start; end[ in parallel using mutable accumulators (moments, histograms ...).
+     * Each worker thread gets its own accumulator (created lazily by the supplier) and accumulators
+     * are merged once at join time by the combiner.
+     *
+     * @param <A> accumulator type
+     * @param jobName job name used when throwing an exception
+     * @param start first index (inclusive)
+     * @param end last index (exclusive)
+     * @param grainSize number of indices processed at once (or 0 to use an automatic grain size)
+     * @param supplier function creating a new (empty) accumulator
+     * @param accumulator function adding the given index into the accumulator
+     * @param combiner function merging two accumulators (may return its first argument)
+     * @return merged accumulator (new empty accumulator if the range is empty)
+     *
+     * @throws InterruptedJobException if the current thread is interrupted (canceled)
+     * @throws RuntimeException if any exception occurred during the computation
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A reduce(final String jobName, final int start, final int end, final int grainSize,
+                        final Supplier<A> supplier, final ObjIntConsumer<A> accumulator,
+                        final BinaryOperator<A> combiner) throws InterruptedJobException, RuntimeException {
+        final int nSlots = _cpuCount;
+        // per-thread accumulators (padded):
+        final Object[] slots = new Object[nSlots * SLOT_PAD];
+
+        parallelFor(jobName, start, end, grainSize, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                final int slot = currentThreadIndex(nSlots) * SLOT_PAD;
+                A acc = (A) slots[slot];
+                if (acc == null) {
+                    acc = supplier.get();
+                    slots[slot] = acc;
+                }
+                for (int i = lo; i < hi; i++) {
+                    accumulator.accept(acc, i);
+                }
+            }
+        });
+
+        // merge slots:
+        A result = null;
+        for (int i = 0; i < nSlots; i++) {
+            final A acc = (A) slots[i * SLOT_PAD];
+            if (acc != null) {
+                result = (result == null) ? acc : combiner.apply(result, acc);
+            }
+        }
+        return (result != null) ? result : supplier.get();
+    }
+
     /**
      * Submit the given job to immediate execution and returns its Future object to wait for or cancel job.
      *
@@ -341,11 +757,14 @@ public final class ParallelJobExecutor {
             _logger.trace("starting {} jobs ...", len, new Throwable());
         }
 
+        // jobs belong to the same group (cancelled together):
+        final JobGroup group = new JobGroup(FORK_JOB_NAME, _parallelExecutor, 0L);
+
         final Future<?>[] futures = new Future<?>[len];
         Future<?> future;
 
         for (int i = 0; i < len; i++) {
-            future = _parallelExecutor.submit(jobs[i]);
+            future = group.fork(jobs[i]);
 
             if (isLogDebug) {
                 _logger.debug("started job: {}", future);
@@ -382,11 +801,14 @@ public final class ParallelJobExecutor {
             _logger.trace("starting {} jobs ...", len, new Throwable());
         }
 
+        // jobs belong to the same group (cancelled together):
+        final JobGroup group = new JobGroup(FORK_JOB_NAME, _parallelExecutor, 0L);
+
         final Future<?>[] futures = new Future<?>[len];
         Future<?> future;
 
         for (int i = 0; i < len; i++) {
-            future = _parallelExecutor.submit(jobs[i]);
+            future = group.fork(jobs[i]);
 
             if (isLogDebug) {
                 _logger.debug("started job: {}", future);
@@ -428,6 +850,11 @@ public final class ParallelJobExecutor {
             _logger.trace("join {} jobs ...", len, new Throwable());
         }
 
+        if (isWorkerThread()) {
+            // nested jobs: avoid starving the thread pool:
+            helpJoin(futures);
+        }
+
         final List<Object> results = new ArrayList<Object>(len);
 
         int done = 0;
@@ -464,6 +891,9 @@ public final class ParallelJobExecutor {
             if (doCancel) {
                 _logger.debug("cancel jobs:");
 
+                JobGroup lastGroup = null;
+                boolean waitPool = false;
+
                 // Cancel and interrupt any running job:
                 // note: in reverse order to avoid starting new jobs while cancelling them:
                 for (int i = len - 1; i >= done; i--) {
@@ -473,12 +903,25 @@ public final class ParallelJobExecutor {
                         _logger.debug("cancel job: {}", future);
                     }
 
-                    // do interrupt thread if running:
-                    future.cancel(true);
+                    if (future instanceof JobGroup.GroupTask) {
+                        final JobGroup group = ((JobGroup.GroupTask<?>) future).getGroup();
+                        if (group != lastGroup) {
+                            // cancel the whole group and wait for its own jobs only:
+                            group.cancelAndWait();
+                            lastGroup = group;
+                        }
+                    } else {
+                        // do interrupt thread if running:
+                        future.cancel(true);
+                        waitPool = true;
+                    }
                 }
 
-                // Wait for threads to finish their task (cancellation):
-                _parallelExecutor.waitForTaskFinished();
+                // Wait for threads to finish their task (cancellation) for futures not created by fork():
+                // note: a worker thread can not wait for the whole pool as it is running itself
+                if (waitPool && !isWorkerThread()) {
+                    _parallelExecutor.waitForTaskFinished();
+                }
 
                 // Anyway: interrupt this thread again anyway:
                 Thread.currentThread().interrupt();
@@ -492,6 +935,34 @@ public final class ParallelJobExecutor {
         return results;
     }
 
+    /**
+     * Help while joining: execute in the current (worker) thread the given jobs not yet started
+     * (still queued) so a worker waiting for its own sub-jobs never blocks the thread pool.
+     * Jobs are taken in reverse order as last submitted jobs are the least likely started.
+     *
+     * @param futures Future objects to help
+     */
+    private void helpJoin(final Future<?>[] futures) {
+        final Thread currentTh = Thread.currentThread(); // local var
+
+        for (int i = futures.length - 1; i >= 0; i--) {
+            final Future<?> future = futures[i];
+
+            if ((future instanceof RunnableFuture) && _parallelExecutor.remove((Runnable) future)) {
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("help job: {}", future);
+                }
+                // run the job (any exception is reported by its future):
+                ((RunnableFuture<?>) future).run();
+
+                // fast interrupt :
+                if (currentTh.isInterrupted()) {
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Custom ThreadFactory implementation
      */
@@ -578,6 +1049,14 @@ public final class ParallelJobExecutor {
         }
     }
 
+    /**
+     * Return the number of parallelFor bodies running in the current thread (mutable counter)
+     * @return body depth counter
+     */
+    static int[] bodyDepth() {
+        return _localBodyDepth.get();
+    }
+
     /**
      * Returns the current thread's index modulo number of jobs so returns an int value between [0; nJobs[
      * 
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rejected execution handler for bounded thread pools (saturated: max threads reached and queue full)
+ * implementing the ThreadExecutors.SaturationPolicy and gathering saturation metrics.
+ *
+ * @see ThreadExecutors#configureBoundedPool(String, int, int, ThreadExecutors.SaturationPolicy, long)
+ * @author agent
+ */
+public final class SaturationHandler implements RejectedExecutionHandler {
+
+    /** Logger */
+    private static final Logger _logger = LoggerFactory.getLogger(SaturationHandler.class.getName());
+    // Members
+    /** thread pool name */
+    private final String _poolName;
+    /** saturation policy */
+    private final ThreadExecutors.SaturationPolicy _policy;
+    /** maximum time to block the caller (ms) */
+    private final long _blockTimeout;
+    /** number of jobs executed by the caller thread */
+    private final AtomicLong _callerRuns = new AtomicLong();
+    /** number of blocked submissions */
+    private final AtomicLong _blocked = new AtomicLong();
+    /** number of blocked submissions that timed out */
+    private final AtomicLong _timeouts = new AtomicLong();
+    /** number of rejected jobs */
+    private final AtomicLong _rejected = new AtomicLong();
+
+    /**
+     * Protected constructor
+     * @param poolName thread pool name
+     * @param policy saturation policy
+     * @param blockTimeout maximum time to block the caller (ms) for the BLOCK policy
+     */
+    SaturationHandler(final String poolName, final ThreadExecutors.SaturationPolicy policy, final long blockTimeout) {
+        _poolName = poolName;
+        _policy = policy;
+        _blockTimeout = blockTimeout;
+    }
+
+    /**
+     * Handle a job that can not be accepted by the saturated thread pool
+     * @param job runnable task
+     * @param executor saturated thread pool
+     * @throws RejectedExecutionException if the job is rejected
+     */
+    @Override
+    public void rejectedExecution(final Runnable job, final ThreadPoolExecutor executor) throws RejectedExecutionException {
+        if (executor.isShutdown()) {
+            reject(job, "pool is shutdown");
+        }
+        switch (_policy) {
+            case CALLER_RUNS:
+                _callerRuns.incrementAndGet();
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("{}: saturated, running job in the caller thread: {}", _poolName, job);
+                }
+                job.run();
+                break;
+            case BLOCK:
+                _blocked.incrementAndGet();
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("{}: saturated, blocking caller [{} ms]: {}", _poolName, _blockTimeout, job);
+                }
+                boolean queued = false;
+                try {
+                    queued = executor.getQueue().offer(job, _blockTimeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    // restore interrupt flag:
+                    Thread.currentThread().interrupt();
+                    reject(job, "caller interrupted");
+                }
+                if (!queued) {
+                    _timeouts.incrementAndGet();
+                    reject(job, "timeout (" + _blockTimeout + " ms)");
+                }
+                if (executor.isShutdown() && executor.remove(job)) {
+                    // shutdown while blocking:
+                    reject(job, "pool is shutdown");
+                }
+                break;
+            case REJECT:
+                reject(job, "saturated");
+                break;
+            default:
+                throw new IllegalStateException("Unsupported saturation policy: " + _policy);
+        }
+    }
+
+    /**
+     * Count and reject the given job
+     * @param job runnable task
+     * @param reason rejection reason
+     * @throws RejectedExecutionException always
+     */
+    private void reject(final Runnable job, final String reason) throws RejectedExecutionException {
+        final long count = _rejected.incrementAndGet();
+        _logger.warn("{}: job rejected ({}) [{} rejected jobs]", _poolName, reason, count);
+        throw new RejectedExecutionException(_poolName + ": job rejected (" + reason + "): " + job);
+    }
+
+    /**
+     * Return the saturation policy
+     * @return saturation policy
+     */
+    public ThreadExecutors.SaturationPolicy getPolicy() {
+        return _policy;
+    }
+
+    /**
+     * Return the number of jobs executed by the caller thread (CALLER_RUNS)
+     * @return number of jobs executed by the caller thread
+     */
+    public long getCallerRunsCount() {
+        return _callerRuns.get();
+    }
+
+    /**
+     * Return the number of blocked submissions (BLOCK)
+     * @return number of blocked submissions
+     */
+    public long getBlockedCount() {
+        return _blocked.get();
+    }
+
+    /**
+     * Return the number of blocked submissions that timed out (BLOCK)
+     * @return number of timeouts
+     */
+    public long getTimeoutCount() {
+        return _timeouts.get();
+    }
+
+    /**
+     * Return the number of rejected jobs (any policy)
+     * @return number of rejected jobs
+     */
+    public long getRejectedCount() {
+        return _rejected.get();
+    }
+
+    /**
+     * Return true if the pool was saturated at least once
+     * @return true if the pool was saturated at least once
+     */
+    public boolean isSaturated() {
+        return (_callerRuns.get() + _blocked.get() + _rejected.get()) != 0L;
+    }
+
+    /**
+     * Return a string representation of saturation metrics
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        return _poolName + " [" + _policy + "] : callerRuns = " + _callerRuns.get()
+                + ", blocked = " + _blocked.get() + ", timeouts = " + _timeouts.get()
+                + ", rejected = " + _rejected.get();
+    }
+}
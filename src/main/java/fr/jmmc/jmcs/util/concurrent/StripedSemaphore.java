@@ -0,0 +1,326 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import fr.jmmc.jmcs.util.JVMUtils;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped (sharded) counting semaphore for large permit pools shared by many threads:
+ * permits are spread across stripes (one cache line each) so concurrent acquire / release
+ * calls mostly update different cache lines (the stripe is chosen by the thread id).
+ * 
+ * acquire() takes a permit from the thread's stripe first then from other stripes without locking.
+ * acquire(n) with n &gt; 1 always takes the slow path lock so multi-permit requests gather their
+ * permits one at a time (all or nothing) and do not fail each other; if not enough permits are
+ * available, already taken permits are given back and the thread waits for a release.
+ * Threads are not granted in FIFO order (nonfair).
+ * 
+ * Note: availablePermits() is only an estimate (sum of stripes) while permits are moving.
+ * 
+ * @see FastSemaphore
+ * @author agent
+ */
+public final class StripedSemaphore {
+
+    /** padding between stripes (32 x 4 bytes = 128 bytes) to avoid false sharing */
+    private static final int PAD = 32;
+    /** maximum number of stripes */
+    private static final int MAX_STRIPES = 64;
+    /* members */
+    /** number of stripes - 1 (power of 2) */
+    private final int _mask;
+    /** permit counters (padded stripes) */
+    private final AtomicIntegerArray _stripes;
+    /** number of waiting threads */
+    private final AtomicInteger _waiters = new AtomicInteger(0);
+    /** slow path lock */
+    private final ReentrantLock _lock = new ReentrantLock();
+    /** slow path condition signalled when permits are released */
+    private final Condition _released = _lock.newCondition();
+
+    /**
+     * Creates a striped semaphore with the given number of permits and
+     * one stripe per available processor
+     * @param permits the initial number of permits available (&gt;= 0)
+     */
+    public StripedSemaphore(final int permits) {
+        this(permits, JVMUtils.availableProcessors());
+    }
+
+    /**
+     * Creates a striped semaphore with the given number of permits and stripes
+     * @param permits the initial number of permits available (&gt;= 0)
+     * @param stripes number of stripes (rounded to the next power of 2, at most 64)
+     * @throws IllegalArgumentException if permits is negative
+     */
+    public StripedSemaphore(final int permits, final int stripes) {
+        checkPermits(permits);
+        int n = 1;
+        while (n < stripes && n < MAX_STRIPES) {
+            n <<= 1;
+        }
+        _mask = n - 1;
+        _stripes = new AtomicIntegerArray(n * PAD);
+
+        // spread permits:
+        final int share = permits / n;
+        final int remainder = permits % n;
+        for (int i = 0; i < n; i++) {
+            _stripes.set(i * PAD, share + ((i < remainder) ? 1 : 0));
+        }
+    }
+
+    /**
+     * Acquires a permit, blocking until one is available, or the thread is interrupted.
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /**
+     * Acquires the given number of permits, blocking until all are available, or the thread is interrupted.
+     * @param permits the number of permits to acquire
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws IllegalArgumentException if permits is negative
+     */
+    public void acquire(final int permits) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        checkPermits(permits);
+        if (permits > 1 || !gather(permits)) {
+            await(permits, -1L);
+        }
+    }
+
+    /**
+     * Acquires a permit only if one is available at the time of invocation.
+     * @return true if a permit was acquired
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Acquires the given number of permits only if all are available at the time of invocation.
+     * @param permits the number of permits to acquire
+     * @return true if all permits were acquired (none otherwise)
+     * @throws IllegalArgumentException if permits is negative
+     */
+    public boolean tryAcquire(final int permits) {
+        checkPermits(permits);
+        if (permits <= 1) {
+            return gather(permits);
+        }
+        // multiple permits: one gathering thread at a time:
+        _lock.lock();
+        try {
+            return gather(permits);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires the given number of permits only if all are available in stripes (all or nothing)
+     * @param permits the number of permits to acquire
+     * @return true if all permits were acquired (none otherwise)
+     */
+    private boolean gather(final int permits) {
+        if (permits == 0) {
+            return true;
+        }
+        final int n = _mask + 1;
+        final int first = stripeIndex();
+        int needed = permits;
+
+        for (int k = 0; k < n; k++) {
+            needed -= take((first + k) & _mask, needed);
+            if (needed == 0) {
+                return true;
+            }
+        }
+        // not enough permits: give back taken permits (all or nothing):
+        if (needed != permits) {
+            release(permits - needed);
+        }
+        return false;
+    }
+
+    /**
+     * Acquires the given number of permits if all become available within the given waiting time.
+     * @param permits the number of permits to acquire
+     * @param timeout the maximum time to wait for the permits
+     * @param unit the time unit of the timeout argument
+     * @return true if all permits were acquired; false if the waiting time elapsed (none acquired)
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws IllegalArgumentException if permits is negative
+     */
+    public boolean tryAcquire(final int permits, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        checkPermits(permits);
+        if (permits <= 1 && gather(permits)) {
+            return true;
+        }
+        return await(permits, Math.max(0L, unit.toNanos(timeout)));
+    }
+
+    /**
+     * Releases a permit
+     */
+    public void release() {
+        release(1);
+    }
+
+    /**
+     * Releases the given number of permits (in the thread's stripe) and wakes up waiting threads
+     * @param permits the number of permits to release
+     * @throws IllegalArgumentException if permits is negative
+     */
+    public void release(final int permits) {
+        checkPermits(permits);
+        if (permits == 0) {
+            return;
+        }
+        _stripes.getAndAdd(stripeIndex() * PAD, permits);
+
+        // the stripe update happens before reading waiters (waiters re-check stripes after registering):
+        if (_waiters.get() != 0) {
+            _lock.lock();
+            try {
+                _released.signalAll();
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the current number of permits available (sum of stripes)
+     * @return the number of permits available
+     */
+    public int availablePermits() {
+        int sum = 0;
+        for (int i = 0, n = _mask + 1; i < n; i++) {
+            sum += _stripes.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * Return the number of stripes
+     * @return number of stripes
+     */
+    public int getStripes() {
+        return _mask + 1;
+    }
+
+    /**
+     * Slow path: wait for permits
+     * @param permits the number of permits to acquire
+     * @param nanos maximum time to wait in nanoseconds or -1 to wait without timeout
+     * @return true if all permits were acquired
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private boolean await(final int permits, final long nanos) throws InterruptedException {
+        long remaining = nanos;
+        _lock.lockInterruptibly();
+        try {
+            _waiters.incrementAndGet();
+            try {
+                while (!gather(permits)) {
+                    if (nanos < 0L) {
+                        _released.await();
+                    } else {
+                        if (remaining <= 0L) {
+                            return false;
+                        }
+                        remaining = _released.awaitNanos(remaining);
+                    }
+                }
+                return true;
+            } finally {
+                _waiters.decrementAndGet();
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Take at most the given number of permits from the given stripe
+     * @param stripe stripe index
+     * @param max maximum number of permits to take
+     * @return number of permits taken
+     */
+    private int take(final int stripe, final int max) {
+        final int pos = stripe * PAD;
+        int available;
+        int taken;
+        do {
+            available = _stripes.get(pos);
+            if (available <= 0) {
+                return 0;
+            }
+            taken = (available < max) ? available : max;
+        } while (!_stripes.compareAndSet(pos, available, available - taken));
+        return taken;
+    }
+
+    /**
+     * Return the stripe index of the current thread
+     * @return stripe index
+     */
+    private int stripeIndex() {
+        // mix thread id bits (murmur3 finalizer):
+        long h = Thread.currentThread().getId();
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return ((int) h) & _mask;
+    }
+
+    /**
+     * Check the given number of permits
+     * @param permits number of permits
+     * @throws IllegalArgumentException if permits is negative
+     */
+    private static void checkPermits(final int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("permits < 0");
+        }
+    }
+}
@@ -31,6 +31,7 @@ import fr.jmmc.jmcs.util.CollectionUtils;
 import fr.jmmc.jmcs.util.JVMUtils;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
@@ -50,6 +51,14 @@ import org.slf4j.LoggerFactory;
  * <li>generic thread pool : many small tasks (no queue limit, many threads)</li>
  * <li>process thread pool : long tasks (no queue limit, few threads)</li>
  * </ul>
+ * and a stream redirector pool (ProcessRunner stdout / stderr redirectors) that is never bounded.
+ * Generic and process pools can be bounded (max threads, bounded queue and saturation policy) using
+ * configureBoundedPool() before their creation or system properties
+ * (ThreadExecutors.&lt;pool name&gt;.maxThreads, .queueCapacity, .saturation, .blockTimeout).
+ * Any pool (generic, process or single-thread pools) can use virtual threads on Java 21+ for blocking I/O tasks
+ * using setVirtualThreads() before its creation or the system property ThreadExecutors.&lt;pool name&gt;.virtualThreads=true:
+ * generic and process pools then start one virtual thread per task (no pooling, no thread limit, bounded settings ignored)
+ * while single-thread pools keep their single (virtual) thread to run tasks in order.
  *
  * @see ThreadPoolExecutor
  * @author Laurent Bourges (voparis) / Gerard Lemson (mpe)
@@ -64,6 +73,8 @@ public final class ThreadExecutors {
     public static final String GENERIC_THREAD_POOL = "GenericThreadPool";
     /** process thread pool name */
     public static final String PROCESS_THREAD_POOL = "ProcessThreadPool";
+    /** stream redirector thread pool name (ProcessRunner stdout / stderr, never bounded) */
+    public static final String REDIRECT_THREAD_POOL = "RedirectThreadPool";
     /** Generic thread Pool : idle thread keep alive before kill : 120s */
     public static final long GENERIC_THREAD_KEEP_ALIVE = 120L;
     /** Process thread pool type : true to use fixed thread pool (resource limited) or false to use cached thread pool */
@@ -74,6 +85,12 @@ public final class ThreadExecutors {
     public static final int PROCESS_THREAD_MAX = JVMUtils.availableProcessors();
     /** Generic thread pool : minimum threads : 2 */
     public static final int GENERIC_THREAD_MIN = 2;
+    /** Bounded pool : default queue capacity */
+    public static final int BOUNDED_QUEUE_CAPACITY = 256;
+    /** Bounded pool : default maximum time to block the caller (BLOCK policy) : 60s */
+    public static final long BOUNDED_BLOCK_TIMEOUT = 60000L;
+    /** system property prefix for bounded pool settings */
+    private static final String PROPERTY_PREFIX = "ThreadExecutors.";
     /** delay to wait for shutdown */
     public static final long SHUTDOWN_DELAY = 10L;
     /** delay to wait for shutdownNow */
@@ -82,8 +99,26 @@ public final class ThreadExecutors {
     private static volatile ThreadExecutors _genericExecutor;
     /** processRunner thread pool singleton */
     private static volatile ThreadExecutors _runnerExecutor;
+    /** stream redirector thread pool singleton */
+    private static volatile ThreadExecutors _redirectExecutor;
     /** single thread pool singletons : used to shutdown them */
     private static volatile Map<String, ThreadExecutors> _singleExecutors = null;
+    /** virtual thread flags keyed by pool name */
+    private static final Map<String, Boolean> _virtualThreads = new ConcurrentHashMap<String, Boolean>(4);
+    /** bounded pool settings keyed by pool name */
+    private static final Map<String, BoundedPoolSettings> _boundedSettings = new ConcurrentHashMap<String, BoundedPoolSettings>(4);
+
+    /** saturation policy of bounded pools (max threads reached and queue full) */
+    public static enum SaturationPolicy {
+
+        /** run the job in the caller thread (natural back-pressure) */
+        CALLER_RUNS,
+        /** block the caller until the queue accepts the job or the block timeout is exceeded (then reject) */
+        BLOCK,
+        /** reject the job immediately (RejectedExecutionException thrown by the executor,
+        wrapped in an IllegalStateException by execute() and submit()) */
+        REJECT
+    }
     // Members
     /** wrapped Java 5 Thread pool executor */
     private final CustomThreadPoolExecutor _threadExecutor;
@@ -113,8 +148,10 @@ public final class ThreadExecutors {
             logger.debug("ThreadExecutors.new : creating a new thread pool: {}", getPoolName());
         }
 
-        // creates now core threads (min threads) :
-        executor.prestartAllCoreThreads();
+        // creates now core threads (min threads) except for bounded pools (threads created on demand) :
+        if (!executor.allowsCoreThreadTimeOut()) {
+            executor.prestartAllCoreThreads();
+        }
     }
 
     /**
@@ -177,11 +214,15 @@ public final class ThreadExecutors {
             // set flag to indicate the shutdown:
             RUNNING = false;
 
-            // runner first because it uses the generic executor:
+            // runner first because it uses the redirect executor:
             if (_runnerExecutor != null) {
                 _runnerExecutor.stop();
                 _runnerExecutor = null;
             }
+            if (_redirectExecutor != null) {
+                _redirectExecutor.stop();
+                _redirectExecutor = null;
+            }
             if (_genericExecutor != null) {
                 _genericExecutor.stop();
                 _genericExecutor = null;
@@ -225,13 +266,36 @@ public final class ThreadExecutors {
     public static ThreadExecutors getGenericExecutor() {
         checkRunning();
         if (_genericExecutor == null) {
-            _genericExecutor = new ThreadExecutors(
-                    newCachedThreadPool(GENERIC_THREAD_POOL, GENERIC_THREAD_MIN, new CustomThreadFactory(GENERIC_THREAD_POOL)));
+            if (useVirtualThreads(GENERIC_THREAD_POOL)) {
+                _genericExecutor = new ThreadExecutors(newVirtualThreadPool(GENERIC_THREAD_POOL));
+            } else {
+                final BoundedPoolSettings settings = getBoundedPoolSettings(GENERIC_THREAD_POOL);
+                _genericExecutor = new ThreadExecutors(
+                        (settings != null) ? newBoundedThreadPool(GENERIC_THREAD_POOL, settings, new CustomThreadFactory(GENERIC_THREAD_POOL))
+                        : newCachedThreadPool(GENERIC_THREAD_POOL, GENERIC_THREAD_MIN, new CustomThreadFactory(GENERIC_THREAD_POOL)));
+            }
         }
 
         return _genericExecutor;
     }
 
+    /**
+     * Return the stream redirector thread pool or create it (lazy): always unbounded (cached thread pool)
+     * as ProcessRunner waits for both stdout and stderr redirectors that must run concurrently
+     * (a bounded pool could block, reject or queue the second one and never drain its stream)
+     *
+     * @return stream redirector thread pool
+     */
+    public static ThreadExecutors getRedirectExecutor() {
+        checkRunning();
+        if (_redirectExecutor == null) {
+            _redirectExecutor = new ThreadExecutors(useVirtualThreads(REDIRECT_THREAD_POOL) ? newVirtualThreadPool(REDIRECT_THREAD_POOL)
+                    : newCachedThreadPool(REDIRECT_THREAD_POOL, GENERIC_THREAD_MIN, new CustomThreadFactory(REDIRECT_THREAD_POOL)));
+        }
+
+        return _redirectExecutor;
+    }
+
     /**
      * Return the process thread pool or create it (lazy)
      *
@@ -242,9 +306,15 @@ public final class ThreadExecutors {
     public static ThreadExecutors getRunnerExecutor() {
         checkRunning();
         if (_runnerExecutor == null) {
-            _runnerExecutor = new ThreadExecutors(
-                    PROCESS_THREAD_FIXED ? newFixedThreadPool(PROCESS_THREAD_POOL, PROCESS_THREAD_MAX, new CustomThreadFactory(PROCESS_THREAD_POOL))
-                    : newCachedThreadPool(PROCESS_THREAD_POOL, PROCESS_THREAD_MIN, new CustomThreadFactory(PROCESS_THREAD_POOL)));
+            if (useVirtualThreads(PROCESS_THREAD_POOL)) {
+                _runnerExecutor = new ThreadExecutors(newVirtualThreadPool(PROCESS_THREAD_POOL));
+            } else {
+                final BoundedPoolSettings settings = getBoundedPoolSettings(PROCESS_THREAD_POOL);
+                _runnerExecutor = new ThreadExecutors(
+                        (settings != null) ? newBoundedThreadPool(PROCESS_THREAD_POOL, settings, new CustomThreadFactory(PROCESS_THREAD_POOL))
+                        : PROCESS_THREAD_FIXED ? newFixedThreadPool(PROCESS_THREAD_POOL, PROCESS_THREAD_MAX, new CustomThreadFactory(PROCESS_THREAD_POOL))
+                        : newCachedThreadPool(PROCESS_THREAD_POOL, PROCESS_THREAD_MIN, new CustomThreadFactory(PROCESS_THREAD_POOL)));
+            }
         }
 
         return _runnerExecutor;
@@ -275,7 +345,9 @@ public final class ThreadExecutors {
 
         ThreadExecutors e = m.get(name);
         if (e == null) {
-            e = new ThreadExecutors(newFixedThreadPool(name, 1, new CustomThreadFactory(name)), doShutdown);
+            // single (virtual) thread to keep the task order:
+            e = new ThreadExecutors(newFixedThreadPool(name, 1,
+                    useVirtualThreads(name) ? VirtualThreads.newThreadFactory(name) : new CustomThreadFactory(name)), doShutdown);
 
             final ThreadExecutors old = m.put(name, e);
             if (old != null) {
@@ -319,6 +391,175 @@ public final class ThreadExecutors {
                 TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
     }
 
+    /**
+     * Creates a thread-per-task pool of virtual threads: no core thread, no queue (direct hand-off),
+     * no keep-alive and no thread limit so every task starts a new virtual thread.
+     *
+     * @param pPoolName thread pool name
+     * @return the newly created thread pool
+     */
+    private static CustomThreadPoolExecutor newVirtualThreadPool(final String pPoolName) {
+        if (getBoundedPoolSettings(pPoolName) != null) {
+            logger.info("ThreadExecutors : bounded settings ignored for thread pool {} (virtual threads)", pPoolName);
+        }
+        return new CustomThreadPoolExecutor(pPoolName, 0, Integer.MAX_VALUE, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<Runnable>(), VirtualThreads.newThreadFactory(pPoolName));
+    }
+
+    /**
+     * Creates a bounded thread pool: threads are created on demand up to maxThreads (idle threads
+     * are killed after GENERIC_THREAD_KEEP_ALIVE), then jobs are queued up to queueCapacity;
+     * when saturated, the saturation policy applies.
+     *
+     * @param pPoolName thread pool name
+     * @param settings bounded pool settings
+     * @param threadFactory the factory to use when creating new threads
+     * @return the newly created thread pool
+     */
+    private static CustomThreadPoolExecutor newBoundedThreadPool(final String pPoolName, final BoundedPoolSettings settings,
+                                                                 final ThreadFactory threadFactory) {
+        logger.info("ThreadExecutors : creating bounded thread pool: {}", settings);
+
+        final CustomThreadPoolExecutor executor = new CustomThreadPoolExecutor(pPoolName, settings.maxThreads, settings.maxThreads,
+                GENERIC_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(settings.queueCapacity), threadFactory,
+                new SaturationHandler(pPoolName, settings.policy, settings.blockTimeout));
+        // core threads = max threads to create threads before queueing jobs:
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Define the bounded mode of the given thread pool (GENERIC_THREAD_POOL or PROCESS_THREAD_POOL).
+     * Note: must be called before the thread pool creation (lazy) to be effective
+     *
+     * @param poolName thread pool name
+     * @param maxThreads maximum number of threads (&gt; 0)
+     * @param queueCapacity queue capacity (&gt; 0)
+     * @param policy saturation policy
+     * @param blockTimeout maximum time to block the caller in milliseconds (BLOCK policy)
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public static void configureBoundedPool(final String poolName, final int maxThreads, final int queueCapacity,
+                                            final SaturationPolicy policy, final long blockTimeout) throws IllegalArgumentException {
+        if (maxThreads <= 0 || queueCapacity <= 0 || policy == null || blockTimeout < 0L) {
+            throw new IllegalArgumentException("Invalid bounded pool settings for " + poolName);
+        }
+        if ((GENERIC_THREAD_POOL.equals(poolName) && _genericExecutor != null)
+                || (PROCESS_THREAD_POOL.equals(poolName) && _runnerExecutor != null)) {
+            logger.warn("ThreadExecutors : thread pool {} already created; bounded settings ignored until restart.", poolName);
+        }
+        _boundedSettings.put(poolName, new BoundedPoolSettings(poolName, maxThreads, queueCapacity, policy, blockTimeout));
+    }
+
+    /**
+     * Create a bounded thread pool (not shared) with the given settings
+     * @param poolName thread pool name
+     * @param maxThreads maximum number of threads (&gt; 0)
+     * @param queueCapacity queue capacity (&gt; 0)
+     * @param policy saturation policy
+     * @param blockTimeout maximum time to block the caller in milliseconds (BLOCK policy)
+     * @return bounded thread pool
+     */
+    static ThreadExecutors newBoundedExecutor(final String poolName, final int maxThreads, final int queueCapacity,
+                                              final SaturationPolicy policy, final long blockTimeout) {
+        return new ThreadExecutors(newBoundedThreadPool(poolName,
+                new BoundedPoolSettings(poolName, maxThreads, queueCapacity, policy, blockTimeout),
+                new CustomThreadFactory(poolName)), false);
+    }
+
+    /**
+     * Creates a thread-per-task pool of virtual threads (not registered, not shut down by stopExecutors())
+     *
+     * @param poolName thread pool name
+     * @return thread-per-task virtual thread pool
+     * @throws IllegalStateException if virtual threads are not supported
+     */
+    static ThreadExecutors newVirtualExecutor(final String poolName) {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("Virtual threads not supported (Java 21+ required)");
+        }
+        return new ThreadExecutors(newVirtualThreadPool(poolName), false);
+    }
+
+    /**
+     * Return the bounded settings of the given thread pool (configureBoundedPool or system properties)
+     * @param poolName thread pool name
+     * @return bounded settings or null if the thread pool is not bounded
+     */
+    private static BoundedPoolSettings getBoundedPoolSettings(final String poolName) {
+        BoundedPoolSettings settings = _boundedSettings.get(poolName);
+        if (settings == null) {
+            final String prefix = PROPERTY_PREFIX + poolName + '.';
+            final String maxThreads = System.getProperty(prefix + "maxThreads");
+            if (maxThreads != null) {
+                try {
+                    settings = new BoundedPoolSettings(poolName, Integer.parseInt(maxThreads),
+                            Integer.parseInt(System.getProperty(prefix + "queueCapacity", String.valueOf(BOUNDED_QUEUE_CAPACITY))),
+                            SaturationPolicy.valueOf(System.getProperty(prefix + "saturation", SaturationPolicy.BLOCK.name())),
+                            Long.parseLong(System.getProperty(prefix + "blockTimeout", String.valueOf(BOUNDED_BLOCK_TIMEOUT))));
+                } catch (IllegalArgumentException iae) {
+                    logger.warn("ThreadExecutors : invalid bounded settings for thread pool {} (system properties)", poolName, iae);
+                    return null;
+                }
+                if (settings.maxThreads <= 0 || settings.queueCapacity <= 0) {
+                    logger.warn("ThreadExecutors : invalid bounded settings for thread pool {} : {}", poolName, settings);
+                    return null;
+                }
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Return true if virtual threads are supported (Java 21+)
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Define whether the given thread pool uses virtual threads (Java 21+) for blocking I/O tasks;
+     * ignored if virtual threads are not supported (platform threads).
+     * Note: must be called before the thread pool creation (lazy) to be effective
+     *
+     * @param poolName thread pool name (GENERIC_THREAD_POOL, PROCESS_THREAD_POOL or single-thread pool name)
+     * @param enabled true to use virtual threads
+     */
+    public static void setVirtualThreads(final String poolName, final boolean enabled) {
+        _virtualThreads.put(poolName, Boolean.valueOf(enabled));
+    }
+
+    /**
+     * Return true if the given thread pool uses virtual threads (setVirtualThreads or system property)
+     * @param poolName thread pool name
+     * @return true if the given thread pool uses virtual threads
+     */
+    public static boolean isVirtualThreads(final String poolName) {
+        final Boolean enabled = _virtualThreads.get(poolName);
+        if (enabled != null) {
+            return enabled.booleanValue();
+        }
+        return "true".equalsIgnoreCase(System.getProperty(PROPERTY_PREFIX + poolName + ".virtualThreads", "false"));
+    }
+
+    /**
+     * Return true if the given thread pool must use virtual threads (enabled and supported)
+     * @param poolName thread pool name
+     * @return true to use virtual threads; false to use platform threads (CustomThreadFactory)
+     */
+    private static boolean useVirtualThreads(final String poolName) {
+        if (isVirtualThreads(poolName)) {
+            if (VirtualThreads.isSupported()) {
+                logger.info("ThreadExecutors : thread pool {} uses virtual threads", poolName);
+                return true;
+            }
+            logger.info("ThreadExecutors : virtual threads not supported (Java 21+ required); "
+                    + "thread pool {} uses platform threads", poolName);
+        }
+        return false;
+    }
+
     /* end of static methods */
     /**
      * Return the internal ThreadPoolExecutor
@@ -328,6 +569,15 @@ public final class ThreadExecutors {
         return _threadExecutor;
     }
 
+    /**
+     * Return the saturation handler (metrics) of this thread pool
+     * @return saturation handler or null if this thread pool is not bounded
+     */
+    public SaturationHandler getSaturationHandler() {
+        final Object handler = getExecutor().getRejectedExecutionHandler();
+        return (handler instanceof SaturationHandler) ? (SaturationHandler) handler : null;
+    }
+
     /**
      * Executes the given command at some time in the future. The command may execute in a new thread,
      * in a pooled thread, or in the calling thread, at the discretion of the <tt>Executor</tt>
@@ -402,6 +652,11 @@ public final class ThreadExecutors {
             logger.debug("ThreadExecutors.stop : starting shutdown: {}", getPoolName());
         }
 
+        final SaturationHandler handler = getSaturationHandler();
+        if (handler != null && handler.isSaturated()) {
+            logger.info("ThreadExecutors.stop : saturation metrics: {}", handler);
+        }
+
         getExecutor().shutdown();
 
         boolean terminated;
@@ -442,4 +697,36 @@ public final class ThreadExecutors {
     private String getPoolName() {
         return getExecutor().getPoolName();
     }
+
+    /**
+     * Bounded thread pool settings
+     */
+    private static final class BoundedPoolSettings {
+
+        /** thread pool name */
+        final String poolName;
+        /** maximum number of threads */
+        final int maxThreads;
+        /** queue capacity */
+        final int queueCapacity;
+        /** saturation policy */
+        final SaturationPolicy policy;
+        /** maximum time to block the caller (ms) */
+        final long blockTimeout;
+
+        BoundedPoolSettings(final String poolName, final int maxThreads, final int queueCapacity,
+                            final SaturationPolicy policy, final long blockTimeout) {
+            this.poolName = poolName;
+            this.maxThreads = maxThreads;
+            this.queueCapacity = queueCapacity;
+            this.policy = policy;
+            this.blockTimeout = blockTimeout;
+        }
+
+        @Override
+        public String toString() {
+            return poolName + " {maxThreads = " + maxThreads + ", queueCapacity = " + queueCapacity
+                    + ", saturation = " + policy + ", blockTimeout = " + blockTimeout + " ms}";
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread support (Java 21+) used by ThreadExecutors for blocking I/O pools.
+ * 
+ * This class is the Java 8 implementation (virtual threads not supported); the multi-release jar
+ * contains the Java 21 implementation in META-INF/versions/21 (see src/main/java21).
+ *
+ * @author agent
+ */
+final class VirtualThreads {
+
+    /**
+     * Forbidden constructor
+     */
+    private VirtualThreads() {
+        super();
+    }
+
+    /**
+     * Return true if virtual threads are supported by this JVM
+     * @return false (Java 8 implementation)
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Return a thread factory creating virtual threads
+     * @param pPoolName thread pool name
+     * @return null (Java 8 implementation)
+     */
+    static ThreadFactory newThreadFactory(final String pPoolName) {
+        return null;
+    }
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class splits an integer range [start; end[ into per-worker slots and
+ * balances the load among workers by range stealing:
+ * - each worker consumes its own slot by chunks of grainSize indices (from the lower bound)
+ * - an idle worker steals the upper half of the largest remaining slot
+ * 
+ * Each slot state is packed in a single long (lower bound | upper bound) to be
+ * updated atomically (CAS) and slots are padded to avoid false sharing.
+ * 
+ * @author agent
+ */
+final class WorkStealingRange {
+
+    /** padding between slots (16 longs = 128 bytes) to avoid false sharing */
+    private final static int PAD = 16;
+    /** number of chunks per worker when the grain size is automatic */
+    private final static int AUTO_CHUNKS_PER_WORKER = 8;
+    /* members */
+    /** loop body */
+    private final IntRangeBody _body;
+    /** grain size i.e. number of indices processed at once */
+    private final int _grainSize;
+    /** number of slots (workers) */
+    private final int _nSlots;
+    /** packed slot states [lower bound | upper bound] */
+    private final AtomicLongArray _slots;
+    /** cancellation flag (set when any worker fails or is interrupted) */
+    private volatile boolean _cancelled = false;
+
+    /**
+     * Return the automatic grain size for the given range length and number of workers
+     * @param length range length
+     * @param nWorkers number of workers
+     * @return grain size (at least 1)
+     */
+    static int autoGrainSize(final long length, final int nWorkers) {
+        final long grain = length / ((long) nWorkers * AUTO_CHUNKS_PER_WORKER);
+        return (grain < 1L) ? 1 : (int) Math.min(grain, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Protected constructor
+     * @param start first index (inclusive)
+     * @param end last index (exclusive)
+     * @param grainSize grain size (&gt; 0)
+     * @param nSlots number of slots (workers)
+     * @param body loop body
+     */
+    WorkStealingRange(final int start, final int end, final int grainSize, final int nSlots, final IntRangeBody body) {
+        _body = body;
+        _grainSize = grainSize;
+        _nSlots = nSlots;
+        _slots = new AtomicLongArray(nSlots * PAD);
+
+        // initial even partition:
+        final long length = (long) end - start;
+        for (int i = 0; i < nSlots; i++) {
+            final int lo = start + (int) ((length * i) / nSlots);
+            final int hi = start + (int) ((length * (i + 1)) / nSlots);
+            _slots.set(i * PAD, pack(lo, hi));
+        }
+    }
+
+    /**
+     * Return one job per slot
+     * @return runnable jobs
+     */
+    Runnable[] createJobs() {
+        final Runnable[] jobs = new Runnable[_nSlots];
+        for (int i = 0; i < _nSlots; i++) {
+            final int slot = i;
+            jobs[i] = new Runnable() {
+                @Override
+                public void run() {
+                    process(slot);
+                }
+            };
+        }
+        return jobs;
+    }
+
+    /**
+     * Process the given slot then steal work from other slots until the whole range is done
+     * @param slot slot index
+     */
+    void process(final int slot) {
+        final int pos = slot * PAD;
+        final int grainSize = _grainSize;
+        final Thread currentTh = Thread.currentThread();
+        // nested parallelFor calls from the body run inline:
+        final int[] bodyDepth = ParallelJobExecutor.bodyDepth();
+        bodyDepth[0]++;
+        boolean done = false;
+        try {
+            do {
+                long state;
+                int lo, hi, next;
+                // consume own slot by chunks:
+                while (!_cancelled) {
+                    state = _slots.get(pos);
+                    lo = lower(state);
+                    hi = upper(state);
+                    if (lo >= hi) {
+                        break;
+                    }
+                    next = ((long) hi - lo > grainSize) ? lo + grainSize : hi;
+
+                    if (_slots.compareAndSet(pos, state, pack(next, hi))) {
+                        _body.run(lo, next);
+
+                        // fast interrupt :
+                        if (currentTh.isInterrupted()) {
+                            _cancelled = true;
+                        }
+                    }
+                }
+            } while (!_cancelled && steal(pos));
+            done = true;
+        } finally {
+            bodyDepth[0]--;
+            if (!done) {
+                // stop other workers asap:
+                _cancelled = true;
+            }
+        }
+    }
+
+    /**
+     * Steal the upper half of the largest remaining slot and store it in the given slot
+     * @param pos position of the thief slot
+     * @return true if a range was stolen; false if there is no more work to steal
+     */
+    private boolean steal(final int pos) {
+        final int nSlots = _nSlots;
+        final int slot = pos / PAD;
+
+        for (;;) {
+            int victim = -1;
+            long victimState = 0L;
+            long best = _grainSize; // only split ranges larger than the grain size
+
+            for (int k = 1; k < nSlots; k++) {
+                final int i = ((slot + k) % nSlots) * PAD;
+                final long state = _slots.get(i);
+                final long remaining = (long) upper(state) - lower(state);
+                if (remaining > best) {
+                    best = remaining;
+                    victim = i;
+                    victimState = state;
+                }
+            }
+            if (victim == -1) {
+                return false;
+            }
+            final int lo = lower(victimState);
+            final int hi = upper(victimState);
+            final int mid = lo + (int) (((long) hi - lo) >>> 1);
+
+            if (_slots.compareAndSet(victim, victimState, pack(lo, mid))) {
+                // own slot is empty so no other thread modifies it:
+                _slots.set(pos, pack(mid, hi));
+                return true;
+            }
+            // contention: retry
+        }
+    }
+
+    /**
+     * Pack the given bounds into a long value
+     * @param lo lower bound (inclusive)
+     * @param hi upper bound (exclusive)
+     * @return packed state
+     */
+    private static long pack(final int lo, final int hi) {
+        return (((long) lo) << 32) | (hi & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Return the lower bound of the given packed state
+     * @param state packed state
+     * @return lower bound (inclusive)
+     */
+    private static int lower(final long state) {
+        return (int) (state >>> 32);
+    }
+
+    /**
+     * Return the upper bound of the given packed state
+     * @param state packed state
+     * @return upper bound (exclusive)
+     */
+    private static int upper(final long state) {
+        return (int) state;
+    }
+}
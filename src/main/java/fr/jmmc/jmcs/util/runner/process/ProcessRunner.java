@@ -113,11 +113,11 @@ public final class ProcessRunner {
                 // start StreamRedirectors and place in runnable state :
                 _logger.debug("ProcessRunner.execute : starting outputRedirect task ...");
 
-                outputFuture = ThreadExecutors.getGenericExecutor().submit(outputRedirect);
+                outputFuture = ThreadExecutors.getRedirectExecutor().submit(outputRedirect);
 
                 _logger.debug("ProcessRunner.execute : starting errorRedirect task ...");
 
-                errorFuture = ThreadExecutors.getGenericExecutor().submit(errorRedirect);
+                errorFuture = ThreadExecutors.getRedirectExecutor().submit(errorRedirect);
 
                 _logger.debug("ProcessRunner.execute : waitFor process to end ...");
 
@@ -27,9 +27,14 @@
  ******************************************************************************/
 package fr.jmmc.jmcs.util.timer;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * This class defines an Abstract Timer Object to have statistics on time metrics
  *
+ * Note: implementations must be thread-safe (timers are shared by all threads)
+ *
  * @author Laurent BOURGES (voparis).
  */
 public abstract class AbstractTimer {
@@ -39,8 +44,12 @@ public abstract class AbstractTimer {
     private final String _category;
     /** unit */
     private final TimerFactory.UNIT _unit;
-    /** usage counter */
+    /** usage counter (updated by child classes not overriding countUsage()) */
     protected int _usage = 0;
+    /** sampling period (1 = every scope is recorded) */
+    private volatile int _sampling = 1;
+    /** child timers (sub-phases) keyed by name (lazy) */
+    private volatile ConcurrentHashMap<String, AbstractTimer> _children = null;
 
     /**
      * Protected Constructor for AbstractTimer objects : use the factory pattern
@@ -57,6 +66,82 @@ public abstract class AbstractTimer {
 
     // ~ Methods
     // ----------------------------------------------------------------------------------------------------------
+    /**
+     * Start a timing scope (try-with-resources) recording the elapsed time when closed.
+     * Returns TimerScope.DISABLED if timers are disabled or if this scope is not sampled (1 in N)
+     *
+     * @see TimerFactory#isEnabled()
+     * @see #setSampling(int)
+     * @return timing scope
+     */
+    public final TimerScope start() {
+        if (!TimerFactory.isEnabled()) {
+            return TimerScope.DISABLED;
+        }
+        final int sampling = _sampling;
+        if (sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+            return TimerScope.DISABLED;
+        }
+        return new TimerScope(this, null, System.nanoTime());
+    }
+
+    /**
+     * Return the sampling period ie 1 scope in N is recorded
+     *
+     * @return sampling period (1 = all scopes)
+     */
+    public final int getSampling() {
+        return _sampling;
+    }
+
+    /**
+     * Define the sampling period ie 1 scope in N is recorded (randomly) to reduce the overhead on hot paths.
+     * Note: statistics (usage, percentiles) then only represent the sampled scopes
+     *
+     * @param sampling sampling period (1 = all scopes)
+     * @throws IllegalArgumentException if sampling &lt; 1
+     */
+    public final void setSampling(final int sampling) {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("Invalid sampling period: " + sampling);
+        }
+        _sampling = sampling;
+    }
+
+    /**
+     * Return the child timer 'category/name' (same unit and threshold) cached per name to avoid
+     * building the category and looking it up in the TimerFactory for every child scope
+     *
+     * @see TimerScope#child(String)
+     * @param name sub-phase name
+     * @return child timer
+     */
+    final AbstractTimer getChild(final String name) {
+        ConcurrentHashMap<String, AbstractTimer> children = _children;
+        if (children == null) {
+            synchronized (this) {
+                children = _children;
+                if (children == null) {
+                    children = new ConcurrentHashMap<String, AbstractTimer>(4);
+                    _children = children;
+                }
+            }
+        }
+        AbstractTimer child = children.get(name);
+        if (child == null) {
+            final String category = _category + TimerScope.CATEGORY_SEPARATOR + name;
+
+            if (this instanceof ThresholdTimer) {
+                child = TimerFactory.getTimer(category, _unit, ((ThresholdTimer) this).getThreshold());
+            } else {
+                child = TimerFactory.getSimpleTimer(category, _unit);
+            }
+            // TimerFactory returns the same instance for concurrent lookups:
+            children.put(name, child);
+        }
+        return child;
+    }
+
     /**
      * Add a time measure in milliseconds
      *
@@ -110,16 +195,55 @@ public abstract class AbstractTimer {
      * @return usage counter
      */
     public final int getUsage() {
-        return _usage;
+        return _usage + countUsage();
+    }
+
+    /**
+     * Return the usage counter maintained by this implementation (in addition to _usage)
+     *
+     * Note: to override in child classes counting samples themselves (thread-safe)
+     *
+     * @return usage counter (0 by default)
+     */
+    protected int countUsage() {
+        return 0;
     }
 
     /**
      * Return the time statistics
      *
+     * Note: timers return a merged copy so modifying or resetting it has no effect on the timer
+     *
      * @return time statistics
      */
     public abstract StatLong getTimeStatistics();
 
+    /**
+     * Return the time histogram
+     *
+     * @return time histogram
+     */
+    public abstract Histogram getHistogram();
+
+    /**
+     * Return the rolling-window (1, 5, 15 minutes) and EWMA statistics
+     * (empty unless rolling statistics were enabled when the timer was created)
+     *
+     * @see TimerFactory#setRollingStatistics(boolean)
+     * @return rolling-window and EWMA statistics
+     */
+    public abstract RollingStatLong getRollingStatistics();
+
+    /**
+     * Return the time value at the given percentile (p50, p90, p99, p99.9 ...)
+     *
+     * @param percentile percentile in [0; 100]
+     * @return time value at the given percentile or NaN if no value
+     */
+    public final double getPercentile(final double percentile) {
+        return getHistogram().getValueAtPercentile(percentile);
+    }
+
     /**
      * Return a string representation like "Timer (#unit) [#n]"
      *
@@ -141,6 +265,6 @@ public abstract class AbstractTimer {
      * @param full true to get complete information; false to get main information (shorter)
      */
     public void toString(final StringBuilder sb, final boolean full) {
-        sb.append("Timer [").append(_category).append(" - ").append(_unit).append("] [").append(_usage).append("]\t");
+        sb.append("Timer [").append(_category).append(" - ").append(_unit).append("] [").append(getUsage()).append("]\t");
     }
 }
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.timer;
+
+import fr.jmmc.jmcs.util.NumberUtils;
+import fr.jmmc.jmcs.util.ToStringable;
+import java.util.Arrays;
+
+/**
+ * Fixed-memory log-linear histogram (HDR-style) to estimate percentiles of positive values.
+ *
+ * Buckets are indexed by the binary exponent and the first mantissa bits of each value (precision)
+ * so the relative error is at most 2^-precision whatever the magnitude; values are clamped to the
+ * [2^MIN_EXPONENT, 2^(MAX_EXPONENT + 1)[ range. Memory = (MAX_EXPONENT - MIN_EXPONENT + 1) x 2^precision ints.
+ *
+ * Note: this class is not thread-safe; timers record values in per-cell histograms (claimed cells)
+ * and return merged Histogram snapshots
+ *
+ * @author agent
+ */
+public final class Histogram implements ToStringable {
+
+    /** default precision (mantissa bits) = 4 (6% relative error, 4K bytes) */
+    public final static int DEFAULT_PRECISION = 4;
+    /** minimum precision (mantissa bits) */
+    public final static int MIN_PRECISION = 1;
+    /** maximum precision (mantissa bits) */
+    public final static int MAX_PRECISION = 10;
+    /** minimum binary exponent (~ 1e-6) */
+    private final static int MIN_EXPONENT = -20;
+    /** maximum binary exponent (~ 1e13) */
+    private final static int MAX_EXPONENT = 43;
+    /** percentiles given by toString() */
+    private final static double[] PERCENTILES = new double[]{50d, 90d, 99d, 99.9d};
+    /** percentile labels */
+    private final static String[] PERCENTILE_LABELS = new String[]{"p50", "p90", "p99", "p99.9"};
+    // Members
+    /** precision (mantissa bits) */
+    private final int _precision;
+    /** bucket counts */
+    private final int[] _counts;
+    /** total count */
+    private long _count;
+    /** minimum value */
+    private double _min;
+    /** maximum value */
+    private double _max;
+
+    /**
+     * Creates a new Histogram with the default precision
+     */
+    public Histogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new Histogram with the given precision
+     *
+     * @param precision number of mantissa bits in [MIN_PRECISION; MAX_PRECISION]
+     * @throws IllegalArgumentException if the precision is out of range
+     */
+    public Histogram(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid histogram precision: " + precision);
+        }
+        _precision = precision;
+        _counts = new int[length(precision)];
+        reset();
+    }
+
+    /**
+     * reset values
+     */
+    public void reset() {
+        Arrays.fill(_counts, 0);
+        _count = 0L;
+        _min = Double.POSITIVE_INFINITY;
+        _max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Return a copy of this histogram
+     *
+     * @return new Histogram instance
+     */
+    public Histogram copy() {
+        final Histogram histogram = new Histogram(_precision);
+        histogram.add(this);
+        return histogram;
+    }
+
+    /**
+     * Add the given value in this histogram (only positive values)
+     *
+     * @param value double value to add
+     */
+    public void add(final double value) {
+        if (value > 0d) {
+            _counts[index(value)]++;
+            _count++;
+            if (value < _min) {
+                _min = value;
+            }
+            if (value > _max) {
+                _max = value;
+            }
+        }
+    }
+
+    /**
+     * Merge the given histogram in this instance
+     *
+     * @param histogram histogram to add in this instance
+     * @throws IllegalArgumentException if both precisions are different
+     */
+    public void add(final Histogram histogram) {
+        if (histogram._precision != _precision) {
+            throw new IllegalArgumentException("Incompatible histogram precision: " + histogram._precision + " <> " + _precision);
+        }
+        if (histogram._count != 0L) {
+            final int[] counts = histogram._counts;
+            for (int i = 0; i < counts.length; i++) {
+                _counts[i] += counts[i];
+            }
+            _count += histogram._count;
+            if (histogram._min < _min) {
+                _min = histogram._min;
+            }
+            if (histogram._max > _max) {
+                _max = histogram._max;
+            }
+        }
+    }
+
+    /**
+     * Return the value at the given percentile ie the value such as the given percentage of values
+     * are lower or equal (bucket middle value within [min; max]; p0 = min and p100 = max)
+     *
+     * @param percentile percentile in [0; 100]
+     * @return value at the given percentile or NaN if empty
+     */
+    public double getValueAtPercentile(final double percentile) {
+        if (_count == 0L) {
+            return Double.NaN;
+        }
+        final double p = Math.min(100d, Math.max(0d, percentile));
+        if (p == 0d) {
+            return _min;
+        }
+        if (p == 100d) {
+            return _max;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(0.01d * p * _count));
+
+        long acc = 0L;
+        for (int i = 0; i < _counts.length; i++) {
+            acc += _counts[i];
+            if (acc >= rank) {
+                return Math.min(_max, Math.max(_min, bucketMiddle(i)));
+            }
+        }
+        return _max;
+    }
+
+    /**
+     * Return the precision (mantissa bits)
+     *
+     * @return precision
+     */
+    public int getPrecision() {
+        return _precision;
+    }
+
+    /**
+     * Return the number of values
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return _count;
+    }
+
+    /**
+     * Return the minimum value
+     *
+     * @return minimum value
+     */
+    public double getMin() {
+        return _min;
+    }
+
+    /**
+     * Return the maximum value
+     *
+     * @return maximum value
+     */
+    public double getMax() {
+        return _max;
+    }
+
+    /**
+     * Return the bucket index of the given positive value
+     *
+     * @param value positive value
+     * @return bucket index
+     */
+    private int index(final double value) {
+        return index(value, _precision);
+    }
+
+    /**
+     * Return the number of buckets for the given precision
+     *
+     * @param precision number of mantissa bits
+     * @return number of buckets
+     */
+    private static int length(final int precision) {
+        return (MAX_EXPONENT - MIN_EXPONENT + 1) << precision;
+    }
+
+    /**
+     * Return the bucket index of the given positive value
+     *
+     * @param value positive value
+     * @param precision number of mantissa bits
+     * @return bucket index
+     */
+    static int index(final double value, final int precision) {
+        final long bits = Double.doubleToRawLongBits(value);
+        final int exponent = (int) (bits >>> 52) - 1023;
+
+        if (exponent < MIN_EXPONENT) {
+            return 0;
+        }
+        if (exponent > MAX_EXPONENT) {
+            return length(precision) - 1;
+        }
+        final int mantissa = (int) (bits >>> (52 - precision)) & ((1 << precision) - 1);
+        return ((exponent - MIN_EXPONENT) << precision) | mantissa;
+    }
+
+    /**
+     * Return the middle value of the given bucket
+     *
+     * @param index bucket index
+     * @return middle value
+     */
+    private double bucketMiddle(final int index) {
+        final int exponent = (index >> _precision) + MIN_EXPONENT;
+        final int mantissa = index & ((1 << _precision) - 1);
+        return Math.scalb(1d + (mantissa + 0.5d) / (1 << _precision), exponent);
+    }
+
+    /**
+     * Return a string representation
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(128);
+        toString(sb, true);
+        return sb.toString();
+    }
+
+    /**
+     * toString() implementation using string builder
+     *
+     * @param sb string builder to append to
+     * @param full true to get complete information; false to get main information (shorter)
+     */
+    @Override
+    public void toString(final StringBuilder sb, final boolean full) {
+        sb.append('{');
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            if (i != 0) {
+                sb.append(",\t");
+            }
+            sb.append(PERCENTILE_LABELS[i]).append(" = ")
+                    .append(NumberUtils.trimTo5Digits(getValueAtPercentile(PERCENTILES[i])));
+        }
+        if (full) {
+            sb.append(",\tprecision = ").append(_precision);
+        }
+        sb.append('}');
+    }
+}
@@ -0,0 +1,338 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.timer;
+
+import fr.jmmc.jmcs.util.NumberUtils;
+import fr.jmmc.jmcs.util.ToStringable;
+
+/**
+ * Time-windowed statistics for long-running processes:
+ * - rolling windows (last 1, 5 and 15 minutes + current partial bucket) stored in a ring of StatLong buckets (10s each)
+ * - exponentially weighted moving averages (EWMA) of the rate (values per second) and of the value (latency)
+ * with 1, 5 and 15 minutes time constants (like the Unix load average)
+ *
+ * add() is O(1) (amortized); EWMA are updated once per bucket and rely on linear accumulators
+ * (count, sum) so several instances can be merged exactly.
+ *
+ * Note: this class is not thread-safe (timers guard it)
+ *
+ * @author agent
+ */
+public final class RollingStatLong implements ToStringable {
+
+    /** bucket duration = 10s (ns) */
+    public final static long BUCKET_NANOS = 10L * 1000L * 1000L * 1000L;
+    /** window durations in minutes */
+    public final static int[] WINDOWS = new int[]{1, 5, 15};
+    /** bucket duration in seconds */
+    private final static double BUCKET_SECONDS = 1e-9d * BUCKET_NANOS;
+    /** number of buckets = 15 minutes + current bucket */
+    private final static int BUCKETS = 1 + (int) (60L * 1000L * 1000L * 1000L * WINDOWS[WINDOWS.length - 1] / BUCKET_NANOS);
+    /** EWMA smoothing factors per bucket */
+    private final static double[] ALPHAS = new double[WINDOWS.length];
+
+    static {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            ALPHAS[i] = 1d - Math.exp(-BUCKET_SECONDS / (60d * WINDOWS[i]));
+        }
+    }
+    // Members
+    /** bucket statistics (lazily created) */
+    private final StatLong[] _buckets = new StatLong[BUCKETS];
+    /** bucket time slots */
+    private final long[] _slots = new long[BUCKETS];
+    /** last time slot folded in EWMA (Long.MIN_VALUE if undefined) */
+    private long _ewmaSlot = Long.MIN_VALUE;
+    /** EWMA of the count per bucket */
+    private final double[] _ewmaCount = new double[WINDOWS.length];
+    /** EWMA of the sum per bucket */
+    private final double[] _ewmaSum = new double[WINDOWS.length];
+
+    /**
+     * Creates a new RollingStatLong object.
+     */
+    public RollingStatLong() {
+        reset();
+    }
+
+    /**
+     * reset values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            _slots[i] = Long.MIN_VALUE;
+            if (_buckets[i] != null) {
+                _buckets[i].reset();
+            }
+        }
+        _ewmaSlot = Long.MIN_VALUE;
+        for (int i = 0; i < WINDOWS.length; i++) {
+            _ewmaCount[i] = 0d;
+            _ewmaSum[i] = 0d;
+        }
+    }
+
+    /**
+     * Add the given value in statistics at the current time
+     *
+     * @param value double value to add in statistics
+     */
+    public void add(final double value) {
+        add(value, System.nanoTime());
+    }
+
+    /**
+     * Add the given value in statistics at the given time
+     *
+     * @param value double value to add in statistics
+     * @param now current time (System.nanoTime())
+     */
+    public void add(final double value, final long now) {
+        final long slot = advance(now);
+        getBucket(slot).add(value);
+    }
+
+    /**
+     * Merge the given statistics in this instance (both are first advanced to the given time)
+     *
+     * @param stat statistics to add in this instance
+     * @param now current time (System.nanoTime())
+     */
+    public void add(final RollingStatLong stat, final long now) {
+        final long slot = advance(now);
+        stat.advance(now);
+
+        for (int i = 0; i < BUCKETS; i++) {
+            final long s = stat._slots[i];
+            if (s > slot - BUCKETS && s <= slot) {
+                getBucket(s).add(stat._buckets[i]);
+            }
+        }
+        for (int i = 0; i < WINDOWS.length; i++) {
+            _ewmaCount[i] += stat._ewmaCount[i];
+            _ewmaSum[i] += stat._ewmaSum[i];
+        }
+    }
+
+    /**
+     * Return the statistics of the given window (the completed buckets covering the window
+     * and the current partial bucket)
+     *
+     * @param minutes window duration in minutes (1 to 15)
+     * @param now current time (System.nanoTime())
+     * @return new StatLong instance
+     */
+    public StatLong getWindow(final int minutes, final long now) {
+        final long slot = slot(now);
+        final int n = Math.max(1, Math.min(BUCKETS, 1 + (int) (60L * 1000L * 1000L * 1000L * minutes / BUCKET_NANOS)));
+
+        final StatLong stat = new StatLong();
+        for (int i = 0; i < BUCKETS; i++) {
+            final long s = _slots[i];
+            if (s > slot - n && s <= slot) {
+                stat.add(_buckets[i]);
+            }
+        }
+        return stat;
+    }
+
+    /**
+     * Return the EWMA rate (values per second) with the given time constant.
+     * Note: the current (partial) bucket is not yet taken into account
+     *
+     * @param minutes EWMA time constant in minutes (WINDOWS)
+     * @param now current time (System.nanoTime())
+     * @return EWMA rate
+     */
+    public double getRate(final int minutes, final long now) {
+        advance(now);
+        return _ewmaCount[indexOf(minutes)] / BUCKET_SECONDS;
+    }
+
+    /**
+     * Return the EWMA value (latency) with the given time constant
+     * Note: the current (partial) bucket is not yet taken into account
+     *
+     * @param minutes EWMA time constant in minutes (WINDOWS)
+     * @param now current time (System.nanoTime())
+     * @return EWMA value or NaN if no value
+     */
+    public double getAverage(final int minutes, final long now) {
+        advance(now);
+        final int i = indexOf(minutes);
+        return (_ewmaCount[i] > 0d) ? _ewmaSum[i] / _ewmaCount[i] : Double.NaN;
+    }
+
+    /**
+     * Fold the completed buckets in EWMA up to the given time
+     *
+     * @param now current time (System.nanoTime())
+     * @return current time slot
+     */
+    private long advance(final long now) {
+        final long slot = slot(now);
+
+        if (_ewmaSlot == Long.MIN_VALUE) {
+            _ewmaSlot = slot - 1L;
+        } else if (_ewmaSlot < slot - 1L) {
+            // completed slots still in the ring:
+            final long first = Math.max(_ewmaSlot + 1L, slot - BUCKETS);
+            final long gap = first - (_ewmaSlot + 1L);
+
+            if (gap > 0L) {
+                // older empty slots (decay only):
+                for (int j = 0; j < WINDOWS.length; j++) {
+                    final double decay = Math.pow(1d - ALPHAS[j], gap);
+                    _ewmaCount[j] *= decay;
+                    _ewmaSum[j] *= decay;
+                }
+            }
+            for (long s = first; s < slot; s++) {
+                final int i = index(s);
+                final StatLong bucket = (_slots[i] == s) ? _buckets[i] : null;
+                final double count = (bucket != null) ? bucket.getCounter() : 0d;
+                final double sum = (bucket != null) ? bucket.getAccumulator() : 0d;
+
+                for (int j = 0; j < WINDOWS.length; j++) {
+                    _ewmaCount[j] += ALPHAS[j] * (count - _ewmaCount[j]);
+                    _ewmaSum[j] += ALPHAS[j] * (sum - _ewmaSum[j]);
+                }
+            }
+            _ewmaSlot = slot - 1L;
+        }
+        return slot;
+    }
+
+    /**
+     * Return the bucket of the given time slot (reset if it contains an older slot)
+     *
+     * @param slot time slot
+     * @return bucket statistics
+     */
+    private StatLong getBucket(final long slot) {
+        final int i = index(slot);
+        StatLong bucket = _buckets[i];
+        if (bucket == null) {
+            bucket = new StatLong();
+            _buckets[i] = bucket;
+            _slots[i] = slot;
+        } else if (_slots[i] != slot) {
+            bucket.reset();
+            _slots[i] = slot;
+        }
+        return bucket;
+    }
+
+    /**
+     * Return the time slot of the given time
+     *
+     * @param now time (System.nanoTime())
+     * @return time slot
+     */
+    private static long slot(final long now) {
+        return Math.floorDiv(now, BUCKET_NANOS);
+    }
+
+    /**
+     * Return the ring index of the given time slot
+     *
+     * @param slot time slot
+     * @return ring index
+     */
+    private static int index(final long slot) {
+        return (int) Math.floorMod(slot, (long) BUCKETS);
+    }
+
+    /**
+     * Return the EWMA index of the given time constant
+     *
+     * @param minutes EWMA time constant in minutes
+     * @return EWMA index
+     * @throws IllegalArgumentException if the time constant is not supported
+     */
+    private static int indexOf(final int minutes) {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            if (WINDOWS[i] == minutes) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported EWMA time constant: " + minutes + " minutes");
+    }
+
+    /**
+     * toString() implementation using string builder
+     *
+     * @param sb string builder to append to
+     * @param full true to get complete information; false to get main information (shorter)
+     */
+    @Override
+    public void toString(final StringBuilder sb, final boolean full) {
+        final long now = System.nanoTime();
+
+        sb.append('{');
+        for (int i = 0; i < WINDOWS.length; i++) {
+            final StatLong stat = getWindow(WINDOWS[i], now);
+            if (i != 0) {
+                sb.append(",\t");
+            }
+            sb.append(WINDOWS[i]).append("m = ").append(stat.getCounter());
+            if (stat.getCounter() != 0) {
+                sb.append(" / ").append(NumberUtils.trimTo5Digits(stat.getAverage()));
+            }
+        }
+        if (full) {
+            sb.append(",\trate = ");
+            for (int i = 0; i < WINDOWS.length; i++) {
+                if (i != 0) {
+                    sb.append(" / ");
+                }
+                sb.append(NumberUtils.trimTo5Digits(getRate(WINDOWS[i], now)));
+            }
+            sb.append(" /s,\tewma = ");
+            for (int i = 0; i < WINDOWS.length; i++) {
+                if (i != 0) {
+                    sb.append(" / ");
+                }
+                sb.append(NumberUtils.trimTo5Digits(getAverage(WINDOWS[i], now)));
+            }
+        }
+        sb.append('}');
+    }
+
+    /**
+     * Return a string representation
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(128);
+        toString(sb, true);
+        return sb.toString();
+    }
+}
@@ -57,6 +57,7 @@ public final class StatLong implements ToStringable {
 
     /**
      * Define the occurrence thresholds to compute average, standard deviation ...
+     * Note: only applies to instances created afterwards
      * @param thresholdAverage average threshold
      */
     public static void defineThreshold(final int thresholdAverage) {
@@ -67,6 +68,12 @@ public final class StatLong implements ToStringable {
         }
     }
     // Members
+    /** average threshold of this instance */
+    private final int _thresholdAvg;
+    /** stddev threshold of this instance */
+    private final int _thresholdStdDev;
+    /** Fixed Divisor for stddev of this instance */
+    private final int _thresholdStdDevN;
     /** occurrence counter */
     private int _counter;
     /** accumulator */
@@ -90,6 +97,24 @@ public final class StatLong implements ToStringable {
      * Creates a new StatLong object.
      */
     public StatLong() {
+        _thresholdAvg = THRESHOLD_AVG;
+        _thresholdStdDev = THRESHOLD_STDDEV;
+        _thresholdStdDevN = THRESHOLD_STDDEV_N;
+        reset();
+    }
+
+    /**
+     * Creates a new StatLong object with the given average threshold (see defineThreshold)
+     * @param thresholdAverage average threshold (&gt; 0)
+     * @throws IllegalArgumentException if thresholdAverage &lt;= 0
+     */
+    public StatLong(final int thresholdAverage) {
+        if (thresholdAverage <= 0) {
+            throw new IllegalArgumentException("Invalid average threshold: " + thresholdAverage);
+        }
+        _thresholdAvg = thresholdAverage;
+        _thresholdStdDev = 2 * thresholdAverage;
+        _thresholdStdDevN = 1 + _thresholdStdDev - thresholdAverage;
         reset();
     }
 
@@ -114,6 +139,10 @@ public final class StatLong implements ToStringable {
      * @param stat statistics to add in this instance
      */
     public void add(final StatLong stat) {
+        if (stat.getCounter() == 0) {
+            // empty statistics (undefined average):
+            return;
+        }
         _counter += stat.getCounter();
         _acc += stat.getAccumulator();
         _average = _acc / _counter;
@@ -166,7 +195,7 @@ public final class StatLong implements ToStringable {
         _acc += value;
         _average = _acc / count;
 
-        if (count >= THRESHOLD_AVG) {
+        if (count >= _thresholdAvg) {
             /**
              * X-       =     (1/n) * Sum (Xn)
              * stdDev^2 = (1/(n-1)) * Sum [ (Xn - * X-)^2 ]
@@ -273,8 +302,8 @@ public final class StatLong implements ToStringable {
      */
     public double getStdDev() {
         double stddev = 0d;
-        if (_counter >= THRESHOLD_STDDEV) {
-            stddev = Math.sqrt((_accDeltaHigh + _accDeltaLow) / (_counter - THRESHOLD_STDDEV_N));
+        if (_counter >= _thresholdStdDev) {
+            stddev = Math.sqrt((_accDeltaHigh + _accDeltaLow) / (_counter - _thresholdStdDevN));
         }
 
         return stddev;
@@ -287,8 +316,8 @@ public final class StatLong implements ToStringable {
      */
     public double getStdDevHigh() {
         double stddev = 0d;
-        if (_counterHigh >= THRESHOLD_STDDEV) {
-            stddev = Math.sqrt(_accDeltaHigh / (_counterHigh - THRESHOLD_STDDEV_N));
+        if (_counterHigh >= _thresholdStdDev) {
+            stddev = Math.sqrt(_accDeltaHigh / (_counterHigh - _thresholdStdDevN));
         }
 
         return stddev;
@@ -301,8 +330,8 @@ public final class StatLong implements ToStringable {
      */
     public double getStdDevLow() {
         double stddev = 0d;
-        if (_counterLow >= THRESHOLD_STDDEV) {
-            stddev = Math.sqrt(_accDeltaLow / (_counterLow - THRESHOLD_STDDEV_N));
+        if (_counterLow >= _thresholdStdDev) {
+            stddev = Math.sqrt(_accDeltaLow / (_counterLow - _thresholdStdDevN));
         }
 
         return stddev;
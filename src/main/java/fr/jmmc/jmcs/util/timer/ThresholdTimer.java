@@ -67,7 +67,6 @@ public final class ThresholdTimer extends AbstractTimer {
     @Override
     public void add(final double time) {
         if (time > 0d) {
-            _usage++;
             if (time > _threshold) {
                 _high.add(time);
             } else {
@@ -76,6 +75,25 @@ public final class ThresholdTimer extends AbstractTimer {
         }
     }
 
+    /**
+     * Return the usage counter of both low and high timers
+     *
+     * @return usage counter
+     */
+    @Override
+    protected int countUsage() {
+        return _low.getUsage() + _high.getUsage();
+    }
+
+    /**
+     * Return the high-value threshold
+     *
+     * @return high-value threshold
+     */
+    public double getThreshold() {
+        return _threshold;
+    }
+
     /**
      * Return the Timer instance for the high values
      *
@@ -104,6 +122,30 @@ public final class ThresholdTimer extends AbstractTimer {
         return getTimerHigh().getTimeStatistics();
     }
 
+    /**
+     * Return the time histogram (low and high values)
+     *
+     * @return time histogram
+     */
+    @Override
+    public Histogram getHistogram() {
+        final Histogram histogram = _low.getHistogram();
+        histogram.add(_high.getHistogram());
+        return histogram;
+    }
+
+    /**
+     * Return the rolling-window and EWMA statistics (low and high values)
+     *
+     * @return rolling-window and EWMA statistics
+     */
+    @Override
+    public RollingStatLong getRollingStatistics() {
+        final RollingStatLong rolling = _low.getRollingStatistics();
+        rolling.add(_high.getRollingStatistics(), System.nanoTime());
+        return rolling;
+    }
+
     /**
      * toString() implementation using string builder
      *
@@ -120,6 +162,12 @@ public final class ThresholdTimer extends AbstractTimer {
         _low.toString(sb, full);
         sb.append("\n  High : ");
         _high.toString(sb, full);
+        sb.append("\n  All  : ");
+        getHistogram().toString(sb, false);
+        if (_low.isRolling()) {
+            sb.append("\t");
+            getRollingStatistics().toString(sb, true);
+        }
         sb.append("\n}");
     }
 }
@@ -27,17 +27,57 @@
  ******************************************************************************/
 package fr.jmmc.jmcs.util.timer;
 
+import fr.jmmc.jmcs.util.JVMUtils;
 import fr.jmmc.jmcs.util.ToStringable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * This class contains statistics for time metrics.
+ * This class contains statistics, a percentile histogram and rolling-window / EWMA statistics for time metrics.
+ *
+ * Time values are recorded in striped statistics cells (LongAdder style): a thread claims its cell
+ * with a CAS and, if another thread holds it, moves to another cell (per-thread probe) instead of
+ * blocking so many threads can time hot paths concurrently without any lock;
+ * cells are merged (StatLong.add(StatLong)) when statistics are read.
+ * Each cell also owns its percentile histogram (lazily created on its first value) so the hot path
+ * never updates any shared counter; cell histograms are merged when the histogram is read.
+ * Rolling-window statistics are opt-in (see TimerFactory.setRollingStatistics()) as they read the clock on every value.
  *
  * @author Laurent BOURGES (voparis).
  */
 public final class Timer extends AbstractTimer implements ToStringable {
 
-    /** statistics for elapsed time */
-    private final StatLong _monitorTime = new StatLong();
+    /** maximum number of cells */
+    private static final int MAX_CELLS = 64;
+    /** number of cells (power of 2 &gt;= 2 x available processors) */
+    private static final int CELLS;
+
+    static {
+        final int max = Math.min(MAX_CELLS, 2 * JVMUtils.availableProcessors());
+        int n = 1;
+        while (n < max) {
+            n <<= 1;
+        }
+        CELLS = n;
+    }
+    /** per-thread probe used to choose a cell (changed on contention) */
+    private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            // mix thread id bits (murmur3 finalizer):
+            long h = Thread.currentThread().getId();
+            h ^= (h >>> 33);
+            h *= 0xff51afd7ed558ccdL;
+            h ^= (h >>> 33);
+            return new int[]{((int) h) | 1};
+        }
+    };
+    /** histogram precision (mantissa bits) */
+    private final int _precision;
+    /** true to record rolling-window statistics */
+    private final boolean _rolling;
+    /** statistics cells for elapsed time (lazily created) */
+    private final AtomicReferenceArray<Cell> _cells = new AtomicReferenceArray<Cell>(CELLS);
 
     /**
      * Protected Constructor for Timer objects : use the factory pattern
@@ -49,6 +89,8 @@ public final class Timer extends AbstractTimer implements ToStringable {
      */
     protected Timer(final String pCategory, final TimerFactory.UNIT pUnit) {
         super(pCategory, pUnit);
+        _precision = TimerFactory.getHistogramPrecision();
+        _rolling = TimerFactory.isRollingStatistics();
     }
 
     /**
@@ -59,19 +101,157 @@ public final class Timer extends AbstractTimer implements ToStringable {
     @Override
     public void add(final double time) {
         if (time > 0d) {
-            _usage++;
-            _monitorTime.add(time);
+            final long now = (_rolling) ? System.nanoTime() : 0L;
+            final int[] probe = PROBE.get();
+            int h = probe[0];
+            for (int attempt = 1;; attempt++) {
+                final Cell cell = getCell(h & (CELLS - 1));
+                if (cell.tryClaim()) {
+                    try {
+                        cell._stat.add(time);
+                        cell.getHistogram(_precision).add(time);
+                        if (_rolling) {
+                            cell.getRolling().add(time, now);
+                        }
+                    } finally {
+                        cell.release();
+                    }
+                    return;
+                }
+                // contended: move to another cell (xorshift):
+                h ^= h << 13;
+                h ^= h >>> 17;
+                h ^= h << 5;
+                probe[0] = h;
+
+                if (attempt % CELLS == 0) {
+                    // all cells busy (readers):
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the usage counter (sum of cell counters)
+     *
+     * @return usage counter
+     */
+    @Override
+    protected int countUsage() {
+        int usage = 0;
+        for (int i = 0; i < CELLS; i++) {
+            final Cell cell = _cells.get(i);
+            if (cell != null) {
+                cell.claim();
+                try {
+                    usage += cell._stat.getCounter();
+                } finally {
+                    cell.release();
+                }
+            }
         }
+        return usage;
     }
 
     /**
-     * Return the time statistics
+     * Return the time statistics (merged snapshot of all cells)
      *
      * @return time statistics
      */
     @Override
     public StatLong getTimeStatistics() {
-        return _monitorTime;
+        final StatLong stat = new StatLong();
+        for (int i = 0; i < CELLS; i++) {
+            final Cell cell = _cells.get(i);
+            if (cell != null) {
+                cell.claim();
+                try {
+                    stat.add(cell._stat);
+                } finally {
+                    cell.release();
+                }
+            }
+        }
+        return stat;
+    }
+
+    /**
+     * Return the time histogram (merged snapshot of all cell histograms)
+     *
+     * @return time histogram
+     */
+    @Override
+    public Histogram getHistogram() {
+        final Histogram histogram = new Histogram(_precision);
+        for (int i = 0; i < CELLS; i++) {
+            final Cell cell = _cells.get(i);
+            if (cell != null) {
+                cell.claim();
+                try {
+                    if (cell._histogram != null) {
+                        histogram.add(cell._histogram);
+                    }
+                } finally {
+                    cell.release();
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Return the rolling-window and EWMA statistics (merged snapshot of all cells; empty if disabled)
+     *
+     * @return rolling-window and EWMA statistics
+     */
+    @Override
+    public RollingStatLong getRollingStatistics() {
+        final long now = System.nanoTime();
+        final RollingStatLong rolling = new RollingStatLong();
+        if (!_rolling) {
+            return rolling;
+        }
+        for (int i = 0; i < CELLS; i++) {
+            final Cell cell = _cells.get(i);
+            if (cell != null) {
+                cell.claim();
+                try {
+                    if (cell._rolling != null) {
+                        rolling.add(cell._rolling, now);
+                    }
+                } finally {
+                    cell.release();
+                }
+            }
+        }
+        return rolling;
+    }
+
+    /**
+     * Return true if this timer records rolling-window statistics
+     *
+     * @return true if this timer records rolling-window statistics
+     */
+    boolean isRolling() {
+        return _rolling;
+    }
+
+    /**
+     * Return the statistics cell at the given index (lazy)
+     *
+     * @param index cell index
+     * @return statistics cell
+     */
+    private Cell getCell(final int index) {
+        Cell cell = _cells.get(index);
+        if (cell == null) {
+            cell = new Cell();
+            if (!_cells.compareAndSet(index, null, cell)) {
+                cell = _cells.get(index);
+            }
+        }
+        return cell;
     }
 
     /**
@@ -84,10 +264,84 @@ public final class Timer extends AbstractTimer implements ToStringable {
      */
     @Override
     public void toString(final StringBuilder sb, final boolean full) {
-        super.toString(sb, full);
+        final StatLong stat = getTimeStatistics();
+
+        sb.append("Timer [").append(getCategory()).append(" - ").append(getUnit()).append("] [").append(stat.getCounter()).append("]\t");
+
+        if (stat.getCounter() != 0) {
+            stat.toString(sb, full);
+            if (full) {
+                sb.append("\t");
+                getHistogram().toString(sb, false);
+                if (_rolling) {
+                    sb.append("\t");
+                    getRollingStatistics().toString(sb, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Statistics cell (claimed by CAS before any access)
+     */
+    private static final class Cell {
+
+        /** claim state updater */
+        private static final AtomicIntegerFieldUpdater<Cell> CLAIMED = AtomicIntegerFieldUpdater.newUpdater(Cell.class, "_claimed");
+        /** claim state (1 if claimed) */
+        private volatile int _claimed = 0;
+        /** statistics */
+        final StatLong _stat = new StatLong();
+        /** rolling-window and EWMA statistics (lazily created if enabled) */
+        RollingStatLong _rolling = null;
+        /** percentile histogram (lazily created) */
+        Histogram _histogram = null;
+
+        /**
+         * Return the percentile histogram (lazy); the cell must be claimed
+         * @param precision histogram precision (mantissa bits)
+         * @return percentile histogram
+         */
+        Histogram getHistogram(final int precision) {
+            if (_histogram == null) {
+                _histogram = new Histogram(precision);
+            }
+            return _histogram;
+        }
+
+        /**
+         * Return the rolling-window statistics (lazy); the cell must be claimed
+         * @return rolling-window statistics
+         */
+        RollingStatLong getRolling() {
+            if (_rolling == null) {
+                _rolling = new RollingStatLong();
+            }
+            return _rolling;
+        }
+
+        /**
+         * Try to claim this cell (writers)
+         * @return true if claimed; false if another thread holds it
+         */
+        boolean tryClaim() {
+            return (_claimed == 0) && CLAIMED.compareAndSet(this, 0, 1);
+        }
+
+        /**
+         * Claim this cell, spinning while another thread holds it (readers)
+         */
+        void claim() {
+            while (!tryClaim()) {
+                Thread.yield();
+            }
+        }
 
-        if (_monitorTime.getCounter() != 0) {
-            _monitorTime.toString(sb, full);
+        /**
+         * Release this cell (ordered store)
+         */
+        void release() {
+            CLAIMED.lazySet(this, 0);
         }
     }
 }
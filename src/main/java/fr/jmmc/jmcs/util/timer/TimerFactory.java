@@ -27,11 +27,20 @@
  ******************************************************************************/
 package fr.jmmc.jmcs.util.timer;
 
+import fr.jmmc.jmcs.util.FileUtils;
 import fr.jmmc.jmcs.util.NumberUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +48,12 @@ import org.slf4j.LoggerFactory;
  * The Timer factory contains a map[key - Timer] to associate time metrics statistics to several
  * categories of operations
  *
+ * Timer lookups are lock-free (concurrent map); the guard lock is only used to register new timers
+ * and to dump / reset them.
+ *
+ * Timer calibration (measurement overhead) is loaded from the platform caches directory or measured
+ * in background (see PROPERTY_CALIBRATION) so the class initialization does not run the benchmark loops.
+ *
  * @author Laurent BOURGES (voparis).
  */
 public final class TimerFactory {
@@ -56,6 +71,12 @@ public final class TimerFactory {
     public final static int CALIBRATION_STEPS = 5;
     /** calibration step cycles = 5000 */
     public final static int CALIBRATION_STEP_CYCLES = 20 * 1000;
+    /** occurrence threshold to compute average and standard deviation of calibration statistics */
+    private final static int CALIBRATION_THRESHOLD_AVG = 100;
+    /** sanity check cycles to validate the cached calibration = 1000 */
+    private final static int SANITY_CYCLES = 1000;
+    /** maximum ratio between the cached calibration and the sanity check latency */
+    private final static double SANITY_RATIO = 4d;
     /** category for the warm-up to optimize the timer code */
     private final static String CATEGORY_CALIBRATE = "calibration";
     /** initial capacity = 64 */
@@ -65,16 +86,53 @@ public final class TimerFactory {
     /** conversion ratio between nanoseconds and milliseconds */
     private final static double CONVERT_NS_INTO_MS = 1e-6d;
     /** calibration value for milliseconds unit */
-    private static double CALIBRATION_MILLI_SECONDS = 0d;
+    private static volatile double CALIBRATION_MILLI_SECONDS = 0d;
     /** calibration value for nanoseconds unit */
-    private static double CALIBRATION_NANO_SECONDS = 0d;
+    private static volatile double CALIBRATION_NANO_SECONDS = 0d;
+    /** system property to define the calibration mode: async (default), sync or none */
+    public final static String PROPERTY_CALIBRATION = "TimerFactory.calibration";
+    /** calibration mode: measure in background */
+    public final static String CALIBRATION_ASYNC = "async";
+    /** calibration mode: measure during class initialization */
+    public final static String CALIBRATION_SYNC = "sync";
+    /** calibration mode: no calibration */
+    public final static String CALIBRATION_NONE = "none";
+    /** system property to define the calibration cache directory (platform caches directory by default) */
+    public final static String PROPERTY_CACHE_DIR = "TimerFactory.cacheDir";
+    /** calibration cache file name (platform caches directory) */
+    private final static String CALIBRATION_FILE = "fr.jmmc.jmcs.timer.calibration.properties";
+    /** maximum age of the calibration cache = 30 days (ms) */
+    private final static long CALIBRATION_MAX_AGE = 30L * 24L * 3600L * 1000L;
+    /** maximum valid calibration value = 10 microseconds (ns) */
+    private final static double CALIBRATION_MAX_NS = 10 * 1000d;
+    /** calibration cache key: JVM / host */
+    private final static String KEY_JVM = "jvm";
+    /** calibration cache key: nanoseconds calibration */
+    private final static String KEY_NS = "ns";
+    /** calibration cache key: milliseconds calibration */
+    private final static String KEY_MS = "ms";
+    /** signal once calibration values are available */
+    private final static CountDownLatch _calibrated = new CountDownLatch(1);
+    /** system property to define the histogram precision (mantissa bits) of new timers */
+    public final static String PROPERTY_HISTOGRAM_PRECISION = "TimerFactory.histogramPrecision";
+    /** histogram precision (mantissa bits) of new timers */
+    private static volatile int _histogramPrecision = Math.max(Histogram.MIN_PRECISION,
+            Math.min(Histogram.MAX_PRECISION, Integer.getInteger(PROPERTY_HISTOGRAM_PRECISION, Histogram.DEFAULT_PRECISION)));
+    /** system property to enable rolling-window statistics of new timers (false by default) */
+    public final static String PROPERTY_ROLLING = "TimerFactory.rolling";
+    /** true to record rolling-window statistics in new timers */
+    private static volatile boolean _rolling = Boolean.getBoolean(PROPERTY_ROLLING);
+    /** system property to enable or disable timing scopes (true by default) */
+    public final static String PROPERTY_ENABLED = "TimerFactory.enabled";
+    /** true to record timing scopes */
+    private static volatile boolean _enabled = !"false".equalsIgnoreCase(System.getProperty(PROPERTY_ENABLED, "true"));
     /* shared state */
-    /** guard lock for timer list and map to ensure thread integrity */
+    /** guard lock for timer list (creation order) and map updates to ensure thread integrity */
     private final static Object _lock = new Object();
     /** List[timer] */
-    private static List<AbstractTimer> _timerList = new ArrayList<AbstractTimer>(CAPACITY);
-    /** fast Map[key - timer] */
-    private static Map<String, AbstractTimer> _timerMap = new HashMap<String, AbstractTimer>(CAPACITY);
+    private final static List<AbstractTimer> _timerList = new ArrayList<AbstractTimer>(CAPACITY);
+    /** fast Map[key - timer] (lock-free reads) */
+    private final static ConcurrentHashMap<String, AbstractTimer> _timerMap = new ConcurrentHashMap<String, AbstractTimer>(CAPACITY);
 
     /** timer unit constants */
     public static enum UNIT {
@@ -86,29 +144,65 @@ public final class TimerFactory {
     }
 
     static {
+        final String mode = System.getProperty(PROPERTY_CALIBRATION, CALIBRATION_ASYNC);
+
+        if (CALIBRATION_NONE.equalsIgnoreCase(mode)) {
+            _logger.debug("TimerFactory : calibration disabled");
+            _calibrated.countDown();
+        } else {
+            final File file = getCalibrationFile();
+
+            if (!loadCalibration(file)) {
+                if (CALIBRATION_SYNC.equalsIgnoreCase(mode)) {
+                    calibrate(file);
+                } else {
+                    // run the warm-up / calibration loops in background (timers are usable meanwhile without correction):
+                    calibrateAsync(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Start the calibration in a background (daemon) thread
+     *
+     * @param file calibration cache file
+     * @return started thread
+     */
+    static Thread calibrateAsync(final File file) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                calibrate(file);
+            }
+        }, "TimerFactory-calibration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Run the warm-up and calibration loops then publish and store the calibration values
+     *
+     * @param file calibration cache file
+     */
+    private static void calibrate(final File file) {
         final long start = System.nanoTime();
 
         StatLong stat;
 
-        // Adjust threshold to high values :
-        StatLong.defineThreshold(100);
-
         // warm up loop :
         final StatLong globalStatNs = new StatLong();
         final StatLong globalStatMs = new StatLong();
 
         for (int i = 0; i < WARMUP_STEPS; i++) {
             // warm up to optimize code (hot spot) :
-            stat = calibrateNanoSeconds(WARMUP_STEP_CYCLES);
+            stat = calibrateNanoSeconds(WARMUP_STEP_CYCLES, 0d);
             globalStatNs.add(stat);
 
-            stat = calibrateMilliSeconds(WARMUP_STEP_CYCLES);
+            stat = calibrateMilliSeconds(WARMUP_STEP_CYCLES, 0d);
             globalStatMs.add(stat);
-
-            if (WARMUP_DIAGNOSTICS && _logger.isWarnEnabled()) {
-                _logger.warn("TimerFactory : warmup [{}] : {}", i, dumpTimers());
-            }
-            resetTimers();
         }
 
         if (WARMUP_DIAGNOSTICS && _logger.isWarnEnabled()) {
@@ -116,94 +210,314 @@ public final class TimerFactory {
             _logger.warn("TimerFactory : global milliseconds statistics : {}", globalStatMs.toString());
         }
 
+        double calibrationNs = 0d;
+        double calibrationMs = 0d;
+        boolean convergedNs = false;
+        boolean convergedMs = false;
         double delta;
         // calibration loop to get latency :
-        for (int i = 0; i < CALIBRATION_STEPS; i++) {
+        for (int i = 0; i < CALIBRATION_STEPS && !(convergedNs && convergedMs); i++) {
             // nano :
-            stat = calibrateNanoSeconds(CALIBRATION_STEP_CYCLES);
-            delta = Math.min(stat.getMin(), stat.getAverage() - stat.getStdDevLow());
+            stat = calibrateNanoSeconds(CALIBRATION_STEP_CYCLES, calibrationNs);
+            delta = getDelta(stat);
 
-            CALIBRATION_NANO_SECONDS += delta;
+            if (!convergedNs) {
+                convergedNs = isConverged(stat);
+                if (!convergedNs) {
+                    calibrationNs += delta;
+                }
+            }
 
             if (WARMUP_DIAGNOSTICS && _logger.isWarnEnabled()) {
                 _logger.warn("TimerFactory : Nanoseconds   : ");
-                _logger.warn("TimerFactory : calibration [{}] : {}", i, dumpTimers());
-                _logger.warn("TimerFactory : min           : {}", stat.getMin());
-                _logger.warn("TimerFactory : avg - stddev  : {}", (stat.getAverage() - stat.getStdDevLow()));
+                _logger.warn("TimerFactory : calibration [{}] : {}", i, stat);
                 _logger.warn("TimerFactory : delta         : {}", delta);
-                _logger.warn("TimerFactory : nanoseconds  calibration correction : {}", CALIBRATION_NANO_SECONDS);
+                _logger.warn("TimerFactory : nanoseconds  calibration correction : {}", calibrationNs);
             }
 
-            resetTimers();
-
             // milli :
-            stat = calibrateMilliSeconds(CALIBRATION_STEP_CYCLES);
-            delta = Math.min(stat.getMin(), stat.getAverage() - stat.getStdDevLow());
+            stat = calibrateMilliSeconds(CALIBRATION_STEP_CYCLES, calibrationMs);
+            delta = getDelta(stat);
 
-            CALIBRATION_MILLI_SECONDS += delta;
+            if (!convergedMs) {
+                convergedMs = isConverged(stat);
+                if (!convergedMs) {
+                    calibrationMs += delta;
+                }
+            }
 
             if (WARMUP_DIAGNOSTICS && _logger.isWarnEnabled()) {
                 _logger.warn("TimerFactory : Milliseconds   : ");
-                _logger.warn("TimerFactory : calibration [{}] : {}", i, dumpTimers());
-                _logger.warn("TimerFactory : min           : {}", stat.getMin());
-                _logger.warn("TimerFactory : avg - stddev  : {}", (stat.getAverage() - stat.getStdDevLow()));
+                _logger.warn("TimerFactory : calibration [{}] : {}", i, stat);
                 _logger.warn("TimerFactory : delta         : {}", delta);
-                _logger.warn("TimerFactory : milliseconds calibration correction : {}", CALIBRATION_MILLI_SECONDS);
+                _logger.warn("TimerFactory : milliseconds calibration correction : {}", calibrationMs);
             }
-
-            resetTimers();
         }
 
         final long stop = System.nanoTime();
 
-        if (_logger.isWarnEnabled()) {
-            _logger.warn("TimerFactory : nanoseconds  calibration correction : {}", NumberUtils.trimTo5Digits(CALIBRATION_NANO_SECONDS));
-            _logger.warn("TimerFactory : milliseconds calibration correction : {}", NumberUtils.trimTo5Digits(CALIBRATION_MILLI_SECONDS));
-            _logger.warn("TimerFactory : calibration time (ms) : {}", TimerFactory.elapsedMilliSeconds(start, stop));
+        if (_logger.isInfoEnabled()) {
+            _logger.info("TimerFactory : nanoseconds  calibration correction : {}", NumberUtils.trimTo5Digits(calibrationNs));
+            _logger.info("TimerFactory : milliseconds calibration correction : {}", NumberUtils.trimTo5Digits(calibrationMs));
+            _logger.info("TimerFactory : calibration time (ms) : {}", NumberUtils.trimTo5Digits(CONVERT_NS_INTO_MS * (stop - start)));
         }
 
-        // Adjust threshold to low values :
-        StatLong.defineThreshold(StatLong.DEFAULT_THRESHOLD_AVG);
+        // store first: the JVM may exit (daemon thread) as soon as the calibration is published
+        storeCalibration(file, calibrationNs, calibrationMs);
+        setCalibration(calibrationNs, calibrationMs);
+    }
+
+    /**
+     * Return the correction delta of the given calibration step: min(minimum, average - low standard deviation)
+     * or the minimum if outliers (thread preemptions) make the latter negative
+     *
+     * @param stat calibration statistics of the step (positive values only)
+     * @return correction delta
+     */
+    private static double getDelta(final StatLong stat) {
+        final double delta = stat.getAverage() - stat.getStdDevLow();
+        return (delta > 0d) ? Math.min(stat.getMin(), delta) : stat.getMin();
+    }
+
+    /**
+     * Return true if the calibration correction has converged: most corrected values are not positive anymore
+     * (remaining ones are outliers like thread preemptions)
+     *
+     * @param stat calibration statistics of the last step (positive values only)
+     * @return true if the correction must not be refined anymore
+     */
+    private static boolean isConverged(final StatLong stat) {
+        return stat.getCounter() < CALIBRATION_STEP_CYCLES / 2;
     }
 
     /**
      * Warm-up and calibrate timer code (HotSpot)
      *
      * @param cycles empty cycles to operate
+     * @param correction current calibration correction
      * @return calibration value in double precision
      */
-    private static StatLong calibrateNanoSeconds(final int cycles) {
-        final String catCalibrate = CATEGORY_CALIBRATE + "-" + UNIT.ns;
+    private static StatLong calibrateNanoSeconds(final int cycles, final double correction) {
+        // private timer (not registered) :
+        final Timer timer = new Timer(CATEGORY_CALIBRATE + "-" + UNIT.ns, UNIT.ns);
+        // calibration statistics (higher threshold to skip the first measurements):
+        final StatLong stat = new StatLong(CALIBRATION_THRESHOLD_AVG);
 
         long start;
+        double value;
         // EMPTY LOOP to force HotSpot compiler to optimize the code for Timer.* classes  :
         for (int i = 0, size = cycles; i < size; i++) {
             start = System.nanoTime();
             // ...
-            TimerFactory.getSimpleTimer(catCalibrate, UNIT.ns).addNanoSeconds(start, System.nanoTime());
+            value = NumberUtils.trimTo5Digits((System.nanoTime() - start) - correction);
+            timer.add(value);
+            // only positive values (as Timer.add):
+            if (value > 0d) {
+                stat.add(value);
+            }
         }
 
-        return TimerFactory.getTimer(catCalibrate).getTimeStatistics();
+        return stat;
     }
 
     /**
      * Warm-up and calibrate timer code (HotSpot)
      *
      * @param cycles empty cycles to operate
+     * @param correction current calibration correction
      * @return calibration value in double precision
      */
-    private static StatLong calibrateMilliSeconds(final int cycles) {
-        final String catCalibrate = CATEGORY_CALIBRATE + "-" + UNIT.ms;
+    private static StatLong calibrateMilliSeconds(final int cycles, final double correction) {
+        // private timer (not registered) :
+        final Timer timer = new Timer(CATEGORY_CALIBRATE + "-" + UNIT.ms, UNIT.ms);
+        // calibration statistics (higher threshold to skip the first measurements):
+        final StatLong stat = new StatLong(CALIBRATION_THRESHOLD_AVG);
 
         long start;
+        double value;
         // EMPTY LOOP to force HotSpot compiler to optimize the code for Timer.* classes  :
         for (int i = 0, size = cycles; i < size; i++) {
             start = System.nanoTime();
             // ...
-            TimerFactory.getSimpleTimer(catCalibrate, UNIT.ms).addMilliSeconds(start, System.nanoTime());
+            value = NumberUtils.trimTo5Digits(CONVERT_NS_INTO_MS * (System.nanoTime() - start) - correction);
+            timer.add(value);
+            // only positive values (as Timer.add):
+            if (value > 0d) {
+                stat.add(value);
+            }
+        }
+
+        return stat;
+    }
+
+    /**
+     * Measure the latency of System.nanoTime() quickly (minimum positive delta) to check the cached calibration
+     *
+     * @return latency in nanoseconds or 0 if undefined
+     */
+    static double measureLatency() {
+        long min = Long.MAX_VALUE;
+        long start, delta;
+        for (int i = 0; i < SANITY_CYCLES; i++) {
+            start = System.nanoTime();
+            delta = System.nanoTime() - start;
+            if (delta > 0L && delta < min) {
+                min = delta;
+            }
+        }
+        return (min != Long.MAX_VALUE) ? min : 0d;
+    }
+
+    /**
+     * Publish the calibration values
+     *
+     * @param calibrationNs calibration value for nanoseconds unit
+     * @param calibrationMs calibration value for milliseconds unit
+     */
+    private static void setCalibration(final double calibrationNs, final double calibrationMs) {
+        CALIBRATION_NANO_SECONDS = calibrationNs;
+        CALIBRATION_MILLI_SECONDS = calibrationMs;
+        _calibrated.countDown();
+    }
+
+    /**
+     * Return the calibration cache file (TimerFactory.cacheDir property or platform caches directory)
+     *
+     * @return calibration cache file
+     */
+    static File getCalibrationFile() {
+        return new File(System.getProperty(PROPERTY_CACHE_DIR, FileUtils.getPlatformCachesPath()), CALIBRATION_FILE);
+    }
+
+    /**
+     * Return the key identifying the JVM and host the calibration values were measured on
+     *
+     * @return calibration key
+     */
+    static String getCalibrationKey() {
+        return System.getProperty("java.vm.vendor") + ' ' + System.getProperty("java.vm.name") + ' '
+                + System.getProperty("java.vm.version") + ' ' + System.getProperty("os.name") + ' '
+                + System.getProperty("os.arch") + ' ' + Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Load and publish the calibration values from the given cache file (see readCalibration)
+     *
+     * @param file calibration cache file
+     * @return true if the calibration values were loaded
+     */
+    private static boolean loadCalibration(final File file) {
+        final double[] calibration = readCalibration(file);
+        if (calibration == null) {
+            return false;
         }
+        setCalibration(calibration[0], calibration[1]);
 
-        return TimerFactory.getTimer(catCalibrate).getTimeStatistics();
+        _logger.debug("TimerFactory : calibration loaded from [{}]: ns = {} - ms = {}", file, calibration[0], calibration[1]);
+        return true;
+    }
+
+    /**
+     * Read the calibration values from the given cache file if they were measured on the same JVM / host,
+     * are not too old and are consistent with a quick latency measurement (sanity check)
+     *
+     * @param file calibration cache file
+     * @return calibration values [ns, ms] or null if the cache file is missing, stale or invalid
+     */
+    static double[] readCalibration(final File file) {
+        if (!file.isFile() || System.currentTimeMillis() - file.lastModified() > CALIBRATION_MAX_AGE) {
+            return null;
+        }
+        final Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            props.load(in);
+
+            if (!getCalibrationKey().equals(props.getProperty(KEY_JVM))) {
+                _logger.debug("TimerFactory : calibration cache [{}] is stale", file);
+                return null;
+            }
+            final double calibrationNs = Double.parseDouble(props.getProperty(KEY_NS));
+            final double calibrationMs = Double.parseDouble(props.getProperty(KEY_MS));
+
+            if (!(calibrationNs >= 0d && calibrationNs < CALIBRATION_MAX_NS && calibrationMs >= 0d && calibrationMs < CONVERT_NS_INTO_MS * CALIBRATION_MAX_NS)) {
+                _logger.debug("TimerFactory : invalid calibration cache [{}]", file);
+                return null;
+            }
+            // sanity check: the clock source or the host load may have changed since the calibration:
+            final double latency = measureLatency();
+            if (latency > 0d && calibrationNs > 0d && (calibrationNs > SANITY_RATIO * latency || SANITY_RATIO * calibrationNs < latency)) {
+                _logger.debug("TimerFactory : calibration cache [{}] does not match the measured latency: {} ns", file, latency);
+                return null;
+            }
+            return new double[]{calibrationNs, calibrationMs};
+        } catch (IOException ioe) {
+            _logger.debug("TimerFactory : unable to read the calibration cache [{}]", file, ioe);
+        } catch (RuntimeException re) {
+            // NumberFormatException, NullPointerException (missing key) ...
+            _logger.debug("TimerFactory : invalid calibration cache [{}]", file, re);
+        } finally {
+            FileUtils.closeStream(in);
+        }
+        return null;
+    }
+
+    /**
+     * Store the calibration values in the given cache file (best effort)
+     *
+     * @param file calibration cache file
+     * @param calibrationNs calibration value for nanoseconds unit
+     * @param calibrationMs calibration value for milliseconds unit
+     */
+    static void storeCalibration(final File file, final double calibrationNs, final double calibrationMs) {
+        final Properties props = new Properties();
+        props.setProperty(KEY_JVM, getCalibrationKey());
+        props.setProperty(KEY_NS, Double.toString(calibrationNs));
+        props.setProperty(KEY_MS, Double.toString(calibrationMs));
+
+        OutputStream out = null;
+        try {
+            final File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                _logger.debug("TimerFactory : unable to create the directory [{}]", dir);
+                return;
+            }
+            // write a temporary file then rename it to never read a partial file:
+            final File tmpFile = new File(dir, file.getName() + ".tmp");
+            out = new FileOutputStream(tmpFile);
+            props.store(out, "jMCS TimerFactory calibration");
+            out.close();
+            out = null;
+
+            FileUtils.renameFile(tmpFile.getAbsolutePath(), file.getAbsolutePath(), true);
+
+            _logger.debug("TimerFactory : calibration stored in [{}]", file);
+        } catch (IOException ioe) {
+            _logger.debug("TimerFactory : unable to write the calibration cache [{}]", file, ioe);
+        } finally {
+            FileUtils.closeStream(out);
+        }
+    }
+
+    /**
+     * Return true if the calibration values are available (loaded from cache or measured)
+     *
+     * @return true if the calibration values are available
+     */
+    public static boolean isCalibrated() {
+        return _calibrated.getCount() == 0L;
+    }
+
+    /**
+     * Wait for the background calibration to complete
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if the calibration values are available
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public static boolean awaitCalibration(final long timeout) throws InterruptedException {
+        return _calibrated.await(timeout, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -219,8 +533,6 @@ public final class TimerFactory {
     public static void onExit() {
         // force GC :
         resetTimers();
-        _timerList = null;
-        _timerMap = null;
     }
 
     /**
@@ -247,6 +559,99 @@ public final class TimerFactory {
         return NumberUtils.trimTo5Digits((now - start) - CALIBRATION_NANO_SECONDS);
     }
 
+    /**
+     * Return true if timing scopes are recorded
+     *
+     * @return true if timing scopes are recorded
+     */
+    public static boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Enable or disable timing scopes (see PROPERTY_ENABLED system property for its default value)
+     *
+     * @param enabled true to record timing scopes; false to return TimerScope.DISABLED
+     */
+    public static void setEnabled(final boolean enabled) {
+        _enabled = enabled;
+    }
+
+    /**
+     * Start a timing scope on the ThresholdTimer for that category (default threshold and unit)
+     * without any timer lookup when timers are disabled
+     *
+     * @see AbstractTimer#start()
+     * @param category a string representing the kind of operation
+     * @return timing scope
+     */
+    public static TimerScope start(final String category) {
+        if (!_enabled) {
+            return TimerScope.DISABLED;
+        }
+        return getTimer(category).start();
+    }
+
+    /**
+     * Start a timing scope on the ThresholdTimer for that category (default threshold) and the given unit
+     * without any timer lookup when timers are disabled
+     *
+     * @see AbstractTimer#start()
+     * @param category a string representing the kind of operation
+     * @param unit MILLI_SECONDS or NANO_SECONDS
+     * @return timing scope
+     */
+    public static TimerScope start(final String category, final UNIT unit) {
+        if (!_enabled) {
+            return TimerScope.DISABLED;
+        }
+        return getTimer(category, unit).start();
+    }
+
+    /**
+     * Return the histogram precision (mantissa bits) of new timers
+     *
+     * @return histogram precision
+     */
+    public static int getHistogramPrecision() {
+        return _histogramPrecision;
+    }
+
+    /**
+     * Define the histogram precision of new timers (precision / memory trade-off):
+     * relative error = 2^-precision and memory = 256 x 2^precision bytes per used timer cell
+     *
+     * @see #PROPERTY_HISTOGRAM_PRECISION
+     * @param precision number of mantissa bits in [Histogram.MIN_PRECISION; Histogram.MAX_PRECISION]
+     * @throws IllegalArgumentException if the precision is out of range
+     */
+    public static void setHistogramPrecision(final int precision) {
+        if (precision < Histogram.MIN_PRECISION || precision > Histogram.MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid histogram precision: " + precision);
+        }
+        _histogramPrecision = precision;
+    }
+
+    /**
+     * Return true if new timers record rolling-window statistics
+     *
+     * @return true if new timers record rolling-window statistics
+     */
+    public static boolean isRollingStatistics() {
+        return _rolling;
+    }
+
+    /**
+     * Enable or disable rolling-window statistics in new timers (disabled by default as it reads
+     * the clock on every value and keeps one window per timer cell)
+     *
+     * @see #PROPERTY_ROLLING
+     * @param enabled true to record rolling-window statistics
+     */
+    public static void setRollingStatistics(final boolean enabled) {
+        _rolling = enabled;
+    }
+
     /**
      * Return an existing or a new ThresholdTimer for that category (lazy) with the default threshold
      * and unit (milliseconds)
@@ -305,10 +710,8 @@ public final class TimerFactory {
             }
 
             synchronized (_lock) {
-                final AbstractTimer old = _timerMap.get(category);
-                // memory thread visibility issue :
+                final AbstractTimer old = _timerMap.putIfAbsent(category, timer);
                 if (old == null) {
-                    _timerMap.put(category, timer);
                     _timerList.add(timer);
                 } else {
                     timer = old;
@@ -321,6 +724,7 @@ public final class TimerFactory {
 
     /**
      * Return a string representation for all timer instances present in the timerMap map
+     * (statistics cells of each timer are merged)
      *
      * @return string representation for all timer instances
      */
@@ -353,12 +757,11 @@ public final class TimerFactory {
     }
 
     /**
-     * Return true if there is no existing timer.<br>
-     * This method is not thread safe but only useful before dumpTimers()
+     * Return true if there is no existing timer
      *
      * @return true if there is no existing timer
      */
     public static boolean isEmpty() {
-        return _timerList.isEmpty();
+        return _timerMap.isEmpty();
     }
 }
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.timer;
+
+/**
+ * Timing scope to use in try-with-resources blocks:
+ * <pre>
+ * try (TimerScope scope = timer.start()) {
+ *     ...
+ *     try (TimerScope sub = scope.child("phase")) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * The elapsed time is added to the timer when the scope is closed (corrected by the TimerFactory calibration).
+ * Child scopes record sub-phases in the 'parent category/child name' timers (cached per parent timer and name).
+ *
+ * When timers are disabled or the scope is not sampled, the shared DISABLED scope is returned
+ * (no allocation nor clock call).
+ *
+ * Note: a scope must be closed once by its owner thread.
+ *
+ * @see AbstractTimer#start()
+ * @see TimerFactory#start(String)
+ * @author agent
+ */
+public final class TimerScope implements AutoCloseable {
+
+    /** shared no-op scope */
+    public final static TimerScope DISABLED = new TimerScope(null, null, 0L);
+    /** separator between parent and child categories */
+    public final static char CATEGORY_SEPARATOR = '/';
+    // Members
+    /** timer (null if disabled) */
+    private final AbstractTimer _timer;
+    /** parent scope (null if root) */
+    private final TimerScope _parent;
+    /** start time (ns) */
+    private final long _start;
+
+    /**
+     * Protected Constructor for TimerScope objects
+     *
+     * @param timer timer to update
+     * @param parent parent scope or null
+     * @param start start time (ns)
+     */
+    TimerScope(final AbstractTimer timer, final TimerScope parent, final long start) {
+        _timer = timer;
+        _parent = parent;
+        _start = start;
+    }
+
+    /**
+     * Start a child scope (sub-phase) using the timer 'category/name' (same unit and threshold)
+     *
+     * @param name sub-phase name
+     * @return child scope or DISABLED if this scope is not recording
+     */
+    public TimerScope child(final String name) {
+        if (_timer == null) {
+            return DISABLED;
+        }
+        return new TimerScope(_timer.getChild(name), this, System.nanoTime());
+    }
+
+    /**
+     * Return true if this scope records the elapsed time
+     *
+     * @return true if this scope records the elapsed time
+     */
+    public boolean isRecording() {
+        return _timer != null;
+    }
+
+    /**
+     * Return the timer (null if disabled)
+     *
+     * @return timer or null
+     */
+    public AbstractTimer getTimer() {
+        return _timer;
+    }
+
+    /**
+     * Return the parent scope
+     *
+     * @return parent scope or null if root
+     */
+    public TimerScope getParent() {
+        return _parent;
+    }
+
+    /**
+     * Add the elapsed time since the scope start to its timer
+     */
+    @Override
+    public void close() {
+        if (_timer != null) {
+            final long now = System.nanoTime();
+            if (_timer.getUnit() == TimerFactory.UNIT.ms) {
+                _timer.addMilliSeconds(_start, now);
+            } else {
+                _timer.addNanoSeconds(_start, now);
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.network.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import fr.jmmc.jmcs.data.MimeType;
+import fr.jmmc.jmcs.util.FileUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the HttpCache (conditional revalidation, freshness, LRU eviction) and streaming processors using a local HTTP server
+ *
+ * @author agent
+ */
+public class TestHttpCache {
+
+    /** resource size */
+    private static final int SIZE = 2000;
+    /** local HTTP server */
+    private static HttpServer server;
+    /** cache directory */
+    private static File cacheDir;
+    /** resource versions */
+    private static final Map<String, Integer> versions = new ConcurrentHashMap<String, Integer>();
+    /** number of requests per resource */
+    private static final Map<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+    /** last If-None-Match header per resource */
+    private static final Map<String, String> conditions = new ConcurrentHashMap<String, String>();
+    /** last If-Modified-Since header per resource */
+    private static final Map<String, String> modifiedSince = new ConcurrentHashMap<String, String>();
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        cacheDir = File.createTempFile("TestHttpCache", "");
+        cacheDir.delete();
+        System.setProperty(HttpCache.PROPERTY_DIR, cacheDir.getAbsolutePath());
+        System.setProperty(HttpCache.PROPERTY_MAX_SIZE, Integer.toString(4 * SIZE + SIZE / 2));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String name = exchange.getRequestURI().getPath().substring(1);
+                final Integer version = versions.containsKey(name) ? versions.get(name) : Integer.valueOf(0);
+                final String etag = "\"" + name + '-' + version + "\"";
+
+                final int count = requests.get(name).incrementAndGet();
+                final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                conditions.put(name, (ifNoneMatch != null) ? ifNoneMatch : "");
+                final String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                modifiedSince.put(name, (ifModifiedSince != null) ? ifModifiedSince : "");
+
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (name.startsWith("lm")) {
+                    // date changed by every response (including 304):
+                    exchange.getResponseHeaders().set("Last-Modified", "Thu, 01 Jan 2015 00:00:0" + count + " GMT");
+                }
+                if (name.startsWith("fresh")) {
+                    exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+                } else if (name.startsWith("nostore")) {
+                    exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                }
+                if (etag.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    // "large" resources use chunked encoding (unknown length) and exceed the entry limit:
+                    final boolean large = name.startsWith("large");
+                    final byte[] body = new byte[(large) ? 10 * SIZE : SIZE];
+                    Arrays.fill(body, (byte) ('a' + version));
+                    exchange.sendResponseHeaders(200, (large) ? 0 : body.length);
+                    final OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        server.stop(0);
+        final HttpCache cache = HttpCache.getInstance();
+        if (cache != null) {
+            cache.clear();
+        }
+        cacheDir.delete();
+    }
+
+    @Before
+    public void clearCache() {
+        HttpCache.getInstance().clear();
+        versions.clear();
+        requests.clear();
+        conditions.clear();
+        modifiedSince.clear();
+    }
+
+    private static URI uri(final String name) {
+        if (!requests.containsKey(name)) {
+            requests.put(name, new AtomicInteger());
+        }
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/" + name);
+    }
+
+    private static String get(final String name) throws IOException {
+        return Http.download(uri(name), false);
+    }
+
+    @Test
+    public void testRevalidation() throws IOException {
+        final String first = get("res");
+        Assert.assertEquals(SIZE, first.length());
+        Assert.assertEquals("", conditions.get("res"));
+
+        // not modified (304):
+        Assert.assertEquals(first, get("res"));
+        Assert.assertEquals("\"res-0\"", conditions.get("res"));
+        Assert.assertEquals(2, requests.get("res").get());
+
+        // modified:
+        versions.put("res", 1);
+        final String second = get("res");
+        Assert.assertEquals('b', second.charAt(0));
+        Assert.assertEquals(second, get("res"));
+        Assert.assertEquals("\"res-1\"", conditions.get("res"));
+
+        // file download:
+        final File file = File.createTempFile("TestHttpCache", ".txt");
+        try {
+            Assert.assertTrue(Http.download(uri("res"), file, false));
+            Assert.assertEquals(SIZE, file.length());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRevalidatedLastModified() throws IOException {
+        get("lm");
+        get("lm");
+        Assert.assertEquals("Thu, 01 Jan 2015 00:00:01 GMT", modifiedSince.get("lm"));
+        // the date given by the 304 response is used by the next revalidation:
+        get("lm");
+        Assert.assertEquals("Thu, 01 Jan 2015 00:00:02 GMT", modifiedSince.get("lm"));
+        Assert.assertEquals(3, requests.get("lm").get());
+    }
+
+    @Test
+    public void testTemporaryFiles() throws IOException {
+        final HttpCache cache = HttpCache.getInstance();
+        get("r1");
+        // download in progress (another process) and stale partial download:
+        final File current = new File(cache.getDirectory(), "current.tmp");
+        final File stale = new File(cache.getDirectory(), "stale.tmp");
+        try {
+            Assert.assertTrue(current.createNewFile());
+            Assert.assertTrue(stale.createNewFile());
+            Assert.assertTrue(stale.setLastModified(System.currentTimeMillis() - 2L * 24L * 3600L * 1000L));
+
+            final HttpCache reloaded = new HttpCache(cache.getDirectory(), cache.getMaxSize());
+            Assert.assertEquals(1, reloaded.getEntryCount());
+            Assert.assertTrue(current.exists());
+            Assert.assertFalse(stale.exists());
+        } finally {
+            current.delete();
+            stale.delete();
+        }
+    }
+
+    @Test
+    public void testFreshness() throws IOException {
+        Assert.assertEquals(get("fresh"), get("fresh"));
+        // no request while fresh (max-age):
+        Assert.assertEquals(1, requests.get("fresh").get());
+
+        // never stored (only "fresh" is cached):
+        Assert.assertEquals(get("nostore"), get("nostore"));
+        Assert.assertEquals("", conditions.get("nostore"));
+        Assert.assertEquals(1, HttpCache.getInstance().getEntryCount());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        final HttpCache cache = HttpCache.getInstance();
+        for (int i = 1; i <= 4; i++) {
+            get("r" + i);
+        }
+        Assert.assertEquals(4, cache.getEntryCount());
+        // use r1 again (most recently used):
+        get("r1");
+        Assert.assertEquals("\"r1-0\"", conditions.get("r1"));
+
+        // exceeds the maximum size: evict r2 (least recently used)
+        get("r5");
+        Assert.assertEquals(4, cache.getEntryCount());
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+
+        get("r2");
+        Assert.assertEquals("", conditions.get("r2"));
+        get("r1");
+        Assert.assertEquals("\"r1-0\"", conditions.get("r1"));
+
+        // reload from disk (persistent entries):
+        final HttpCache reloaded = new HttpCache(cache.getDirectory(), cache.getMaxSize());
+        Assert.assertEquals(cache.getEntryCount(), reloaded.getEntryCount());
+        Assert.assertEquals(cache.getSize(), reloaded.getSize());
+    }
+
+    @Test
+    public void testLargeChunked() throws IOException {
+        final HttpCache cache = HttpCache.getInstance();
+        get("r1");
+        Assert.assertEquals(1, cache.getEntryCount());
+
+        // larger than the entry limit: streamed directly, not stored
+        Assert.assertEquals(10 * SIZE, get("large").length());
+        Assert.assertEquals(10 * SIZE, get("large").length());
+        Assert.assertEquals("", conditions.get("large"));
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+
+        final File file = File.createTempFile("TestHttpCache", ".txt");
+        try {
+            Assert.assertTrue(Http.download(uri("large"), file, false));
+            Assert.assertEquals(10 * SIZE, file.length());
+        } finally {
+            file.delete();
+        }
+        // no partial copy left:
+        Assert.assertEquals(2 * cache.getEntryCount(), cache.getDirectory().list().length);
+    }
+
+    @Test
+    public void testRetrieveRemoteFile() throws IOException, URISyntaxException {
+        final String name = "remote.obx";
+        final File dir = File.createTempFile("TestHttpCache", "");
+        dir.delete();
+        try {
+            final File file = FileUtils.retrieveRemoteFile(uri(name).toString(), dir.getAbsolutePath(), MimeType.OBX);
+            Assert.assertEquals(SIZE, file.length());
+            final File validatorsFile = new File(dir, name + ".validators");
+            Assert.assertTrue(validatorsFile.isFile());
+            // not stored twice (local copy only):
+            Assert.assertEquals(0, HttpCache.getInstance().getEntryCount());
+
+            // revalidated with its own validators (304):
+            Assert.assertEquals(file, FileUtils.retrieveRemoteFile(uri(name).toString(), dir.getAbsolutePath(), MimeType.OBX));
+            Assert.assertEquals("\"remote.obx-0\"", conditions.get(name));
+            Assert.assertEquals(2, requests.get(name).get());
+
+            // modified:
+            versions.put(name, 1);
+            FileUtils.retrieveRemoteFile(uri(name).toString(), dir.getAbsolutePath(), MimeType.OBX);
+            Assert.assertEquals(3, requests.get(name).get());
+            Assert.assertEquals('b', FileUtils.readFile(file).charAt(0));
+            Assert.assertFalse(new File(dir, name + ".part").exists());
+
+            // no validator: local copy used without request
+            validatorsFile.delete();
+            FileUtils.retrieveRemoteFile(uri(name).toString(), dir.getAbsolutePath(), MimeType.OBX);
+            Assert.assertEquals(3, requests.get(name).get());
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        final long[] result = new long[2];
+        final ChannelProcessor counter = new ChannelProcessor() {
+            @Override
+            public void process(final ReadableByteChannel channel, final long length) throws IOException {
+                final ByteBuffer buffer = ByteBuffer.allocate(256);
+                long n = 0L;
+                int len;
+                while ((len = channel.read(buffer)) >= 0) {
+                    n += len;
+                    buffer.clear();
+                }
+                result[0] = length;
+                result[1] = n;
+            }
+        };
+        // network (Content-Length):
+        Assert.assertTrue(Http.download(uri("nostore"), false, counter));
+        Assert.assertArrayEquals(new long[]{SIZE, SIZE}, result);
+
+        // cache hit (FileChannel):
+        get("fresh");
+        Assert.assertTrue(Http.download(uri("fresh"), false, counter));
+        Assert.assertArrayEquals(new long[]{SIZE, SIZE}, result);
+        Assert.assertEquals(1, requests.get("fresh").get());
+
+        // direct file transfer (network):
+        final File file = File.createTempFile("TestHttpCache", ".txt");
+        try {
+            Assert.assertTrue(Http.download(uri("nostore"), false, new FileStreamProcessor(file)));
+            Assert.assertEquals(SIZE, file.length());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.network.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import fr.jmmc.jmcs.util.FileUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the ranged download (concurrent byte ranges, resume, checksum) using a local HTTP server
+ *
+ * @author agent
+ */
+public class TestRangedDownload {
+
+    /** resource size */
+    private static final int SIZE = 1000 * 1000;
+    /** segment size */
+    private static final long SEGMENT_SIZE = 64 * 1024;
+    /** number of segments */
+    private static final int SEGMENTS = (int) ((SIZE + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+    /** resource content */
+    private static final byte[] DATA = new byte[SIZE];
+    /** local HTTP server */
+    private static HttpServer server;
+    /** resource version (ETag) */
+    private static volatile int version = 0;
+    /** ranges starting at or after this position fail (503) if positive */
+    private static volatile long failFrom = -1L;
+    /** number of range requests */
+    private static final AtomicInteger ranges = new AtomicInteger();
+    /** number of bytes sent */
+    private static final AtomicLong sent = new AtomicLong();
+    /** HTTP cache directory (if defined by this test) */
+    private static File cacheDir = null;
+    /** last If-Range header received */
+    private static volatile String lastIfRange = null;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        new Random(42L).nextBytes(DATA);
+
+        if (System.getProperty(HttpCache.PROPERTY_DIR) == null) {
+            // use a temporary HTTP cache smaller than the resource:
+            cacheDir = File.createTempFile("TestRangedDownload", "");
+            cacheDir.delete();
+            System.setProperty(HttpCache.PROPERTY_DIR, cacheDir.getAbsolutePath());
+            System.setProperty(HttpCache.PROPERTY_MAX_SIZE, Integer.toString(SIZE / 2));
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                // '/data' and '/weak' support byte ranges, '/plain' and '/cached' do not:
+                final String path = exchange.getRequestURI().getPath();
+                final boolean weak = path.equals("/weak");
+                final boolean acceptRanges = weak || path.equals("/data");
+                // '/weak' has a weak ETag (not usable in If-Range) and a Last-Modified date:
+                final String etag = ((weak) ? "W/" : "") + "\"data-" + version + "\"";
+                final String lastModified = "Thu, 01 Jan 2015 00:00:0" + version + " GMT";
+
+                final Headers headers = exchange.getResponseHeaders();
+                headers.set("ETag", etag);
+                if (weak) {
+                    headers.set("Last-Modified", lastModified);
+                }
+                // '/cached' responses may be stored in the HTTP cache:
+                if (!path.equals("/cached")) {
+                    headers.set("Cache-Control", "no-store");
+                }
+                if (acceptRanges) {
+                    headers.set("Accept-Ranges", "bytes");
+                }
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    headers.set("Content-Length", Integer.toString(SIZE));
+                    // the server closes the connection after HEAD responses: tell the client not to reuse it
+                    headers.set("Connection", "close");
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                    return;
+                }
+                int start = 0;
+                int end = SIZE - 1;
+                int status = 200;
+
+                final String range = exchange.getRequestHeaders().getFirst("Range");
+                final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+                if (ifRange != null) {
+                    lastIfRange = ifRange;
+                }
+                // weak entity tags never match If-Range (strong comparison):
+                if (acceptRanges && range != null
+                        && (ifRange == null || (ifRange.equals(etag) && !weak) || ifRange.equals(lastModified))) {
+                    final String[] bounds = range.substring("bytes=".length()).split("-");
+                    start = Integer.parseInt(bounds[0]);
+                    end = Math.min(Integer.parseInt(bounds[1]), SIZE - 1);
+                    ranges.incrementAndGet();
+
+                    if (failFrom >= 0L && start >= failFrom) {
+                        exchange.sendResponseHeaders(503, -1);
+                        exchange.close();
+                        return;
+                    }
+                    headers.set("Content-Range", "bytes " + start + '-' + end + '/' + SIZE);
+                    status = 206;
+                }
+                final int length = end + 1 - start;
+                // '/cached' uses chunked encoding (unknown length):
+                exchange.sendResponseHeaders(status, (path.equals("/cached")) ? 0 : length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(DATA, start, length);
+                out.close();
+                sent.addAndGet(length);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        server.stop(0);
+        if (cacheDir != null) {
+            final HttpCache cache = HttpCache.getInstance();
+            if (cache != null) {
+                cache.clear();
+            }
+            cacheDir.delete();
+        }
+    }
+
+    @Before
+    public void reset() {
+        version = 0;
+        failFrom = -1L;
+        ranges.set(0);
+        sent.set(0L);
+        lastIfRange = null;
+    }
+
+    private static boolean download(final String name, final File file, final byte[] checksum) throws IOException {
+        final URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/" + name);
+        return new RangedDownload(uri, Http.getHttpClient(), file, SEGMENT_SIZE, 4).download(checksum);
+    }
+
+    private static File createFile() throws IOException {
+        final File file = File.createTempFile("TestRangedDownload", ".dat");
+        file.delete();
+        return file;
+    }
+
+    private static void checkFile(final File file) throws IOException {
+        Assert.assertEquals(SIZE, file.length());
+        Assert.assertArrayEquals(DigestUtils.md5(DATA), FileUtils.checksum(new FileInputStream(file)));
+        Assert.assertFalse(new File(file.getPath() + RangedDownload.EXT_PART).exists());
+        Assert.assertFalse(new File(file.getPath() + RangedDownload.EXT_RANGES).exists());
+    }
+
+    @Test
+    public void testParallelDownload() throws IOException {
+        final File file = createFile();
+        try {
+            Assert.assertTrue(download("data", file, DigestUtils.md5(DATA)));
+            checkFile(file);
+            Assert.assertEquals(SEGMENTS, ranges.get());
+            Assert.assertEquals(SIZE, sent.get());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testWeakETag() throws IOException {
+        final File file = createFile();
+        try {
+            Assert.assertTrue(download("weak", file, DigestUtils.md5(DATA)));
+            checkFile(file);
+            Assert.assertEquals(SEGMENTS, ranges.get());
+            Assert.assertEquals(SIZE, sent.get());
+            // If-Range uses Last-Modified:
+            Assert.assertEquals("Thu, 01 Jan 2015 00:00:00 GMT", lastIfRange);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        final File file = createFile();
+        final File partFile = new File(file.getPath() + RangedDownload.EXT_PART);
+        final File rangesFile = new File(file.getPath() + RangedDownload.EXT_RANGES);
+        try {
+            // interrupted download (second half fails):
+            failFrom = SIZE / 2;
+            try {
+                download("data", file, null);
+                Assert.fail("IOException expected");
+            } catch (IOException ioe) {
+                // expected
+            }
+            Assert.assertFalse(file.exists());
+            Assert.assertTrue(partFile.exists());
+            Assert.assertTrue(rangesFile.exists());
+
+            final long first = sent.get();
+            Assert.assertTrue(first > 0L && first < SIZE);
+
+            // resume:
+            failFrom = -1L;
+            Assert.assertTrue(download("data", file, null));
+            checkFile(file);
+            Assert.assertEquals(SIZE, sent.get());
+
+            // changed resource: restart from scratch
+            failFrom = SIZE / 2;
+            try {
+                download("data", file, null);
+                Assert.fail("IOException expected");
+            } catch (IOException ioe) {
+                // expected
+            }
+            version++;
+            failFrom = -1L;
+            sent.set(0L);
+            Assert.assertTrue(download("data", file, null));
+            checkFile(file);
+            Assert.assertEquals(SIZE, sent.get());
+        } finally {
+            file.delete();
+            partFile.delete();
+            rangesFile.delete();
+        }
+    }
+
+    @Test
+    public void testChecksum() throws IOException {
+        final File file = createFile();
+        try {
+            final byte[] checksum = DigestUtils.md5(DATA);
+            checksum[0]++;
+            try {
+                download("data", file, checksum);
+                Assert.fail("IOException expected");
+            } catch (IOException ioe) {
+                Assert.assertTrue(ioe.getMessage().startsWith("Checksum mismatch"));
+            }
+            Assert.assertFalse(file.exists());
+            Assert.assertFalse(new File(file.getPath() + RangedDownload.EXT_PART).exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNoRanges() throws IOException {
+        final File file = createFile();
+        try {
+            Assert.assertTrue(download("plain", file, DigestUtils.md5(DATA)));
+            checkFile(file);
+            Assert.assertEquals(0, ranges.get());
+            Assert.assertTrue(Arrays.equals(DigestUtils.md5(DATA), FileUtils.checksum(new FileInputStream(file))));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNoRangesCacheable() throws IOException {
+        // single GET stored through the HTTP cache (unknown length larger than its entry limit):
+        for (int i = 0; i < 2; i++) {
+            final File file = createFile();
+            try {
+                Assert.assertTrue(download("cached", file, DigestUtils.md5(DATA)));
+                checkFile(file);
+                Assert.assertEquals(0, ranges.get());
+            } finally {
+                file.delete();
+            }
+        }
+    }
+}
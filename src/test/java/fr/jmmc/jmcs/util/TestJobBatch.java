@@ -0,0 +1,140 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util;
+
+import fr.jmmc.jmcs.Bootstrapper;
+import fr.jmmc.jmcs.util.concurrent.JobBatch;
+import fr.jmmc.jmcs.util.concurrent.ParallelJobExecutor;
+import fr.jmmc.jmcs.util.concurrent.ThreadExecutors;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark comparing ParallelJobExecutor.forkAndJoin() and the reusable JobBatch
+ * on tiny job batches forked at high frequency
+ *
+ * @author agent
+ */
+public class TestJobBatch {
+
+    /** logger */
+    private final static Logger logger = LoggerFactory.getLogger(TestJobBatch.class.getName());
+    /** number of forkAndJoin calls per pass */
+    private final static int N_CALLS = 100 * 1000;
+    /** number of passes */
+    private final static int N_PASS = 5;
+
+    public static void main(String[] args) {
+
+        // invoke App method to initialize logback now:
+        Bootstrapper.getState();
+
+        /** jMCS Parallel Job executor */
+        final ParallelJobExecutor jobExecutor = ParallelJobExecutor.getInstance();
+
+        final int nJobs = jobExecutor.getMaxParallelJob();
+
+        final int[] values = new int[nJobs];
+
+        // computation tasks (tiny workload):
+        final Runnable[] jobs = new Runnable[nJobs];
+
+        // create tasks:
+        for (int i = 0; i < nJobs; i++) {
+            final int idx = i;
+
+            jobs[i] = new Runnable() {
+                @Override
+                public void run() {
+                    int sum = 0;
+                    for (int j = 0; j < 256; j++) {
+                        sum += j;
+                    }
+                    values[idx] += sum;
+                }
+            };
+        }
+
+        final JobBatch batch = jobExecutor.newJobBatch("TestJobBatch.batch", nJobs);
+
+        for (int pass = 1; pass <= N_PASS; pass++) {
+
+            System.gc();
+            ThreadExecutors.sleep(100l);
+
+            // current path:
+            long allocated = getAllocatedBytes();
+            long start = System.nanoTime();
+
+            for (int n = 0; n < N_CALLS; n++) {
+                jobExecutor.forkAndJoin("TestJobBatch.forkAndJoin", jobs);
+            }
+
+            long elapsed = System.nanoTime() - start;
+            allocated = getAllocatedBytes() - allocated;
+
+            logger.info("TestJobBatch[{}]: forkAndJoin: {} calls ({} jobs) - duration = {} ms - {} ns/call - {} bytes/call.",
+                    pass, N_CALLS, nJobs, 1e-6d * elapsed, elapsed / N_CALLS, allocated / N_CALLS);
+
+            System.gc();
+            ThreadExecutors.sleep(100l);
+
+            // job batch:
+            allocated = getAllocatedBytes();
+            start = System.nanoTime();
+
+            for (int n = 0; n < N_CALLS; n++) {
+                batch.forkAndJoin(jobs);
+            }
+
+            elapsed = System.nanoTime() - start;
+            allocated = getAllocatedBytes() - allocated;
+
+            logger.info("TestJobBatch[{}]: JobBatch   : {} calls ({} jobs) - duration = {} ms - {} ns/call - {} bytes/call.",
+                    pass, N_CALLS, nJobs, 1e-6d * elapsed, elapsed / N_CALLS, allocated / N_CALLS);
+        }
+
+        logger.info("TestJobBatch.main: shutdown");
+
+        ParallelJobExecutor.shutdown();
+    }
+
+    /**
+     * Return the number of bytes allocated by the current thread (if supported)
+     * @return allocated bytes or 0
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0L;
+    }
+}
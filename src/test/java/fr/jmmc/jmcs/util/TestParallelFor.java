@@ -0,0 +1,603 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util;
+
+import fr.jmmc.jmcs.util.concurrent.AdaptiveJobPolicy;
+import fr.jmmc.jmcs.util.concurrent.IntRangeBody;
+import fr.jmmc.jmcs.util.concurrent.InterruptedJobException;
+import fr.jmmc.jmcs.util.concurrent.JobGroup;
+import fr.jmmc.jmcs.util.concurrent.ParallelJobExecutor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test file for ParallelJobExecutor.parallelFor, reductions, job groups and adaptive mode
+ *
+ * @author agent
+ */
+public class TestParallelFor {
+
+    /** jMCS Parallel Job executor */
+    private static ParallelJobExecutor jobExecutor = null;
+
+    @BeforeClass
+    public static void setUpClass() {
+        jobExecutor = ParallelJobExecutor.getInstance();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        ParallelJobExecutor.shutdown();
+    }
+
+    /**
+     * Test that every index is processed exactly once with a skewed workload
+     */
+    @Test
+    public void testParallelForCoverage() {
+        System.out.println("parallelFor: coverage");
+        final int len = 100 * 1000;
+        final int nThreads = jobExecutor.getMaxParallelJob();
+
+        final AtomicIntegerArray visits = new AtomicIntegerArray(len);
+        final AtomicIntegerArray threadIndexes = new AtomicIntegerArray(nThreads);
+        final double[] sinks = new double[nThreads];
+
+        for (int grain : new int[]{0, 1, 7, 1000, len}) {
+            jobExecutor.parallelFor(0, len, grain, new IntRangeBody() {
+                @Override
+                public void run(final int start, final int end) {
+                    final int threadIndex = ParallelJobExecutor.currentThreadIndex(nThreads);
+                    threadIndexes.incrementAndGet(threadIndex);
+
+                    double sink = 0.0;
+                    for (int i = start; i < end; i++) {
+                        visits.incrementAndGet(i);
+                        // skewed cost: last indices are more expensive
+                        for (int j = 0, n = i / 1000; j < n; j++) {
+                            sink += Math.sqrt(j);
+                        }
+                    }
+                    sinks[threadIndex] += sink;
+                }
+            });
+        }
+        for (int i = 0; i < len; i++) {
+            Assert.assertEquals("index " + i, 5, visits.get(i));
+        }
+    }
+
+    /**
+     * Test that a failing body propagates its exception
+     */
+    @Test
+    public void testParallelForFailure() {
+        System.out.println("parallelFor: failure");
+        try {
+            jobExecutor.parallelFor("TestParallelFor", 0, 10000, 10, new IntRangeBody() {
+                @Override
+                public void run(final int start, final int end) {
+                    if (start <= 5000 && 5000 < end) {
+                        throw new IllegalStateException("failure at 5000");
+                    }
+                }
+            });
+            Assert.fail("exception expected");
+        } catch (RuntimeException re) {
+            Throwable th = re;
+            while (th.getCause() != null) {
+                th = th.getCause();
+            }
+            Assert.assertTrue(th instanceof IllegalStateException);
+        }
+        // clear interrupted flag set by join:
+        Thread.interrupted();
+    }
+
+    /**
+     * Test empty and single-element ranges
+     */
+    @Test
+    public void testParallelForBounds() {
+        System.out.println("parallelFor: bounds");
+        final int[] count = new int[1];
+        final IntRangeBody body = new IntRangeBody() {
+            @Override
+            public void run(final int start, final int end) {
+                synchronized (count) {
+                    count[0] += end - start;
+                }
+            }
+        };
+        jobExecutor.parallelFor(10, 10, 0, body);
+        Assert.assertEquals(0, count[0]);
+        jobExecutor.parallelFor(-5, -4, 0, body);
+        Assert.assertEquals(1, count[0]);
+        jobExecutor.parallelFor(Integer.MIN_VALUE, Integer.MIN_VALUE + 12345, 3, body);
+        Assert.assertEquals(12346, count[0]);
+    }
+
+    /**
+     * Test reduceDouble and reduceLong (sum, min)
+     */
+    @Test
+    public void testReducePrimitives() {
+        System.out.println("reduceDouble / reduceLong");
+        final int len = 1000 * 1000;
+
+        // sums of integers are exact in double precision:
+        final double sum = jobExecutor.reduceDouble("TestParallelFor.sum", 0, len, 0, 0.0,
+                new IntToDoubleFunction() {
+            @Override
+            public double applyAsDouble(final int i) {
+                return i;
+            }
+        }, new DoubleBinaryOperator() {
+            @Override
+            public double applyAsDouble(final double a, final double b) {
+                return a + b;
+            }
+        });
+        Assert.assertEquals((double) len * (len - 1) / 2, sum, 0.0);
+
+        final IntToLongFunction mapper = new IntToLongFunction() {
+            @Override
+            public long applyAsLong(final int i) {
+                return (i * 7919L) % 10007L - 5000L;
+            }
+        };
+        final LongBinaryOperator opMin = new LongBinaryOperator() {
+            @Override
+            public long applyAsLong(final long a, final long b) {
+                return Math.min(a, b);
+            }
+        };
+        final long min = jobExecutor.reduceLong("TestParallelFor.min", 0, len, 100, Long.MAX_VALUE, mapper, opMin);
+        Assert.assertEquals(-5000L, min);
+
+        // empty range gives identity:
+        Assert.assertEquals(Long.MAX_VALUE, jobExecutor.reduceLong("TestParallelFor.empty", 5, 5, 0, Long.MAX_VALUE, mapper, opMin));
+    }
+
+    /**
+     * Test generic reduce using histogram accumulators
+     */
+    @Test
+    public void testReduceHistogram() {
+        System.out.println("reduce (histogram)");
+        final int len = 1000 * 1000;
+        final int nBins = 10;
+
+        final int[] histo = jobExecutor.reduce("TestParallelFor.histo", 0, len, 0,
+                new Supplier<int[]>() {
+            @Override
+            public int[] get() {
+                return new int[nBins];
+            }
+        }, new ObjIntConsumer<int[]>() {
+            @Override
+            public void accept(final int[] acc, final int i) {
+                acc[i % nBins]++;
+            }
+        }, new BinaryOperator<int[]>() {
+            @Override
+            public int[] apply(final int[] a, final int[] b) {
+                for (int i = 0; i < nBins; i++) {
+                    a[i] += b[i];
+                }
+                return a;
+            }
+        });
+        for (int i = 0; i < nBins; i++) {
+            Assert.assertEquals(len / nBins, histo[i]);
+        }
+    }
+
+    /**
+     * Acquire the given thread index: fails if another thread is running a body with the same index
+     * @param owners thread owning each index
+     * @param index thread index
+     * @return true if acquired (false if already owned by the current thread: nested body)
+     */
+    private static boolean acquire(final AtomicReferenceArray<Thread> owners, final int index) {
+        final Thread currentTh = Thread.currentThread();
+        if (owners.get(index) == currentTh) {
+            return false;
+        }
+        Assert.assertTrue("thread index " + index + " in use", owners.compareAndSet(index, null, currentTh));
+        return true;
+    }
+
+    /**
+     * Test nested parallelFor / forkAndJoin from worker threads (no deadlock)
+     * and that bodies never share their thread index with a body running in another thread
+     */
+    @Test(timeout = 60000L)
+    public void testNestedParallelFor() {
+        System.out.println("parallelFor: nested");
+        final int nOuter = 4 * jobExecutor.getMaxParallelJob();
+        final int nInner = 10000;
+        final AtomicIntegerArray visits = new AtomicIntegerArray(nOuter * nInner);
+        final int nSlots = jobExecutor.getMaxParallelJob();
+        final AtomicReferenceArray<Thread> owners = new AtomicReferenceArray<Thread>(nSlots);
+
+        jobExecutor.parallelFor("TestParallelFor.outer", 0, nOuter, 1, new IntRangeBody() {
+            @Override
+            public void run(final int start, final int end) {
+                final int slot = ParallelJobExecutor.currentThreadIndex(nSlots);
+                final boolean acquired = acquire(owners, slot);
+                for (int o = start; o < end; o++) {
+                    final int offset = o * nInner;
+
+                    jobExecutor.parallelFor("TestParallelFor.inner", 0, nInner / 2, 100, new IntRangeBody() {
+                        @Override
+                        public void run(final int lo, final int hi) {
+                            final int innerSlot = ParallelJobExecutor.currentThreadIndex(nSlots);
+                            final boolean innerAcquired = acquire(owners, innerSlot);
+                            for (int i = lo; i < hi; i++) {
+                                visits.incrementAndGet(offset + i);
+                            }
+                            if (innerAcquired) {
+                                owners.set(innerSlot, null);
+                            }
+                        }
+                    });
+
+                    final Runnable[] jobs = new Runnable[jobExecutor.getMaxParallelJob()];
+                    for (int j = 0; j < jobs.length; j++) {
+                        final int lo = nInner / 2 + (j * (nInner / 2)) / jobs.length;
+                        final int hi = nInner / 2 + ((j + 1) * (nInner / 2)) / jobs.length;
+                        jobs[j] = new Runnable() {
+                            @Override
+                            public void run() {
+                                for (int i = lo; i < hi; i++) {
+                                    visits.incrementAndGet(offset + i);
+                                }
+                            }
+                        };
+                    }
+                    jobExecutor.forkAndJoin("TestParallelFor.innerJobs", jobs);
+                }
+                if (acquired) {
+                    owners.set(slot, null);
+                }
+            }
+        });
+        for (int i = 0, len = visits.length(); i < len; i++) {
+            Assert.assertEquals("index " + i, 1, visits.get(i));
+        }
+    }
+
+    /**
+     * Test that a nested parallelFor called from a sequential loop body (current thread)
+     * never runs a body with the thread index used by the outer body in another thread
+     */
+    @Test(timeout = 60000L)
+    public void testNestedThreadIndex() {
+        System.out.println("parallelFor: nested thread index");
+        final int nSlots = jobExecutor.getMaxParallelJob();
+        final AtomicReferenceArray<Thread> owners = new AtomicReferenceArray<Thread>(nSlots);
+        final AtomicIntegerArray visits = new AtomicIntegerArray(100000);
+
+        // single index: outer body runs in the current thread
+        jobExecutor.parallelFor("TestParallelFor.outer", 0, 1, 1, new IntRangeBody() {
+            @Override
+            public void run(final int start, final int end) {
+                final int slot = ParallelJobExecutor.currentThreadIndex(nSlots);
+                final boolean acquired = acquire(owners, slot);
+
+                jobExecutor.parallelFor("TestParallelFor.inner", 0, visits.length(), 100, new IntRangeBody() {
+                    @Override
+                    public void run(final int lo, final int hi) {
+                        final int innerSlot = ParallelJobExecutor.currentThreadIndex(nSlots);
+                        final boolean innerAcquired = acquire(owners, innerSlot);
+                        for (int i = lo; i < hi; i++) {
+                            visits.incrementAndGet(i);
+                        }
+                        if (innerAcquired) {
+                            owners.set(innerSlot, null);
+                        }
+                    }
+                });
+                if (acquired) {
+                    owners.set(slot, null);
+                }
+            }
+        });
+        for (int i = 0, len = visits.length(); i < len; i++) {
+            Assert.assertEquals("index " + i, 1, visits.get(i));
+        }
+    }
+
+    /**
+     * Test that a failing forkAndJoin interrupts the caller again (as join(futures) does)
+     */
+    @Test(timeout = 60000)
+    public void testForkAndJoinFailure() {
+        System.out.println("forkAndJoin: failure");
+        final Runnable[] jobs = new Runnable[]{new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("failure");
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    // no-op
+                }
+            }};
+        try {
+            jobExecutor.forkAndJoin("testForkAndJoinFailure", jobs, true);
+            Assert.fail("exception expected");
+        } catch (RuntimeException re) {
+            Assert.assertTrue(re.getCause() instanceof IllegalStateException);
+        }
+        // check and clear the interrupted flag set by join:
+        Assert.assertTrue(Thread.interrupted());
+
+        // single job fork (no group):
+        final Future<?> future = jobExecutor.fork(jobs[1]);
+        try {
+            Assert.assertNull(future.get());
+        } catch (Exception e) {
+            Assert.fail(e.toString());
+        }
+    }
+
+    /**
+     * Test that the first failure cancels (interrupts) other jobs of the group without waiting for them
+     */
+    @Test(timeout = 60000)
+    public void testJobGroupFailure() {
+        System.out.println("JobGroup: failure");
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+
+        final JobGroup group = jobExecutor.newJobGroup("testJobGroupFailure");
+        group.fork(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failure");
+            }
+        });
+        group.fork(new SleepJob(interrupted));
+
+        final long start = System.nanoTime();
+        try {
+            group.join();
+            Assert.fail("exception expected");
+        } catch (RuntimeException re) {
+            Assert.assertTrue(re.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertTrue("teardown too slow", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10L);
+        Assert.assertTrue(group.isCancelled());
+        Assert.assertEquals(0, group.getActiveCount());
+        // the sleeping job was either never started or interrupted:
+        Assert.assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Test that exceeding the deadline cancels the group
+     */
+    @Test(timeout = 60000)
+    public void testJobGroupDeadline() {
+        System.out.println("JobGroup: deadline");
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+
+        final JobGroup group = jobExecutor.newJobGroup("testJobGroupDeadline", 200L, TimeUnit.MILLISECONDS);
+        group.fork(new SleepJob(interrupted));
+
+        final long start = System.nanoTime();
+        try {
+            group.join();
+            Assert.fail("exception expected");
+        } catch (InterruptedJobException ije) {
+            Assert.assertTrue(ije.getCause() instanceof TimeoutException);
+        }
+        Assert.assertTrue("teardown too slow", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10L);
+        Assert.assertEquals(0, group.getActiveCount());
+        Assert.assertTrue(interrupted.get());
+
+        // successful group:
+        final JobGroup other = jobExecutor.newJobGroup("testJobGroupDeadline", 10L, TimeUnit.SECONDS);
+        other.fork(new Runnable() {
+            @Override
+            public void run() {
+                // no-op
+            }
+        });
+        Assert.assertEquals(1, other.join().size());
+        other.close();
+    }
+
+    /**
+     * Test that members forking into their group while a worker thread joins it do not starve the thread pool
+     */
+    @Test(timeout = 60000)
+    public void testJobGroupNestedFork() {
+        System.out.println("JobGroup: nested fork");
+        final int nOuter = jobExecutor.getMaxParallelJob() + 1;
+        final AtomicInteger count = new AtomicInteger(0);
+
+        final JobGroup outer = jobExecutor.newJobGroup("testJobGroupNestedFork.outer");
+        for (int i = 0; i < nOuter; i++) {
+            outer.fork(new Runnable() {
+                @Override
+                public void run() {
+                    // all worker threads join their own group:
+                    final JobGroup inner = jobExecutor.newJobGroup("testJobGroupNestedFork.inner");
+                    inner.fork(new Runnable() {
+                        @Override
+                        public void run() {
+                            // fork into the group while its owner is joining:
+                            for (int j = 0; j < 4; j++) {
+                                inner.fork(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        count.incrementAndGet();
+                                    }
+                                });
+                            }
+                        }
+                    });
+                    Assert.assertEquals(5, inner.join().size());
+                }
+            });
+        }
+        Assert.assertEquals(nOuter, outer.join().size());
+        Assert.assertEquals(4 * nOuter, count.get());
+    }
+
+    /**
+     * Test that the adaptive mode runs tiny batches inline and slow batches in parallel
+     */
+    @Test(timeout = 60000)
+    public void testAdaptive() {
+        System.out.println("adaptive: decisions");
+        jobExecutor.setAdaptive(true);
+        try {
+            final Runnable[] tiny = new Runnable[4];
+            final Runnable[] slow = new Runnable[4];
+            for (int i = 0; i < 4; i++) {
+                tiny[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        // no-op
+                    }
+                };
+                slow[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(5L);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                };
+            }
+            final int n = 100;
+            for (int i = 0; i < n; i++) {
+                jobExecutor.forkAndJoin("testAdaptive.tiny", tiny);
+            }
+            final AdaptiveJobPolicy tinyPolicy = jobExecutor.getAdaptivePolicy("testAdaptive.tiny");
+            Assert.assertEquals(n, tinyPolicy.getInlineCount() + tinyPolicy.getParallelCount());
+
+            if (jobExecutor.getMaxParallelJob() > 1) {
+                for (int i = 0; i < 30; i++) {
+                    jobExecutor.forkAndJoin("testAdaptive.slow", slow);
+                }
+                final AdaptiveJobPolicy slowPolicy = jobExecutor.getAdaptivePolicy("testAdaptive.slow");
+                System.out.println(jobExecutor.dumpAdaptivePolicies());
+
+                Assert.assertTrue(tinyPolicy.getInlineCount() > tinyPolicy.getParallelCount());
+                Assert.assertTrue(slowPolicy.getParallelCount() > slowPolicy.getInlineCount());
+            }
+            // useThreads = false is never overridden:
+            jobExecutor.forkAndJoin("testAdaptive.off", slow, false);
+            Assert.assertEquals(0L, jobExecutor.getAdaptivePolicy("testAdaptive.off").getParallelCount());
+        } finally {
+            jobExecutor.setAdaptive(false);
+            jobExecutor.resetAdaptivePolicies();
+        }
+    }
+
+    /**
+     * Test that adaptive decisions depend on the batch size and follow workload changes quickly
+     * (synthetic costs, no timing)
+     */
+    @Test(timeout = 60000)
+    public void testAdaptiveBatchSize() {
+        System.out.println("adaptive: batch size");
+        final AdaptiveJobPolicy policy = jobExecutor.getAdaptivePolicy("testAdaptiveBatchSize");
+        try {
+            // fixed parallel overhead (1000 ns per batch) and 100 ns per job:
+            for (int i = 0; i < 200; i++) {
+                for (int nJobs : new int[]{2, 64}) {
+                    final boolean parallel = policy.shouldRunParallel(nJobs);
+                    policy.record(parallel, nJobs, (parallel) ? (1000L + 10L * nJobs) : 100L * nJobs);
+                }
+            }
+            System.out.println(policy.toString());
+            Assert.assertFalse(policy.shouldRunParallel(2));
+            Assert.assertTrue(policy.shouldRunParallel(64));
+
+            // workload change: parallel becomes cheaper for small batches
+            // (2 consecutive parallel decisions can not be both probes):
+            int decisions = 0;
+            int parallelRun = 0;
+            while (parallelRun < 2 && decisions < 256) {
+                final boolean parallel = policy.shouldRunParallel(2);
+                policy.record(parallel, 2, (parallel) ? 20L : 200L);
+                parallelRun = (parallel) ? parallelRun + 1 : 0;
+                decisions++;
+            }
+            System.out.println("adapted after " + decisions + " decisions");
+            Assert.assertEquals(2, parallelRun);
+        } finally {
+            jobExecutor.resetAdaptivePolicies();
+        }
+    }
+
+    /**
+     * Job sleeping 30s unless interrupted
+     */
+    private static final class SleepJob implements Runnable {
+
+        /** interrupted flag */
+        private final AtomicBoolean _interrupted;
+
+        SleepJob(final AtomicBoolean interrupted) {
+            _interrupted = interrupted;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(30000L);
+            } catch (InterruptedException ie) {
+                _interrupted.set(true);
+            }
+        }
+    }
+}
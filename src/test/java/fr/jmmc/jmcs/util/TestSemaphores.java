@@ -0,0 +1,429 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util;
+
+import fr.jmmc.jmcs.util.concurrent.FastSemaphore;
+import fr.jmmc.jmcs.util.concurrent.StripedSemaphore;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test file for FastSemaphore (multiple permits) and StripedSemaphore
+ * and contention benchmark (main) against java.util.concurrent.Semaphore
+ *
+ * @author agent
+ */
+public class TestSemaphores {
+
+    /** number of permits */
+    private final static int PERMITS = 16;
+
+    /**
+     * Common semaphore operations (benchmark and tests)
+     */
+    private interface Permits {
+
+        void acquire(final int n) throws InterruptedException;
+
+        boolean tryAcquire(final int n, final long timeout, final TimeUnit unit) throws InterruptedException;
+
+        void release(final int n);
+
+        int availablePermits();
+    }
+
+    private static Permits wrap(final Semaphore sem) {
+        return new Permits() {
+            @Override
+            public void acquire(final int n) throws InterruptedException {
+                sem.acquire(n);
+            }
+
+            @Override
+            public boolean tryAcquire(final int n, final long timeout, final TimeUnit unit) throws InterruptedException {
+                return sem.tryAcquire(n, timeout, unit);
+            }
+
+            @Override
+            public void release(final int n) {
+                sem.release(n);
+            }
+
+            @Override
+            public int availablePermits() {
+                return sem.availablePermits();
+            }
+
+            @Override
+            public String toString() {
+                return "Semaphore";
+            }
+        };
+    }
+
+    private static Permits wrap(final FastSemaphore sem) {
+        return new Permits() {
+            @Override
+            public void acquire(final int n) throws InterruptedException {
+                sem.acquire(n);
+            }
+
+            @Override
+            public boolean tryAcquire(final int n, final long timeout, final TimeUnit unit) throws InterruptedException {
+                return sem.tryAcquire(n, timeout, unit);
+            }
+
+            @Override
+            public void release(final int n) {
+                sem.release(n);
+            }
+
+            @Override
+            public int availablePermits() {
+                return sem.availablePermits();
+            }
+
+            @Override
+            public String toString() {
+                return "FastSemaphore";
+            }
+        };
+    }
+
+    private static Permits wrap(final StripedSemaphore sem) {
+        return new Permits() {
+            @Override
+            public void acquire(final int n) throws InterruptedException {
+                sem.acquire(n);
+            }
+
+            @Override
+            public boolean tryAcquire(final int n, final long timeout, final TimeUnit unit) throws InterruptedException {
+                return sem.tryAcquire(n, timeout, unit);
+            }
+
+            @Override
+            public void release(final int n) {
+                sem.release(n);
+            }
+
+            @Override
+            public int availablePermits() {
+                return sem.availablePermits();
+            }
+
+            @Override
+            public String toString() {
+                return "StripedSemaphore[" + sem.getStripes() + "]";
+            }
+        };
+    }
+
+    /**
+     * Test multiple permits semantics (all or nothing, timeout, blocking)
+     * @throws InterruptedException if interrupted
+     */
+    @Test(timeout = 60000)
+    public void testMultiplePermits() throws InterruptedException {
+        System.out.println("semaphores: multiple permits");
+        for (final Permits sem : new Permits[]{wrap(new FastSemaphore(5)), wrap(new StripedSemaphore(5, 4))}) {
+            Assert.assertTrue(sem.tryAcquire(3, 0L, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(2, sem.availablePermits());
+
+            // all or nothing:
+            Assert.assertFalse(sem.tryAcquire(3, 20L, TimeUnit.MILLISECONDS));
+            sem.release(0);
+            Assert.assertTrue(sem.tryAcquire(2, 0L, TimeUnit.MILLISECONDS));
+
+            // blocking acquire:
+            final AtomicBoolean acquired = new AtomicBoolean(false);
+            final Thread waiter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sem.acquire(4);
+                        acquired.set(true);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            waiter.start();
+            Thread.sleep(50L);
+            Assert.assertFalse(sem.toString(), acquired.get());
+
+            sem.release(3);
+            Thread.sleep(20L);
+            Assert.assertFalse(sem.toString(), acquired.get());
+
+            sem.release(2);
+            waiter.join();
+            Assert.assertTrue(sem.toString(), acquired.get());
+
+            sem.release(4);
+            Assert.assertEquals(sem.toString(), 5, sem.availablePermits());
+        }
+    }
+
+    /**
+     * Test that a thread waiting for multiple permits holds none of them (no partial grant)
+     * @throws InterruptedException if interrupted
+     */
+    @Test(timeout = 60000)
+    public void testNoPartialGrant() throws InterruptedException {
+        System.out.println("semaphores: no partial grant");
+        for (final Permits sem : new Permits[]{wrap(new FastSemaphore(4)), wrap(new StripedSemaphore(4, 4))}) {
+            sem.acquire(2);
+
+            final AtomicBoolean acquired = new AtomicBoolean(false);
+            final Thread waiter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sem.acquire(3);
+                        acquired.set(true);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            waiter.start();
+            Thread.sleep(50L);
+            Assert.assertFalse(sem.toString(), acquired.get());
+
+            // the 2 free permits are still available to other threads:
+            Assert.assertEquals(sem.toString(), 2, sem.availablePermits());
+            Assert.assertTrue(sem.toString(), sem.tryAcquire(2, 0L, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(sem.toString(), acquired.get());
+
+            sem.release(4);
+            waiter.join();
+            Assert.assertTrue(sem.toString(), acquired.get());
+
+            sem.release(3);
+            Assert.assertEquals(sem.toString(), 4, sem.availablePermits());
+        }
+    }
+
+    /**
+     * Test that processCancels only keeps the cancellations not transferred to the count
+     * @throws Exception if reflection fails
+     */
+    @Test
+    public void testProcessCancels() throws Exception {
+        System.out.println("semaphores: process cancels");
+        final FastSemaphore sem = new FastSemaphore(0);
+        final AtomicInteger count = (AtomicInteger) field(FastSemaphore.class, "count").get(sem);
+        final AtomicInteger cancel = (AtomicInteger) field(FastSemaphore.class, "cancel").get(sem);
+
+        // 1 waiting thread (deficit) and 3 cancelled waits:
+        count.set(-1);
+        final Method processCancels = FastSemaphore.class.getDeclaredMethod("processCancels", int.class);
+        processCancels.setAccessible(true);
+        processCancels.invoke(sem, 3);
+
+        Assert.assertEquals(0, count.get());
+        Assert.assertEquals(2, cancel.get());
+    }
+
+    private static Field field(final Class<?> type, final String name) throws NoSuchFieldException {
+        final Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    /**
+     * Test that acquire(n) checks the interrupt status first even if permits are available
+     */
+    @Test(timeout = 60000)
+    public void testInterruptedAcquire() {
+        System.out.println("semaphores: interrupted acquire");
+        for (final Permits sem : new Permits[]{wrap(new FastSemaphore(4)), wrap(new StripedSemaphore(4, 4))}) {
+            Thread.currentThread().interrupt();
+            try {
+                sem.acquire(2);
+                Assert.fail(sem + ": InterruptedException expected");
+            } catch (InterruptedException ie) {
+                Assert.assertFalse(sem.toString(), Thread.currentThread().isInterrupted());
+            }
+            Assert.assertEquals(sem.toString(), 4, sem.availablePermits());
+        }
+    }
+
+    /**
+     * Test that concurrent multi-permit requests do not fail each other when all of them fit
+     * @throws InterruptedException if interrupted
+     */
+    @Test(timeout = 60000)
+    public void testConcurrentMultiplePermits() throws InterruptedException {
+        System.out.println("semaphores: concurrent multiple permits");
+        final StripedSemaphore sem = new StripedSemaphore(8, 8);
+        final AtomicInteger failures = new AtomicInteger();
+        final int nThreads = 2;
+        final Thread[] threads = new Thread[nThreads];
+
+        for (int t = 0; t < nThreads; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        // 2 x 4 permits always fit in 8 permits:
+                        if (sem.tryAcquire(4)) {
+                            sem.release(4);
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(8, sem.availablePermits());
+    }
+
+    /**
+     * Test that permits are conserved and never over-granted under contention
+     * @throws InterruptedException if interrupted
+     */
+    @Test(timeout = 60000)
+    public void testConservation() throws InterruptedException {
+        System.out.println("semaphores: conservation");
+        for (final Permits sem : new Permits[]{wrap(new FastSemaphore(PERMITS)), wrap(new StripedSemaphore(PERMITS, 8))}) {
+            final AtomicInteger inUse = new AtomicInteger();
+            final AtomicBoolean overflow = new AtomicBoolean(false);
+            final int nThreads = 8;
+            final Thread[] threads = new Thread[nThreads];
+
+            for (int t = 0; t < nThreads; t++) {
+                final int seed = t;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < 20000; i++) {
+                                final int n = 1 + ((i + seed) % 5);
+                                if ((i & 7) == 0) {
+                                    if (!sem.tryAcquire(n, 1L, TimeUnit.MICROSECONDS)) {
+                                        continue;
+                                    }
+                                } else {
+                                    sem.acquire(n);
+                                }
+                                if (inUse.addAndGet(n) > PERMITS) {
+                                    overflow.set(true);
+                                }
+                                inUse.addAndGet(-n);
+                                sem.release(n);
+                            }
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertFalse(sem.toString(), overflow.get());
+            // process deferred cancellations:
+            sem.release(0);
+            if (sem.tryAcquire(PERMITS, 0L, TimeUnit.MILLISECONDS)) {
+                sem.release(PERMITS);
+            } else {
+                Assert.fail(sem + ": permits lost");
+            }
+        }
+    }
+
+    /**
+     * Contention benchmark: threads acquire / release permits in a loop
+     * @param args unused
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int cpus = JVMUtils.availableProcessors();
+        final long duration = 1000L;
+
+        for (int n : new int[]{1, 4}) {
+            for (int nThreads = 1; nThreads <= 4 * cpus; nThreads *= 2) {
+                for (Permits sem : new Permits[]{
+                    wrap(new Semaphore(PERMITS * 4)), wrap(new FastSemaphore(PERMITS * 4)), wrap(new StripedSemaphore(PERMITS * 4))}) {
+                    final double mops = bench(sem, nThreads, n, duration);
+                    System.out.println(sem + "\tthreads = " + nThreads + "\tpermits = " + n + "\t" + NumberUtils.trimTo3Digits(mops) + " Mops/s");
+                }
+            }
+        }
+    }
+
+    private static double bench(final Permits sem, final int nThreads, final int n, final long duration) throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong ops = new AtomicLong();
+        final Thread[] threads = new Thread[nThreads];
+
+        for (int t = 0; t < nThreads; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long count = 0L;
+                    try {
+                        while (running.get()) {
+                            sem.acquire(n);
+                            sem.release(n);
+                            count++;
+                        }
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                    ops.addAndGet(count);
+                }
+            });
+        }
+        final long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(duration);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return ops.get() / (1e-9d * (System.nanoTime() - start)) / 1e6d;
+    }
+}
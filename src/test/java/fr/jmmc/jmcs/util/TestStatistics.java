@@ -0,0 +1,401 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util;
+
+import fr.jmmc.jmcs.util.StatUtils.ComplexDistribution;
+import fr.jmmc.jmcs.util.concurrent.IntRangeBody;
+import fr.jmmc.jmcs.util.concurrent.ParallelJobExecutor;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test file for WelfordVariance (merge, bulk add, higher moments), TDigest and StatUtils
+ *
+ * @author agent
+ */
+public class TestStatistics {
+
+    /** relative tolerance */
+    private final static double EPSILON = 1e-9;
+    /** distribution cache directory */
+    private static File cacheDir;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        // do not write into the user caches directory:
+        cacheDir = File.createTempFile("TestStatistics", "");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+        System.setProperty(StatUtils.PROPERTY_CACHE_DIR, cacheDir.getAbsolutePath());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        for (File file : cacheDir.listFiles()) {
+            file.delete();
+        }
+        cacheDir.delete();
+        System.clearProperty(StatUtils.PROPERTY_CACHE_DIR);
+    }
+
+    @Test
+    public void testWelfordMerge() {
+        final Random random = new Random(1234L);
+        final double[] values = new double[100 * 1000];
+        for (int i = 0; i < values.length; i++) {
+            // skewed distribution (exponential) with an offset:
+            values[i] = 1e3 - Math.log(1.0 - random.nextDouble());
+        }
+
+        // reference: 2-pass moments
+        double sum = 0.0;
+        for (double x : values) {
+            sum += x;
+        }
+        final double mean = sum / values.length;
+        double s2 = 0.0, s3 = 0.0, s4 = 0.0;
+        for (double x : values) {
+            final double d = x - mean;
+            s2 += d * d;
+            s3 += d * d * d;
+            s4 += d * d * d * d;
+        }
+        final double variance = s2 / (values.length - 1);
+        final double skewness = Math.sqrt(values.length) * s3 / Math.pow(s2, 1.5);
+        final double kurtosis = values.length * s4 / (s2 * s2) - 3.0;
+
+        // online:
+        final WelfordVariance online = new WelfordVariance();
+        for (double x : values) {
+            online.add(x);
+        }
+        check(online, values.length, mean, variance, skewness, kurtosis);
+
+        // uneven chunks (bulk add) merged:
+        final WelfordVariance merged = new WelfordVariance();
+        final int[] bounds = new int[]{0, 1, 17, 5000, 5001, 64000, values.length};
+        for (int i = 1; i < bounds.length; i++) {
+            final WelfordVariance chunk = new WelfordVariance();
+            chunk.add(values, bounds[i - 1], bounds[i]);
+            merged.merge(chunk);
+        }
+        merged.merge(new WelfordVariance());
+        check(merged, values.length, mean, variance, skewness, kurtosis);
+
+        Assert.assertEquals(online.min(), merged.min(), 0.0);
+        Assert.assertEquals(online.max(), merged.max(), 0.0);
+
+        // exponential distribution: skewness = 2, excess kurtosis = 6
+        Assert.assertEquals(2.0, skewness, 0.1);
+        Assert.assertEquals(6.0, kurtosis, 1.0);
+    }
+
+    @Test
+    public void testQuantileSketch() {
+        final int n = 200000;
+        final Random random = new Random(5L);
+        final double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            // mix of normal and log-normal values (skewed right tail):
+            values[i] = (i % 3 == 0) ? Math.exp(random.nextGaussian()) : random.nextGaussian();
+        }
+
+        final TDigest empty = new TDigest();
+        Assert.assertTrue(Double.isNaN(empty.median()));
+
+        // 4 partial results (per-value and bulk add) merged:
+        final TDigest digest = new TDigest();
+        for (int p = 0; p < 4; p++) {
+            final TDigest part = new TDigest();
+            final int lo = p * n / 4, hi = (p + 1) * n / 4;
+            if ((p & 1) == 0) {
+                part.add(values, lo, hi);
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    part.add(values[i]);
+                }
+                part.add(Double.NaN);
+            }
+            digest.merge(part);
+            Assert.assertEquals(hi - lo, part.nSamples());
+        }
+        digest.merge(empty);
+        try {
+            digest.merge(digest);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+
+        final double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        Assert.assertEquals(n, digest.nSamples());
+        Assert.assertEquals(sorted[0], digest.min(), 0.0);
+        Assert.assertEquals(sorted[n - 1], digest.max(), 0.0);
+        Assert.assertEquals(sorted[0], digest.quantile(0.0), 0.0);
+        Assert.assertEquals(sorted[n - 1], digest.quantile(1.0), 0.0);
+        Assert.assertTrue(digest.centroids() <= digest.compression());
+
+        for (double q : new double[]{1e-4, 1e-3, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 0.9999}) {
+            int rank = Arrays.binarySearch(sorted, digest.quantile(q));
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            final double rankError = Math.abs((double) rank / n - q);
+            Assert.assertTrue("q=" + q + " rank error=" + rankError, rankError < Math.min(2e-3, 0.2 * Math.min(q, 1.0 - q) + 1e-4));
+        }
+    }
+
+    @Test
+    public void testParallelMoments() {
+        // large array (parallel chunks) with a large offset:
+        final double[] values = new double[(1 << 21) + 12345];
+        final Random random = new Random(9L);
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1e6 + random.nextGaussian() + ((i % 7 == 0) ? random.nextDouble() : 0.0);
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            sum = sum.add(new BigDecimal(values[i]));
+        }
+        final int n = values.length;
+        final double mean = sum.divide(BigDecimal.valueOf(n), MathContext.DECIMAL128).doubleValue();
+        // reference central moments (exact mean):
+        double s2 = 0.0, s3 = 0.0, s4 = 0.0;
+        for (int i = 0; i < n; i++) {
+            final double d = values[i] - mean;
+            s2 += d * d;
+            s3 += d * d * d;
+            s4 += d * d * d * d;
+        }
+        final double var = s2 / (n - 1);
+
+        final double[] moments = StatUtils.moments(values);
+        Assert.assertEquals(mean, moments[0], Math.ulp(mean));
+        Assert.assertEquals(var, moments[1], 1e-12);
+        Assert.assertEquals(s3 / n / Math.pow(var, 1.5), moments[2], 1e-12);
+        Assert.assertEquals(s4 / n / (var * var) - 3.0, moments[3], 1e-12);
+        Assert.assertEquals(min, StatUtils.min(values), 0.0);
+        Assert.assertEquals(max, StatUtils.max(values), 0.0);
+
+        // bit-stable results whatever the number of threads:
+        final ParallelJobExecutor jobExecutor = ParallelJobExecutor.getInstance();
+        final int maxParallelJob = jobExecutor.getMaxParallelJob();
+        final double[] sequential;
+        try {
+            jobExecutor.setMaxParallelJob(1);
+            sequential = StatUtils.moments(values);
+        } finally {
+            jobExecutor.setMaxParallelJob(maxParallelJob);
+        }
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(Double.doubleToLongBits(sequential[i]), Double.doubleToLongBits(moments[i]));
+        }
+    }
+
+    @Test
+    public void testSmallMoments() {
+        // small array (single chunk, plain loops) with a large offset:
+        final double[] values = new double[StatUtils.N_SAMPLES];
+        final Random random = new Random(3L);
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1e6 + random.nextGaussian();
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            sum = sum.add(new BigDecimal(values[i]));
+        }
+        final int n = values.length;
+        final double mean = sum.divide(BigDecimal.valueOf(n), MathContext.DECIMAL128).doubleValue();
+        double s2 = 0.0, s3 = 0.0, s4 = 0.0;
+        for (int i = 0; i < n; i++) {
+            final double d = values[i] - mean;
+            s2 += d * d;
+            s3 += d * d * d;
+            s4 += d * d * d * d;
+        }
+        final double var = s2 / (n - 1);
+
+        // output array is reused:
+        final double[] moments = new double[]{Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        StatUtils.moments(values, moments);
+        Assert.assertEquals(mean, moments[0], Math.ulp(mean));
+        Assert.assertEquals(var, moments[1], 1e-12);
+        Assert.assertEquals(s3 / n / Math.pow(var, 1.5), moments[2], 1e-10);
+        Assert.assertEquals(s4 / n / (var * var) - 3.0, moments[3], 1e-10);
+        Assert.assertEquals(min, StatUtils.min(values), 0.0);
+        Assert.assertEquals(max, StatUtils.max(values), 0.0);
+
+        // NaN values are ignored by mean:
+        values[1] = Double.NaN;
+        Assert.assertFalse(Double.isNaN(StatUtils.mean(values)));
+        Assert.assertEquals(0.0, StatUtils.mean(new double[0]), 0.0);
+        Assert.assertEquals(2.0, StatUtils.mean(new double[]{1.0, Double.NaN, 3.0}), 0.0);
+    }
+
+    @Test
+    public void testDistributionsDeterministic() {
+        final ParallelJobExecutor jobExecutor = ParallelJobExecutor.getInstance();
+        final int maxParallelJob = jobExecutor.getMaxParallelJob();
+
+        final ArrayList<ComplexDistribution> parallel = new ArrayList<ComplexDistribution>();
+        final ArrayList<ComplexDistribution> sequential = new ArrayList<ComplexDistribution>();
+
+        ComplexDistribution.create(3, parallel, 42L);
+        try {
+            jobExecutor.setMaxParallelJob(1);
+            ComplexDistribution.create(3, sequential, 42L);
+        } finally {
+            jobExecutor.setMaxParallelJob(maxParallelJob);
+        }
+
+        Assert.assertEquals(3, parallel.size());
+        for (int i = 0; i < parallel.size(); i++) {
+            Assert.assertArrayEquals(parallel.get(i).getSamples()[0], sequential.get(i).getSamples()[0], 0.0);
+            Assert.assertArrayEquals(parallel.get(i).getSamples()[1], sequential.get(i).getSamples()[1], 0.0);
+            Assert.assertTrue(parallel.get(i).getQualityMoments()[2] < 1e-2);
+        }
+    }
+
+    @Test
+    public void testFusedScore() {
+        final ArrayList<ComplexDistribution> distributions = new ArrayList<ComplexDistribution>();
+        ComplexDistribution.create(1, distributions, 3L);
+        final ComplexDistribution d = distributions.get(0);
+
+        final double[] expected = new double[3];
+        final Random random = new Random(11L);
+
+        for (int i = 0; i < 50; i++) {
+            // random (biased) distributions to cover good and bad ones:
+            final double bias = (i % 5) * 1e-3;
+            final double scale = 1.0 + (i % 3) * 1e-2;
+            final double[][] samples = d.getSamples();
+            for (int n = 0; n < samples[0].length; n++) {
+                samples[0][n] = bias + scale * random.nextGaussian();
+                samples[1][n] = -bias + scale * random.nextGaussian();
+            }
+            final boolean good = d.test(null, false);
+            System.arraycopy(d.getQualityMoments(), 0, expected, 0, 3);
+
+            Assert.assertEquals(good, d.score());
+            Assert.assertArrayEquals(expected, d.getQualityMoments(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testDistributionHandOut() {
+        final StatUtils stats = StatUtils.getInstance();
+        Assert.assertEquals(cacheDir, StatUtils.getCacheFile().getParentFile());
+
+        // round-robin over all distributions:
+        final ComplexDistribution[] all = stats.get(15);
+        final Set<ComplexDistribution> distinct = Collections.newSetFromMap(new IdentityHashMap<ComplexDistribution, Boolean>());
+        distinct.addAll(Arrays.asList(all));
+        Assert.assertEquals(15, distinct.size());
+        for (int i = 0; i < 15; i++) {
+            Assert.assertSame(all[i], stats.get());
+        }
+
+        // concurrent hand-out from job worker threads:
+        final ComplexDistribution[] results = new ComplexDistribution[10000];
+        ParallelJobExecutor.getInstance().parallelFor("testDistributionHandOut", 0, results.length, 100, new IntRangeBody() {
+            @Override
+            public void run(final int lo, final int hi) {
+                for (int i = lo; i < hi; i++) {
+                    results[i] = ((i & 1) == 0) ? stats.get() : stats.get(2)[1];
+                }
+            }
+        });
+        for (ComplexDistribution d : results) {
+            Assert.assertTrue(distinct.contains(d));
+        }
+    }
+
+    @Test
+    public void testDistributionCache() throws IOException {
+        final ArrayList<ComplexDistribution> distributions = new ArrayList<ComplexDistribution>();
+        ComplexDistribution.create(2, distributions, 7L);
+
+        final File file = File.createTempFile("TestStatistics", ".bin");
+        try {
+            StatUtils.storeDistributions(file, distributions);
+
+            final ArrayList<ComplexDistribution> loaded = new ArrayList<ComplexDistribution>();
+            Assert.assertEquals(2, StatUtils.loadDistributions(file, 0, 5, loaded));
+            for (int i = 0; i < loaded.size(); i++) {
+                Assert.assertArrayEquals(distributions.get(i).getQualityMoments(), loaded.get(i).getQualityMoments(), 0.0);
+                Assert.assertArrayEquals(distributions.get(i).getSamples()[0], loaded.get(i).getSamples()[0], 0.0);
+                Assert.assertArrayEquals(distributions.get(i).getSamples()[1], loaded.get(i).getSamples()[1], 0.0);
+            }
+            // partial load:
+            loaded.clear();
+            Assert.assertEquals(1, StatUtils.loadDistributions(file, 1, 5, loaded));
+            Assert.assertArrayEquals(distributions.get(1).getSamples()[0], loaded.get(0).getSamples()[0], 0.0);
+
+            // corrupt one sample:
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.seek(raf.length() - 3L);
+                raf.write(0x55);
+            } finally {
+                raf.close();
+            }
+            loaded.clear();
+            Assert.assertEquals(0, StatUtils.loadDistributions(file, 0, 5, loaded));
+            Assert.assertTrue(loaded.isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void check(final WelfordVariance v, final long n, final double mean, final double variance,
+                              final double skewness, final double kurtosis) {
+        Assert.assertEquals(n, v.nSamples());
+        Assert.assertEquals(mean, v.mean(), EPSILON * Math.abs(mean));
+        Assert.assertEquals(variance, v.variance(), 1e-6 * variance);
+        Assert.assertEquals(skewness, v.skewness(), 1e-6 * Math.abs(skewness));
+        Assert.assertEquals(kurtosis, v.kurtosis(), 1e-6 * Math.abs(kurtosis));
+    }
+}
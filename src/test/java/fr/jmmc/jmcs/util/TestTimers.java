@@ -0,0 +1,282 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util;
+
+import fr.jmmc.jmcs.util.timer.AbstractTimer;
+import fr.jmmc.jmcs.util.timer.Histogram;
+import fr.jmmc.jmcs.util.timer.RollingStatLong;
+import fr.jmmc.jmcs.util.timer.StatLong;
+import fr.jmmc.jmcs.util.timer.TimerFactory;
+import fr.jmmc.jmcs.util.timer.TimerScope;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test file for concurrent timer updates (TimerFactory), percentile histograms, rolling statistics and timing scopes
+ *
+ * @author agent
+ */
+public class TestTimers {
+
+    /** number of threads */
+    private final static int THREADS = 8;
+    /** number of samples per thread */
+    private final static int SAMPLES = 100 * 1000;
+
+    @Test
+    public void testConcurrentTimers() throws InterruptedException {
+        final String simple = "TestTimers-simple";
+        final String threshold = "TestTimers-threshold";
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final Thread[] threads = new Thread[THREADS];
+
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int j = 1; j <= SAMPLES; j++) {
+                        // lookup + update from all threads:
+                        TimerFactory.getSimpleTimer(simple, TimerFactory.UNIT.ns).add(j);
+                        TimerFactory.getTimer(threshold, TimerFactory.UNIT.ns, SAMPLES / 2).add(j);
+                    }
+                }
+            }, "TestTimers-" + i);
+            threads[i].start();
+        }
+        startSignal.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        final AbstractTimer timer = TimerFactory.getSimpleTimer(simple, TimerFactory.UNIT.ns);
+        final StatLong stat = timer.getTimeStatistics();
+
+        // no lost sample:
+        Assert.assertEquals(THREADS * SAMPLES, timer.getUsage());
+        Assert.assertEquals(THREADS * SAMPLES, stat.getCounter());
+        Assert.assertEquals(1d, stat.getMin(), 0d);
+        Assert.assertEquals(SAMPLES, stat.getMax(), 0d);
+        Assert.assertEquals(0.5d * (SAMPLES + 1), stat.getAverage(), 1e-6d);
+
+        // shared histogram:
+        final Histogram histogram = timer.getHistogram();
+        Assert.assertEquals(THREADS * SAMPLES, histogram.getCount());
+        Assert.assertEquals(0.5d * SAMPLES, histogram.getValueAtPercentile(50d), 0.5d * SAMPLES / (1 << histogram.getPrecision()));
+        Assert.assertEquals(SAMPLES, histogram.getValueAtPercentile(100d), 0d);
+
+        Assert.assertEquals(THREADS * SAMPLES, TimerFactory.getTimer(threshold, TimerFactory.UNIT.ns).getUsage());
+
+        final String dump = TimerFactory.dumpTimers();
+        Assert.assertTrue(dump, dump.contains(simple + " - ns] [" + (THREADS * SAMPLES) + "]"));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final Histogram histogram = new Histogram();
+        final Histogram other = new Histogram();
+        for (int i = 1; i <= SAMPLES; i++) {
+            // split values in 2 histograms to test merge:
+            ((i % 3 == 0) ? other : histogram).add(i);
+        }
+        histogram.add(other);
+
+        Assert.assertEquals(SAMPLES, histogram.getCount());
+        final double error = 1d / (1 << histogram.getPrecision());
+
+        for (double p : new double[]{50d, 90d, 99d, 99.9d}) {
+            final double expected = 0.01d * p * SAMPLES;
+            Assert.assertEquals("p" + p, expected, histogram.getValueAtPercentile(p), error * expected);
+        }
+        Assert.assertEquals(1d, histogram.getValueAtPercentile(0d), 0d);
+        Assert.assertEquals(SAMPLES, histogram.getValueAtPercentile(100d), 0d);
+        Assert.assertTrue(Double.isNaN(new Histogram().getValueAtPercentile(50d)));
+
+        // tiny and huge values are clamped:
+        final Histogram clamped = new Histogram(Histogram.MIN_PRECISION);
+        clamped.add(1e-12d);
+        clamped.add(1e30d);
+        Assert.assertEquals(1e-12d, clamped.getValueAtPercentile(0d), 0d);
+        Assert.assertTrue(clamped.getValueAtPercentile(50d) < 1e-5d);
+        Assert.assertEquals(1e30d, clamped.getValueAtPercentile(100d), 0d);
+
+        final AbstractTimer timer = TimerFactory.getTimer("TestTimers-percentiles", TimerFactory.UNIT.ms, 10d);
+        for (int i = 1; i <= 100; i++) {
+            timer.add(0.1d * i);
+        }
+        Assert.assertEquals(5d, timer.getPercentile(50d), 5d * error);
+        Assert.assertEquals(9.9d, timer.getPercentile(99d), 9.9d * error);
+    }
+
+    @Test
+    public void testScopes() throws InterruptedException {
+        final String category = "TestTimers-scope";
+
+        for (int i = 0; i < 10; i++) {
+            try (TimerScope scope = TimerFactory.start(category)) {
+                Assert.assertTrue(scope.isRecording());
+                Thread.sleep(1L);
+                try (TimerScope sub = scope.child("phase")) {
+                    Assert.assertSame(scope, sub.getParent());
+                    Thread.sleep(1L);
+                }
+            }
+        }
+        Assert.assertEquals(10, TimerFactory.getTimer(category).getUsage());
+        Assert.assertEquals(10, TimerFactory.getTimer(category + "/phase").getUsage());
+        Assert.assertTrue(TimerFactory.getTimer(category).getTimeStatistics().getMin()
+                >= TimerFactory.getTimer(category + "/phase").getTimeStatistics().getMin());
+
+        // child timers cached per parent timer and name:
+        try (TimerScope scope = TimerFactory.start(category)) {
+            final TimerScope sub = scope.child("phase");
+            Assert.assertSame(TimerFactory.getTimer(category + "/phase"), sub.getTimer());
+            Assert.assertSame(sub.getTimer(), scope.child("phase").getTimer());
+            Assert.assertNotSame(sub.getTimer(), scope.child("other").getTimer());
+        }
+
+        // disabled:
+        TimerFactory.setEnabled(false);
+        try {
+            final TimerScope scope = TimerFactory.start(category);
+            Assert.assertSame(TimerScope.DISABLED, scope);
+            Assert.assertSame(TimerScope.DISABLED, scope.child("phase"));
+            Assert.assertSame(TimerScope.DISABLED, TimerFactory.getTimer(category).start());
+        } finally {
+            TimerFactory.setEnabled(true);
+        }
+
+        // sampling 1 in 10:
+        final AbstractTimer timer = TimerFactory.getSimpleTimer("TestTimers-sampling", TimerFactory.UNIT.ms);
+        timer.setSampling(10);
+        int recorded = 0;
+        for (int i = 0; i < 10000; i++) {
+            final TimerScope scope = timer.start();
+            if (scope.isRecording()) {
+                recorded++;
+            }
+            scope.close();
+        }
+        Assert.assertTrue("recorded: " + recorded, recorded > 700 && recorded < 1300);
+    }
+
+    @Test
+    public void testRollingStatistics() {
+        final long second = 1000L * 1000L * 1000L;
+        final RollingStatLong rolling = new RollingStatLong();
+        final RollingStatLong other = new RollingStatLong();
+
+        // 10 values per second during 30 minutes (value = 2, then 4 during the last minute):
+        long now = 120L * second;
+        for (int t = 0; t < 30 * 60; t++) {
+            for (int i = 0; i < 10; i++) {
+                ((i % 2 == 0) ? rolling : other).add((t < 29 * 60) ? 2d : 4d, now + i * (second / 10L));
+            }
+            now += second;
+        }
+        rolling.add(other, now);
+
+        final StatLong window1 = rolling.getWindow(1, now);
+        Assert.assertEquals(600, window1.getCounter());
+        Assert.assertEquals(4d, window1.getAverage(), 1e-9d);
+        Assert.assertEquals(9000, rolling.getWindow(15, now).getCounter());
+        Assert.assertEquals(2d + 2d / 15d, rolling.getWindow(15, now).getAverage(), 1e-9d);
+
+        // EWMA start from 0 (30 minutes = 2 time constants for the 15 minutes EWMA):
+        Assert.assertEquals(10d, rolling.getRate(1, now), 1e-6d);
+        Assert.assertEquals(10d, rolling.getRate(5, now), 0.05d);
+        Assert.assertEquals(10d * (1d - Math.exp(-2d)), rolling.getRate(15, now), 0.05d);
+        // latency trend: the 1 minute EWMA follows the last values faster:
+        Assert.assertTrue(rolling.getAverage(1, now) > rolling.getAverage(5, now));
+        Assert.assertTrue(rolling.getAverage(5, now) > rolling.getAverage(15, now));
+
+        // idle during 1 hour:
+        now += 3600L * second;
+        Assert.assertEquals(0, rolling.getWindow(15, now).getCounter());
+        Assert.assertEquals(0d, rolling.getRate(1, now), 1e-6d);
+        Assert.assertTrue(rolling.getRate(15, now) < 0.2d);
+    }
+
+    @Test
+    public void testRollingOptIn() {
+        final AbstractTimer disabled = TimerFactory.getSimpleTimer("TestTimers-rolling-off", TimerFactory.UNIT.ns);
+        TimerFactory.setRollingStatistics(true);
+        final AbstractTimer enabled;
+        try {
+            enabled = TimerFactory.getSimpleTimer("TestTimers-rolling-on", TimerFactory.UNIT.ns);
+        } finally {
+            TimerFactory.setRollingStatistics(false);
+        }
+        for (int i = 1; i <= 100; i++) {
+            disabled.add(i);
+            enabled.add(i);
+        }
+        final long now = System.nanoTime();
+        Assert.assertEquals(100, disabled.getUsage());
+        Assert.assertEquals(0, disabled.getRollingStatistics().getWindow(1, now).getCounter());
+        Assert.assertEquals(100, enabled.getRollingStatistics().getWindow(1, now).getCounter());
+    }
+
+    @Test
+    public void testUsageField() {
+        // custom timer counting samples in the protected _usage field:
+        final AbstractTimer timer = new AbstractTimer("TestTimers-custom", TimerFactory.UNIT.ns) {
+            private final StatLong _stat = new StatLong();
+
+            @Override
+            public synchronized void add(final double time) {
+                _usage++;
+                _stat.add(time);
+            }
+
+            @Override
+            public StatLong getTimeStatistics() {
+                return _stat;
+            }
+
+            @Override
+            public Histogram getHistogram() {
+                return new Histogram();
+            }
+
+            @Override
+            public RollingStatLong getRollingStatistics() {
+                return new RollingStatLong();
+            }
+        };
+        for (int i = 1; i <= 10; i++) {
+            timer.add(i);
+        }
+        Assert.assertEquals(10, timer.getUsage());
+    }
+}
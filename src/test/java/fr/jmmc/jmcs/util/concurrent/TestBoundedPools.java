@@ -0,0 +1,175 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import fr.jmmc.jmcs.util.concurrent.ThreadExecutors.SaturationPolicy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test bounded thread pools: size limits, saturation policies and metrics
+ *
+ * @author agent
+ */
+public class TestBoundedPools {
+
+    /** maximum number of threads */
+    private static final int MAX_THREADS = 2;
+    /** queue capacity */
+    private static final int QUEUE_CAPACITY = 2;
+    /** latch releasing blocked jobs */
+    private final CountDownLatch release = new CountDownLatch(1);
+    /** latch counting started jobs */
+    private final CountDownLatch started = new CountDownLatch(MAX_THREADS);
+    /** tested pool */
+    private ThreadExecutors pool = null;
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        if (pool != null) {
+            pool.getExecutor().shutdownNow();
+        }
+    }
+
+    private final Runnable blockingJob = new Runnable() {
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    /**
+     * Create the pool and fill it (running threads and queue)
+     * @param policy saturation policy
+     * @param blockTimeout block timeout (ms)
+     * @throws InterruptedException if interrupted
+     */
+    private void saturate(final SaturationPolicy policy, final long blockTimeout) throws InterruptedException {
+        pool = ThreadExecutors.newBoundedExecutor("TestBoundedPools", MAX_THREADS, QUEUE_CAPACITY, policy, blockTimeout);
+        for (int i = 0; i < MAX_THREADS + QUEUE_CAPACITY; i++) {
+            pool.submit(blockingJob);
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBoundedSize() throws InterruptedException {
+        saturate(SaturationPolicy.REJECT, 0L);
+        final CustomThreadPoolExecutor executor = pool.getExecutor();
+        Assert.assertEquals(MAX_THREADS, executor.getPoolSize());
+        Assert.assertEquals(MAX_THREADS, executor.getActiveCount());
+        Assert.assertEquals(QUEUE_CAPACITY, executor.getQueue().size());
+        Assert.assertFalse(pool.getSaturationHandler().isSaturated());
+    }
+
+    @Test
+    public void testCallerRuns() throws InterruptedException {
+        saturate(SaturationPolicy.CALLER_RUNS, 0L);
+        final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+        pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                runner.set(Thread.currentThread());
+            }
+        });
+        // executed synchronously by the caller:
+        Assert.assertSame(Thread.currentThread(), runner.get());
+
+        final SaturationHandler handler = pool.getSaturationHandler();
+        Assert.assertEquals(1L, handler.getCallerRunsCount());
+        Assert.assertEquals(0L, handler.getRejectedCount());
+        Assert.assertTrue(handler.isSaturated());
+    }
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        saturate(SaturationPolicy.BLOCK, 100L);
+        final SaturationHandler handler = pool.getSaturationHandler();
+
+        // timeout:
+        final long start = System.nanoTime();
+        try {
+            pool.submit(blockingJob);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90L));
+        Assert.assertEquals(1L, handler.getBlockedCount());
+        Assert.assertEquals(1L, handler.getTimeoutCount());
+        Assert.assertEquals(1L, handler.getRejectedCount());
+
+        // queued once running jobs complete:
+        final Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ThreadExecutors.sleep(20L);
+                release.countDown();
+            }
+        });
+        releaser.start();
+        pool.submit(blockingJob);
+        Assert.assertEquals(2L, handler.getBlockedCount());
+        Assert.assertEquals(1L, handler.getTimeoutCount());
+        Assert.assertEquals(1L, handler.getRejectedCount());
+    }
+
+    @Test
+    public void testReject() throws InterruptedException {
+        saturate(SaturationPolicy.REJECT, 0L);
+        try {
+            pool.submit(blockingJob);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+        final SaturationHandler handler = pool.getSaturationHandler();
+        Assert.assertEquals(1L, handler.getRejectedCount());
+        Assert.assertEquals(0L, handler.getBlockedCount());
+        Assert.assertTrue(handler.isSaturated());
+    }
+
+    @Test
+    public void testRedirectPoolUnbounded() {
+        // ProcessRunner stream redirectors must run concurrently whatever the bounded settings:
+        final ThreadExecutors redirect = ThreadExecutors.getRedirectExecutor();
+        Assert.assertNotSame(ThreadExecutors.getGenericExecutor(), redirect);
+        Assert.assertNull(redirect.getSaturationHandler());
+        Assert.assertEquals(Integer.MAX_VALUE, redirect.getExecutor().getMaximumPoolSize());
+    }
+}
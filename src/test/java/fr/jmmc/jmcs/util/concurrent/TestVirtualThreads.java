@@ -0,0 +1,161 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.concurrent;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Test virtual thread pools (Java 21+ multi-release classes) and the platform thread fallback
+ *
+ * @author agent
+ */
+public class TestVirtualThreads {
+
+    /** number of concurrent tasks (more than any platform pool limit) */
+    private static final int TASKS = 256;
+
+    /**
+     * Return true if the given thread is virtual (Thread.isVirtual() on Java 21+)
+     * @param thread thread to test
+     * @return true if the given thread is virtual
+     */
+    private static boolean isVirtual(final Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException roe) {
+            return false;
+        }
+    }
+
+    /**
+     * Test that a virtual pool starts one virtual thread per task (no limit, no pooling)
+     * @throws Exception if any failure
+     */
+    @Test(timeout = 60000)
+    public void testThreadPerTask() throws Exception {
+        Assume.assumeTrue(ThreadExecutors.isVirtualThreadSupported());
+
+        final ThreadExecutors pool = ThreadExecutors.newVirtualExecutor("TestVirtualThreads");
+        try {
+            final CountDownLatch started = new CountDownLatch(TASKS);
+            final CountDownLatch release = new CountDownLatch(1);
+            final Set<Thread> threads = new HashSet<Thread>();
+
+            for (int i = 0; i < TASKS; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (threads) {
+                            threads.add(Thread.currentThread());
+                        }
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            // all tasks run concurrently:
+            Assert.assertTrue(started.await(30L, TimeUnit.SECONDS));
+            release.countDown();
+
+            synchronized (threads) {
+                Assert.assertEquals(TASKS, threads.size());
+                for (Thread thread : threads) {
+                    Assert.assertTrue(thread.toString(), isVirtual(thread));
+                    Assert.assertTrue(thread.getName(), thread.getName().startsWith("TestVirtualThreads-vthread-"));
+                }
+            }
+
+            // sequential tasks do not reuse threads:
+            final Set<Thread> sequential = new HashSet<Thread>();
+            for (int i = 0; i < 10; i++) {
+                sequential.add(pool.submit(new CurrentThread()).get());
+            }
+            Assert.assertEquals(10, sequential.size());
+        } finally {
+            pool.getExecutor().shutdownNow();
+        }
+    }
+
+    /**
+     * Test that a single-thread pool keeps a single thread (virtual if supported) to run tasks in order
+     * @throws Exception if any failure
+     */
+    @Test(timeout = 60000)
+    public void testSingleExecutor() throws Exception {
+        final String name = "TestVirtualThreads-single";
+        ThreadExecutors.setVirtualThreads(name, true);
+
+        final ThreadExecutors pool = ThreadExecutors.getSingleExecutor(name, false);
+        try {
+            final Future<Thread> first = pool.submit(new CurrentThread());
+            final Future<Thread> second = pool.submit(new CurrentThread());
+
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertEquals(ThreadExecutors.isVirtualThreadSupported(), isVirtual(first.get()));
+        } finally {
+            pool.getExecutor().shutdownNow();
+        }
+    }
+
+    /**
+     * Test the platform thread fallback (Java 8 classes)
+     */
+    @Test
+    public void testUnsupported() {
+        Assume.assumeTrue(!ThreadExecutors.isVirtualThreadSupported());
+        try {
+            ThreadExecutors.newVirtualExecutor("TestVirtualThreads");
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+    }
+
+    /**
+     * Task returning its thread
+     */
+    private static final class CurrentThread implements Callable<Thread> {
+
+        @Override
+        public Thread call() {
+            return Thread.currentThread();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ *                 jMCS project ( http://www.jmmc.fr/dev/jmcs )
+ *******************************************************************************
+ * Copyright (c) 2026, CNRS. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     - Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     - Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     - Neither the name of the CNRS nor the names of its contributors may be
+ *       used to endorse or promote products derived from this software without
+ *       specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL CNRS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package fr.jmmc.jmcs.util.timer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test file for the TimerFactory calibration cache (load, stale or invalid files) and the background calibration
+ *
+ * @author agent
+ */
+public class TestTimerCalibration {
+
+    /** temporary cache directory */
+    private File cacheDir;
+    /** calibration cache file */
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = File.createTempFile("TestTimerCalibration", "");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+        file = new File(cacheDir, TimerFactory.getCalibrationFile().getName());
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : cacheDir.listFiles()) {
+            f.delete();
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void testLoad() {
+        final double latency = Math.max(1d, TimerFactory.measureLatency());
+        TimerFactory.storeCalibration(file, latency, 1e-6d * latency);
+
+        final double[] calibration = TimerFactory.readCalibration(file);
+        Assert.assertNotNull(calibration);
+        Assert.assertEquals(latency, calibration[0], 0d);
+        Assert.assertEquals(1e-6d * latency, calibration[1], 0d);
+    }
+
+    @Test
+    public void testMissingOrStale() {
+        Assert.assertNull(TimerFactory.readCalibration(file));
+
+        final double latency = Math.max(1d, TimerFactory.measureLatency());
+        TimerFactory.storeCalibration(file, latency, 1e-6d * latency);
+        Assert.assertTrue(file.setLastModified(System.currentTimeMillis() - 31L * 24L * 3600L * 1000L));
+        Assert.assertNull(TimerFactory.readCalibration(file));
+    }
+
+    @Test
+    public void testInvalid() throws IOException {
+        final String ns = Double.toString(Math.max(1d, TimerFactory.measureLatency()));
+        final String key = TimerFactory.getCalibrationKey();
+
+        // other JVM / host:
+        write("other JVM", ns, "0.0");
+        Assert.assertNull(TimerFactory.readCalibration(file));
+        // missing or bad values:
+        write(key, null, "0.0");
+        Assert.assertNull(TimerFactory.readCalibration(file));
+        write(key, "abc", "0.0");
+        Assert.assertNull(TimerFactory.readCalibration(file));
+        write(key, "-1.0", "0.0");
+        Assert.assertNull(TimerFactory.readCalibration(file));
+        write(key, "1e6", "0.0");
+        Assert.assertNull(TimerFactory.readCalibration(file));
+        // valid:
+        write(key, ns, "0.0");
+        Assert.assertNotNull(TimerFactory.readCalibration(file));
+    }
+
+    @Test
+    public void testSanityCheck() {
+        final double latency = TimerFactory.measureLatency();
+        if (latency <= 0d) {
+            // no positive delta measured (coarse clock): sanity check disabled
+            return;
+        }
+        // cached values far from the measured latency (clock source or host changed):
+        TimerFactory.storeCalibration(file, Math.min(9999d, 100d * latency), 0d);
+        Assert.assertNull(TimerFactory.readCalibration(file));
+
+        TimerFactory.storeCalibration(file, 0.01d * latency, 0d);
+        Assert.assertNull(TimerFactory.readCalibration(file));
+    }
+
+    @Test
+    public void testAsyncCalibration() throws InterruptedException {
+        // default mode (async or loaded from cache):
+        Assert.assertTrue(TimerFactory.awaitCalibration(60 * 1000L));
+        Assert.assertTrue(TimerFactory.isCalibrated());
+
+        final Thread thread = TimerFactory.calibrateAsync(file);
+        Assert.assertTrue(thread.isDaemon());
+        thread.join(60 * 1000L);
+        Assert.assertFalse(thread.isAlive());
+
+        // calibration stored in the given cache file:
+        Assert.assertTrue(file.isFile());
+        Assert.assertNotNull(TimerFactory.readCalibration(file));
+    }
+
+    @Test
+    public void testThreshold() {
+        final StatLong stat = new StatLong(100);
+        final StatLong defStat = new StatLong();
+        for (int i = 1; i <= 50; i++) {
+            stat.add(i);
+            defStat.add(i);
+        }
+        // not enough samples for the calibration threshold:
+        Assert.assertEquals(0d, stat.getStdDev(), 0d);
+        Assert.assertTrue(defStat.getStdDev() > 0d);
+        Assert.assertEquals(defStat.getAverage(), stat.getAverage(), 1e-9d);
+    }
+
+    /**
+     * Write a calibration cache file
+     * @param key JVM key
+     * @param ns nanoseconds calibration or null
+     * @param ms milliseconds calibration
+     * @throws IOException if an I/O error occurs
+     */
+    private void write(final String key, final String ns, final String ms) throws IOException {
+        final Properties props = new Properties();
+        props.setProperty("jvm", key);
+        if (ns != null) {
+            props.setProperty("ns", ns);
+        }
+        props.setProperty("ms", ms);
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+}